@@ -0,0 +1,179 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.services.AllocationOptimizer;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Planned;
+import com.marianbastiurea.domain.services.ExhaustionIndex;
+import com.marianbastiurea.domain.services.HoldLedger;
+import com.marianbastiurea.domain.services.ReservationListener;
+import com.marianbastiurea.domain.services.ReservationMetrics;
+import com.marianbastiurea.domain.services.ReservationOrchestrator;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import com.marianbastiurea.infrastructure.memory.InMemoryCrateRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryHoneyRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryJarRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryLabelRepo;
+import com.marianbastiurea.infrastructure.memory.SimulatedLatency;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuards;
+import com.marianbastiurea.infrastructure.resilience.HedgedReads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time to reserve {@code orders} orders on the {@code simulation} profile's in-memory
+ * repositories, each op a full run from freshly seeded stock: {@code commitPlan} is the startup
+ * pipeline's optimized path ({@code app.allocation.chunk-size} orders planned at a time, committed
+ * one chunk after the other as with {@code app.pipeline.commit-concurrency=1}), {@code reserveFor}
+ * the same orders one reservation at a time. Planning is done in setup, so {@code commitPlan}
+ * times the writes only.
+ * <p>
+ * {@code writeMs} is {@code simulation.latency.write-ms}: 0 measures the code alone, a non-zero
+ * value charges every honey and packaging write a round trip and shows what batching saves.
+ * Stock is seeded well above demand, so every order is filled and both methods do the same work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class BulkCommitBenchmark {
+
+    private static final int CHUNK = 500;
+    private static final int PACKAGING_PER_TYPE = 500_000_000;
+    // crate stock times jars per crate must stay within an int
+    private static final int CRATES_PER_TYPE = 40_000_000;
+    private static final BigDecimal HONEY_KG = BigDecimal.valueOf(1_000_000_000L);
+
+    @Param({"100000"})
+    public int orders;
+
+    @Param({"0", "0.2"})
+    public double writeMs;
+
+    @Param({"TYPICAL"})
+    public OrderDistribution distribution;
+
+    private InMemoryHoneyRepo honeyRepo;
+    private InMemoryJarRepo jarRepo;
+    private InMemoryLabelRepo labelRepo;
+    private InMemoryCrateRepo crateRepo;
+    private ReservationOrchestrator orchestrator;
+    private List<Order> orderList;
+    private List<List<Planned>> chunks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        SimulatedLatency latency = new SimulatedLatency(0, writeMs, 0);
+        honeyRepo = new InMemoryHoneyRepo(HONEY_KG, 5, latency, registry);
+        jarRepo = new InMemoryJarRepo(PACKAGING_PER_TYPE, latency);
+        labelRepo = new InMemoryLabelRepo(PACKAGING_PER_TYPE, latency);
+        crateRepo = new InMemoryCrateRepo(CRATES_PER_TYPE, latency);
+        TransactionTemplate tt = new TransactionTemplate(new NoTransactionManager());
+        ThreadFactory vt = Thread.ofVirtual().name("bench-", 0).factory();
+        DependencyGuards guards = new DependencyGuards(registry, 64, 50, 5, 10_000, 2_000, 2);
+        orchestrator = new ReservationOrchestrator(honeyRepo, jarRepo, crateRepo, labelRepo, tt, tt, tt, vt,
+                guards, new HedgedReads(vt, registry, false, 0.95, 20), new ReservationMetrics(registry),
+                new HoldLedger(), new ExhaustionIndex(registry, false, 1_000),
+                new DefaultListableBeanFactory().getBeanProvider(ReservationListener.class), 3_000, 32);
+
+        SplittableRandom rnd = new SplittableRandom(11);
+        HoneyType[] honeys = HoneyType.values();
+        orderList = new ArrayList<>(orders);
+        int number = 0;
+        for (JarQuantities jars : distribution.orders(orders, 42)) {
+            orderList.add(new Order(honeys[rnd.nextInt(honeys.length)], jars, ++number));
+        }
+
+        Map<HoneyType, BigDecimal> honeyKg = new EnumMap<>(HoneyType.class);
+        for (HoneyType h : honeys) honeyKg.put(h, HONEY_KG);
+        PackagingSnapshot stock = new PackagingSnapshot(jarRepo.stockFor(EnumSet.allOf(JarType.class)),
+                labelRepo.stockFor(EnumSet.allOf(LabelType.class)), crateRepo.stockFor(EnumSet.allOf(CrateType.class)));
+        chunks = new ArrayList<>();
+        for (int from = 0; from < orders; from += CHUNK) {
+            List<Order> chunk = orderList.subList(from, Math.min(orders, from + CHUNK));
+            chunks.add(AllocationOptimizer.optimize(chunk, honeyKg, stock, AllocationOptimizer.Objective.MAX_FILLED).planned());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reseed() {
+        honeyRepo.reset(HONEY_KG);
+        jarRepo.reset(PACKAGING_PER_TYPE);
+        labelRepo.reset(PACKAGING_PER_TYPE);
+        crateRepo.reset(CRATES_PER_TYPE);
+    }
+
+    @Benchmark
+    public int commitPlan() {
+        int reserved = 0;
+        for (List<Planned> chunk : chunks) {
+            for (ReservationResult r : orchestrator.commitPlan(chunk)) if (r.success()) reserved++;
+        }
+        return check(reserved);
+    }
+
+    @Benchmark
+    public int reserveFor() {
+        int reserved = 0;
+        for (Order order : orderList) {
+            if (orchestrator.reserveFor(order).success()) reserved++;
+        }
+        return check(reserved);
+    }
+
+    private int check(int reserved) {
+        if (reserved != orders) throw new IllegalStateException("reserved " + reserved + " of " + orders);
+        return reserved;
+    }
+
+    private static final class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.services.ReservationPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups the planner and the repositories do once per jar type per order. The inputs are
+ * shuffled so the branch predictor cannot learn a fixed sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class EnumLookupBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final JarType[] jarTypes = new JarType[SIZE];
+    private final String[] jarTypeNames = new String[SIZE];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        JarType[] values = JarType.values();
+        for (int i = 0; i < SIZE; i++) {
+            jarTypes[i] = values[rnd.nextInt(values.length)];
+            jarTypeNames[i] = jarTypes[i].name();
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) & (SIZE - 1);
+        return i;
+    }
+
+    @Benchmark
+    public CrateType crateForJarType() {
+        return CrateType.forJarType(jarTypes[next()]);
+    }
+
+    @Benchmark
+    public LabelType labelTypeFor() {
+        return ReservationPlanner.labelTypeFor(jarTypes[next()]);
+    }
+
+    @Benchmark
+    public JarType jarTypeValueOf() {
+        return JarType.valueOf(jarTypeNames[next()]);
+    }
+}
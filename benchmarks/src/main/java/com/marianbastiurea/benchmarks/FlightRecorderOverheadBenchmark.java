@@ -0,0 +1,104 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.infrastructure.jfr.OrderReservationEvent;
+import com.marianbastiurea.infrastructure.jfr.PackagingDeliveryEvent;
+import com.marianbastiurea.infrastructure.jfr.PinnedThreadRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the honeyfactory JFR events add to one reservation: one {@code OrderReservation} and a
+ * {@code PackagingDelivery} per jar, label and crate type written, filled the way the
+ * orchestrator and the repositories fill them. {@code recording=on} runs the {@code jfr}
+ * profile's {@link PinnedThreadRecorder} (JDK {@code default} settings plus the app events), so
+ * every event is committed; {@code off} is the cost with no recording, when
+ * {@code shouldCommit()} is false.
+ * <p>
+ * Divide the {@code on} time per op by the reservation latency ({@code reservation.order} or a
+ * load-test report) for the share of the reservation path spent on recording. The background cost
+ * of the JDK {@code default} settings (sampling, GC and lock events) is not on this path; compare
+ * process CPU of a load-test run with and without {@code --spring.profiles.active=jfr} for that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class FlightRecorderOverheadBenchmark {
+
+    private static final JarType[] TYPES = {JarType.JAR400, JarType.JAR800};
+    private static final String[] PACKAGING = {"jars", "labels", "crates"};
+
+    @Param({"off", "on"})
+    public String recording;
+
+    private PinnedThreadRecorder recorder;
+    private int orderNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("on".equals(recording)) {
+            recorder = new PinnedThreadRecorder(Duration.ofMillis(20), Duration.ofMinutes(1),
+                    64L * 1024 * 1024, null, new SimpleMeterRegistry());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (recorder != null) recorder.close();
+    }
+
+    @Benchmark
+    public boolean reservationEvents() {
+        int order = ++orderNumber;
+        OrderReservationEvent event = new OrderReservationEvent();
+        event.begin();
+        for (String packaging : PACKAGING) {
+            for (JarType type : TYPES) {
+                PackagingDeliveryEvent delivery = new PackagingDeliveryEvent();
+                delivery.begin();
+                delivery.end();
+                if (delivery.shouldCommit()) {
+                    delivery.packaging = packaging;
+                    delivery.itemType = type.name();
+                    delivery.orderNumber = order;
+                    delivery.requested = 24;
+                    delivery.delivered = 24;
+                    delivery.commit();
+                }
+            }
+        }
+        event.requestedKg = 14.4;
+        event.deliveredKg = 14.4;
+        event.jars = 48;
+        event.loadInputs = 1_000_000;
+        event.honeyProcess = 2_000_000;
+        event.packaging = 3_000_000;
+        event.end();
+        boolean committed = event.shouldCommit();
+        if (committed) {
+            event.orderNumber = order;
+            event.honeyType = "ACACIA";
+            event.outcome = "reserved";
+            event.commit();
+        }
+        return committed;
+    }
+}
@@ -0,0 +1,254 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.services.HoldLedger;
+import com.marianbastiurea.domain.services.ReservationPlanner.Allotment;
+import com.marianbastiurea.infrastructure.timer.TimingWheel;
+import com.marianbastiurea.infrastructure.timer.TimingWheel.Timeout;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks the {@link TimingWheel} and the {@link HoldLedger} behind stock holds, and fails on the
+ * first broken expectation:
+ * <ul>
+ *   <li>every timeout comes out of {@code advance} exactly once, on the tick its deadline rounds
+ *   up to, whichever level it was placed in and however often it was cascaded; a cancelled one
+ *   never does, and a deadline already passed comes out on the next tick;</li>
+ *   <li>concurrent holds never set aside more than the stock, and a hold's own stock stays
+ *   available to it;</li>
+ *   <li>confirms racing expiries the way {@code HoldService} runs them, with the cancel of the
+ *   timeout deciding the winner, settle each hold once and leave the ledger empty.</li>
+ * </ul>
+ * Not a JMH benchmark; run it on its own:
+ * <pre>
+ *   java --enable-preview -cp target/benchmarks.jar com.marianbastiurea.benchmarks.HoldExpiry \
+ *        [timeouts=20000] [threads=16] [races=20000] [seed=1]
+ * </pre>
+ */
+public final class HoldExpiry {
+
+    private static final long TICK_MS = 10;
+    private static final HoneyType HONEY = HoneyType.ACACIA;
+
+    public static void main(String[] args) throws Exception {
+        int timeouts = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int races = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        wheelOrder(timeouts, new SplittableRandom(seed));
+        ledgerBounds(threads);
+        confirmRacingExpiry(threads, races, new SplittableRandom(seed + 1));
+        System.out.println("OK");
+    }
+
+    /**
+     * Deadlines spread over the first four levels, some cancelled, more scheduled part way
+     * through (some already passed), the clock moved in uneven steps.
+     */
+    private static void wheelOrder(int timeouts, SplittableRandom rnd) {
+        TimingWheel<Integer> wheel = new TimingWheel<>(Duration.ofMillis(TICK_MS), 0);
+        long[] dueTick = new long[timeouts];
+        List<Timeout<Integer>> scheduled = new ArrayList<>(timeouts);
+        boolean[] cancelled = new boolean[timeouts];
+        int[] seen = new int[timeouts];
+
+        int firstHalf = timeouts / 2;
+        for (int i = 0; i < firstHalf; i++) {
+            long span = TICK_MS << (6 * (1 + rnd.nextInt(4)));
+            long deadline = rnd.nextLong(span);
+            scheduled.add(wheel.schedule(i, deadline));
+            dueTick[i] = Math.max(Math.ceilDiv(deadline, TICK_MS), 1);
+        }
+
+        long now = 0;
+        int cancels = 0;
+        long end = TICK_MS << 24;
+        while (now < end) {
+            long before = Math.floorDiv(now, TICK_MS);
+            now = Math.min(end, now + 1 + rnd.nextLong(TICK_MS << 10));
+            long after = Math.floorDiv(now, TICK_MS);
+            for (int v : wheel.advance(now)) {
+                check(!cancelled[v], "cancelled timeout " + v + " never comes out");
+                check(dueTick[v] > before && dueTick[v] <= after,
+                        "timeout " + v + " due at tick " + dueTick[v] + " comes out in (" + before + ", " + after + "]");
+                seen[v]++;
+            }
+            if (scheduled.size() < timeouts && now < end / 2) {
+                int i = scheduled.size();
+                long deadline = now - TICK_MS * 100 + rnd.nextLong(TICK_MS << 14);
+                scheduled.add(wheel.schedule(i, deadline));
+                dueTick[i] = Math.max(Math.ceilDiv(deadline, TICK_MS), after + 1);
+            }
+            if (rnd.nextInt(3) == 0) {
+                int v = rnd.nextInt(scheduled.size());
+                if (seen[v] == 0 && !cancelled[v]) {
+                    check(wheel.cancel(scheduled.get(v)), "cancel of pending timeout " + v + " succeeds");
+                    check(!wheel.cancel(scheduled.get(v)), "second cancel of timeout " + v + " fails");
+                    cancelled[v] = true;
+                    cancels++;
+                }
+            }
+        }
+        for (int v = 0; v < timeouts; v++) {
+            check(seen[v] == (cancelled[v] ? 0 : 1), "timeout " + v + " came out " + seen[v] + " time(s)");
+            if (!cancelled[v]) check(!wheel.cancel(scheduled.get(v)), "cancel after expiry of timeout " + v + " fails");
+        }
+        check(wheel.size() == 0, "empty wheel at the end, size was " + wheel.size());
+        System.out.printf("wheel: %d timeout(s), %d cancelled, all on time%n", timeouts, cancels);
+    }
+
+    /**
+     * {@code threads} holds at once for more jars than there are, then the bookkeeping of one of
+     * them, then all credited back.
+     */
+    private static void ledgerBounds(int threads) throws InterruptedException {
+        int jars = threads * 5 / 2;
+        PackagingSnapshot stock = stock(jars);
+        BigDecimal freeKg = new BigDecimal(threads * 10);
+        HoldLedger ledger = new HoldLedger();
+
+        Allotment[] allotted = new Allotment[threads];
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] ts = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int slot = i;
+            ts[i] = Thread.ofVirtual().start(() -> {
+                await(go);
+                allotted[slot] = ledger.hold(HONEY, JarQuantities.of(JarType.JAR800, 10), freeKg, stock);
+            });
+        }
+        go.countDown();
+        for (Thread t : ts) t.join();
+
+        int held = 0;
+        Allotment someHold = null;
+        for (Allotment a : allotted) {
+            held += a.approved().get(JarType.JAR800);
+            if (!a.approved().isEmpty()) someHold = a;
+        }
+        check(held == jars, "holds set aside all " + jars + " jar(s), no more, set aside " + held);
+        check(ledger.unheld(stock, JarQuantities.NONE).jars().get(JarType.JAR800).finalStock() == 0,
+                "no jar left unheld");
+        check(ledger.unheldKg(HONEY, freeKg, JarQuantities.NONE).compareTo(freeKg.subtract(new BigDecimal(jars))) == 0,
+                "honey unheld is free less held");
+        check(ledger.unheld(stock, someHold.approved()).jars().get(JarType.JAR800).finalStock()
+                        == someHold.approved().get(JarType.JAR800),
+                "a hold's own jars stay available to it");
+        check(ledger.unheld(stock, JarQuantities.NONE).jars().get(JarType.JAR800).version() == 1,
+                "row versions are kept");
+
+        for (Allotment a : allotted) {
+            if (!a.approved().isEmpty()) ledger.credit(HONEY, a.approved());
+        }
+        check(ledger.holds() == 0, "no hold left, " + ledger.holds() + " were");
+        check(ledger.unheldKg(HONEY, freeKg, JarQuantities.NONE).compareTo(freeKg) == 0, "all honey unheld again");
+        System.out.printf("ledger: %d hold(s) over %d jar(s), none over-held%n", threads, jars);
+    }
+
+    /**
+     * Holds placed with deadlines a few ticks out while one thread moves the clock; placing
+     * threads confirm about half of them, and whoever cancels the timeout first settles.
+     */
+    private static void confirmRacingExpiry(int threads, int races, SplittableRandom rnd) throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        TimingWheel<Integer> wheel = new TimingWheel<>(Duration.ofMillis(1), 0);
+        HoldLedger ledger = new HoldLedger();
+        PackagingSnapshot stock = stock(1_000_000);
+        BigDecimal freeKg = new BigDecimal(Integer.MAX_VALUE);
+        Map<Integer, Timeout<Integer>> active = new ConcurrentHashMap<>();
+        AtomicInteger[] settled = new AtomicInteger[races];
+        for (int i = 0; i < races; i++) settled[i] = new AtomicInteger();
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        long[] seeds = new long[threads];
+        for (int i = 0; i < threads; i++) seeds[i] = rnd.nextLong();
+
+        CountDownLatch placing = new CountDownLatch(threads);
+        Thread[] placers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            SplittableRandom own = new SplittableRandom(seeds[i]);
+            placers[i] = Thread.ofVirtual().start(() -> {
+                for (int id; (id = next.getAndIncrement()) < races; ) {
+                    ledger.hold(HONEY, JarQuantities.of(JarType.JAR800, 1), freeKg, stock);
+                    long deadline = clock.get() + own.nextInt(3);
+                    int key = id;
+                    active.compute(key, (k, old) -> wheel.schedule(k, deadline));
+                    if (own.nextBoolean()) {
+                        Thread.yield();
+                        Timeout<Integer> t = active.get(key);
+                        if (t != null && wheel.cancel(t)) {
+                            active.remove(key, t);
+                            ledger.credit(HONEY, JarQuantities.of(JarType.JAR800, 1));
+                            settled[key].incrementAndGet();
+                            confirmed.incrementAndGet();
+                        }
+                    }
+                }
+                placing.countDown();
+            });
+        }
+        Thread ticker = Thread.ofVirtual().start(() -> {
+            while (placing.getCount() > 0 || !active.isEmpty()) {
+                for (int id : wheel.advance(clock.incrementAndGet())) {
+                    if (active.remove(id) == null) continue;
+                    ledger.credit(HONEY, JarQuantities.of(JarType.JAR800, 1));
+                    settled[id].incrementAndGet();
+                    expired.incrementAndGet();
+                }
+                Thread.yield();
+            }
+        });
+        for (Thread t : placers) t.join();
+        ticker.join();
+
+        for (int i = 0; i < races; i++) {
+            check(settled[i].get() == 1, "hold " + i + " settled once, was " + settled[i].get());
+        }
+        check(ledger.holds() == 0, "no hold left, " + ledger.holds() + " were");
+        check(ledger.unheldKg(HONEY, freeKg, JarQuantities.NONE).compareTo(freeKg) == 0, "all honey unheld again");
+        check(wheel.size() == 0, "empty wheel at the end, size was " + wheel.size());
+        System.out.printf("races: %d hold(s), %d confirmed, %d expired, each settled once%n",
+                races, confirmed.get(), expired.get());
+    }
+
+    private static PackagingSnapshot stock(int jar800) {
+        Map<JarType, StockRow> j = new EnumMap<>(JarType.class);
+        Map<LabelType, StockRow> l = new EnumMap<>(LabelType.class);
+        Map<CrateType, StockRow> c = new EnumMap<>(CrateType.class);
+        for (JarType t : JarType.values()) j.put(t, new StockRow(1, t == JarType.JAR800 ? jar800 : 0));
+        for (LabelType t : LabelType.values()) l.put(t, new StockRow(1, 1_000_000));
+        for (CrateType t : CrateType.values()) c.put(t, new StockRow(1, 1_000_000));
+        return new PackagingSnapshot(j, l, c);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean ok, String expectation) {
+        if (!ok) throw new AssertionError("expected " + expectation);
+    }
+}
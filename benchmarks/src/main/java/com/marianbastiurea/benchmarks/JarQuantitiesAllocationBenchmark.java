@@ -0,0 +1,194 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.services.ReservationPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per order of {@link JarQuantities} against the {@code Map<JarType, Integer>} it
+ * replaced, side by side in one run: {@code map*} methods are the map arithmetic the planner had
+ * before (kept here as {@link MapPlanner}), {@code quantities*} the same steps on the array.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} (bytes per op) pairwise.
+ * <p>
+ * {@code *Request} is what placing an order does with the posted counts; {@code *PlanOrder} the
+ * CPU part of a reservation between loading inputs and the first write, as
+ * {@link ReservationPlannerBenchmark#planOrder} runs it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class JarQuantitiesAllocationBenchmark {
+
+    private static final int ORDERS = 1024;
+
+    @Param({"TYPICAL", "BULK"})
+    public OrderDistribution distribution;
+
+    private List<JarQuantities> quantities;
+    private List<Map<JarType, Integer>> maps;
+    private BigDecimal[] targets;
+    private PackagingSnapshot snapshot;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        quantities = distribution.orders(ORDERS, 42);
+        snapshot = OrderDistribution.snapshot(2_000, 7);
+        maps = new ArrayList<>(ORDERS);
+        targets = new BigDecimal[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            maps.add(new EnumMap<>(quantities.get(i).toMap()));
+            targets[i] = quantities.get(i).kg().multiply(BigDecimal.valueOf(0.6));
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) & (ORDERS - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Map<JarType, Integer> mapRequest() {
+        return new EnumMap<>(maps.get(next()));
+    }
+
+    @Benchmark
+    public JarQuantities quantitiesRequest() {
+        return JarQuantities.from(maps.get(next()));
+    }
+
+    @Benchmark
+    public Map<JarType, Integer> mapPlanOrder() {
+        int i = next();
+        Map<JarType, Integer> requested = maps.get(i);
+        BigDecimal needKg = MapPlanner.jarsToKg(requested);
+        BigDecimal[] caps = MapPlanner.capsFromSnapshot(requested, snapshot);
+        BigDecimal target = needKg.min(targets[i]).min(caps[0]).min(caps[1]).min(caps[2]);
+        Map<JarType, Integer> approved = MapPlanner.reduceJarsToTargetKg(requested, target);
+        return MapPlanner.reduceJarsToTargetKg(approved, MapPlanner.jarsToKg(approved));
+    }
+
+    @Benchmark
+    public JarQuantities quantitiesPlanOrder() {
+        int i = next();
+        JarQuantities requested = quantities.get(i);
+        BigDecimal needKg = requested.kg();
+        ReservationPlanner.Caps caps = ReservationPlanner.capsFromSnapshot(requested, snapshot);
+        BigDecimal target = needKg.min(targets[i]).min(caps.jarsKg()).min(caps.labelsKg()).min(caps.cratesKg());
+        JarQuantities approved = requested.reducedToKg(target);
+        return approved.reducedToKg(approved.kg());
+    }
+
+    /**
+     * The planner's map arithmetic before {@link JarQuantities}, unchanged but for returning the
+     * caps as an array.
+     */
+    static final class MapPlanner {
+
+        private MapPlanner() {
+        }
+
+        static BigDecimal[] capsFromSnapshot(Map<JarType, Integer> req, PackagingSnapshot snap) {
+            BigDecimal jarsKg = BigDecimal.ZERO;
+            BigDecimal labelsKg = BigDecimal.ZERO;
+            BigDecimal cratesKg = BigDecimal.ZERO;
+
+            for (var e : req.entrySet()) {
+                JarType jt = e.getKey();
+                int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
+
+                int jarsCan = Math.min(q, getFinal(snap.jars().get(jt)));
+                jarsKg = jarsKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(jarsCan)));
+
+                int labelsCan = Math.min(q, getFinal(snap.labels().get(LabelType.forJarType(jt))));
+                labelsKg = labelsKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(labelsCan)));
+
+                CrateType ct = CrateType.forJarType(jt);
+                int canFillJarsWithCrates = Math.min(q, ct.jarsCapacityForCrates(getFinal(snap.crates().get(ct))));
+                cratesKg = cratesKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(canFillJarsWithCrates)));
+            }
+            return new BigDecimal[]{jarsKg, labelsKg, cratesKg};
+        }
+
+        static BigDecimal jarsToKg(Map<JarType, Integer> jars) {
+            if (jars == null || jars.isEmpty()) return BigDecimal.ZERO;
+            BigDecimal sum = BigDecimal.ZERO;
+            for (var e : jars.entrySet()) {
+                int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
+                if (q == 0) continue;
+                sum = sum.add(e.getKey().kgPerJar().multiply(BigDecimal.valueOf(q)));
+            }
+            return sum;
+        }
+
+        static Map<JarType, Integer> reduceJarsToTargetKg(Map<JarType, Integer> requested, BigDecimal targetKg) {
+            if (requested == null || requested.isEmpty() || targetKg == null || targetKg.signum() <= 0) return Map.of();
+
+            BigDecimal needKg = jarsToKg(requested);
+            if (needKg.signum() <= 0) return Map.of();
+
+            BigDecimal ratio = targetKg.divide(needKg, 12, RoundingMode.DOWN);
+            EnumMap<JarType, Integer> reduced = new EnumMap<>(JarType.class);
+            for (var e : requested.entrySet()) {
+                JarType jt = e.getKey();
+                int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
+                int scaled = ratio.signum() > 0
+                        ? new BigDecimal(q).multiply(ratio).setScale(0, RoundingMode.FLOOR).intValue()
+                        : 0;
+                reduced.put(jt, Math.min(scaled, q));
+            }
+
+            BigDecimal used = jarsToKg(reduced);
+            outer:
+            while (used.compareTo(targetKg) < 0) {
+                boolean progressed = false;
+                for (JarType jt : JarType.values()) {
+                    int have = reduced.getOrDefault(jt, 0);
+                    int maxAllowed = Math.max(0, requested.getOrDefault(jt, 0));
+                    if (have >= maxAllowed) continue;
+                    BigDecimal after = used.add(jt.kgPerJar());
+                    if (after.compareTo(targetKg) <= 0) {
+                        reduced.put(jt, have + 1);
+                        used = after;
+                        progressed = true;
+                        if (used.compareTo(targetKg) >= 0) break outer;
+                    }
+                }
+                if (!progressed) break;
+            }
+            return reduced;
+        }
+
+        private static int getFinal(StockRow r) {
+            return r == null ? 0 : Math.max(0, r.finalStock());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.infrastructure.jdbc.AdmissionControlledDataSource;
+import com.marianbastiurea.infrastructure.resilience.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Drives an {@link AdmissionControlledDataSource} with its {@link AdaptiveConcurrencyLimit}, set up
+ * the way {@code DataSourceWrappingConfig} sets them up for a pool of {@code permits} connections,
+ * against a database whose latency is injected, and prints the limit every {@code sample-ms}. The
+ * fake database runs {@code db-slots} queries at a time.
+ * <p>
+ * Phases: steady at {@code base-ms}, slowed to {@code slow-ms}, back to {@code base-ms}. Callers
+ * beyond the limit wait in the admission queue. The run fails unless the limit is at the pool
+ * size by the end of the steady phase, falls below it once the database slows, is back at the pool size
+ * by the end of the recovery phase, and no caller is turned away. Not a JMH benchmark; run it on
+ * its own:
+ * <pre>
+ *   java --enable-preview -cp target/benchmarks.jar com.marianbastiurea.benchmarks.LatencyInjection \
+ *        [callers=128] [permits=8] [db-slots=8] [base-ms=2] [slow-ms=10] [phase-s=15] [sample-ms=1000] \
+ *        [min-limit=permits/2]
+ * </pre>
+ */
+public final class LatencyInjection {
+
+    public static void main(String[] args) throws Exception {
+        int callers = arg(args, 0, 128);
+        int permits = arg(args, 1, 8);
+        int dbSlots = arg(args, 2, 8);
+        int baseMs = arg(args, 3, 2);
+        int slowMs = arg(args, 4, 10);
+        int phaseS = arg(args, 5, 15);
+        int sampleMs = arg(args, 6, 1000);
+        int minLimit = arg(args, 7, Math.max(1, permits / 2));
+
+        InjectedDatabase db = new InjectedDatabase(dbSlots, baseMs);
+        // db.admission.* and db.limits.* as in application.properties, whose floor of 1 is half the 2-connection pools
+        var limit = new AdaptiveConcurrencyLimit("injected", permits, minLimit, permits, 2.0, 0.9, Duration.ofSeconds(10));
+        var ds = new AdmissionControlledDataSource(db.dataSource(), "injected", permits, 256,
+                Duration.ofSeconds(4), limit, new SimpleMeterRegistry());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong queries = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        Thread[] threads = new Thread[callers];
+        for (int i = 0; i < callers; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    try (Connection c = ds.getConnection()) {
+                        db.query();
+                        queries.incrementAndGet();
+                    } catch (SQLException ex) {
+                        rejected.incrementAndGet();
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                }
+            });
+        }
+
+        System.out.printf("callers=%d permits=%d db-slots=%d min-limit=%d%n", callers, permits, dbSlots, minLimit);
+        System.out.println("  t(s)  injected  limit  inflight  shortRtt  longRtt  queries/s  rejected/s");
+        long start = System.nanoTime();
+        int[] phases = {baseMs, slowMs, baseMs};
+        int[] lowest = new int[phases.length];
+        int[] last = new int[phases.length];
+        for (int phase = 0; phase < phases.length; phase++) {
+            int latency = phases[phase];
+            db.latencyMs = latency;
+            lowest[phase] = Integer.MAX_VALUE;
+            long phaseEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(phaseS);
+            while (System.nanoTime() < phaseEnd) {
+                long q0 = queries.get(), r0 = rejected.get();
+                Thread.sleep(sampleMs);
+                double perS = 1000.0 / sampleMs;
+                int now = limit.getLimit();
+                System.out.printf("%6.1f  %6d ms  %5d  %8d  %5.1f ms  %4.1f ms  %9.0f  %10.0f%n",
+                        (System.nanoTime() - start) / 1e9, latency, now, limit.getInflight(),
+                        limit.getShortRtt(TimeUnit.MILLISECONDS), limit.getLongRtt(TimeUnit.MILLISECONDS),
+                        (queries.get() - q0) * perS, (rejected.get() - r0) * perS);
+                lowest[phase] = Math.min(lowest[phase], now);
+                last[phase] = now;
+            }
+        }
+        running.set(false);
+        for (Thread t : threads) t.join();
+
+        check(last[0] == permits, "limit at " + permits + " while steady, ended at " + last[0]);
+        check(lowest[1] < permits, "limit fell below " + permits + " once slowed, lowest was " + lowest[1]);
+        check(last[2] == permits, "limit back at " + permits + " after recovery, ended at " + last[2]);
+        check(rejected.get() == 0, "no caller turned away, " + rejected.get() + " were");
+        System.out.println("OK");
+    }
+
+    private static void check(boolean ok, String expectation) {
+        if (!ok) throw new AssertionError("expected " + expectation);
+    }
+
+    private static int arg(String[] args, int i, int fallback) {
+        return args.length > i ? Integer.parseInt(args[i]) : fallback;
+    }
+
+    /**
+     * A database with a fixed number of query slots; a query holds a slot for the injected latency.
+     */
+    private static final class InjectedDatabase {
+        private final Semaphore slots;
+        volatile int latencyMs;
+
+        InjectedDatabase(int slots, int latencyMs) {
+            this.slots = new Semaphore(slots, true);
+            this.latencyMs = latencyMs;
+        }
+
+        void query() {
+            slots.acquireUninterruptibly();
+            try {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+            } finally {
+                slots.release();
+            }
+        }
+
+        DataSource dataSource() {
+            Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isClosed" -> false;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+            return new DataSource() {
+                @Override
+                public Connection getConnection() {
+                    return connection;
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) {
+                    return connection;
+                }
+
+                @Override
+                public PrintWriter getLogWriter() {
+                    return null;
+                }
+
+                @Override
+                public void setLogWriter(PrintWriter out) {
+                }
+
+                @Override
+                public void setLoginTimeout(int seconds) {
+                }
+
+                @Override
+                public int getLoginTimeout() {
+                    return 0;
+                }
+
+                @Override
+                public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+                    throw new SQLFeatureNotSupportedException();
+                }
+
+                @Override
+                public <T> T unwrap(Class<T> iface) throws SQLException {
+                    throw new SQLException("not a wrapper");
+                }
+
+                @Override
+                public boolean isWrapperFor(Class<?> iface) {
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded order shapes modelled on the seed data: most orders ask for one or two jar sizes,
+ * 400 ml jars dominate, quantities are log-normal around a couple of crates and a small
+ * share of bulk orders asks for thousands of jars.
+ */
+public enum OrderDistribution {
+    TYPICAL(0.02),
+    BULK(0.30);
+
+    private static final JarType[] SIZES = {JarType.JAR200, JarType.JAR400, JarType.JAR800};
+    private static final double[] SIZE_WEIGHTS = {0.30, 0.50, 0.20};
+
+    private final double bulkShare;
+
+    OrderDistribution(double bulkShare) {
+        this.bulkShare = bulkShare;
+    }
+
+    List<JarQuantities> orders(int count, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        List<JarQuantities> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean bulk = rnd.nextDouble() < bulkShare;
+            int kinds = 1 + (rnd.nextDouble() < 0.55 ? 0 : rnd.nextDouble() < 0.7 ? 1 : 2);
+            EnumMap<JarType, Integer> jars = new EnumMap<>(JarType.class);
+            while (jars.size() < kinds) {
+                jars.putIfAbsent(pickSize(rnd), quantity(rnd, bulk));
+            }
+            out.add(JarQuantities.from(jars));
+        }
+        return out;
+    }
+
+    /**
+     * Rows shaped like {@code SELECT order_number, honey_type, jar_type, quantity FROM public.orders}.
+     */
+    List<Map<String, Object>> orderRows(int count, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        HoneyType[] honeys = HoneyType.values();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int orderNumber = 0;
+        for (JarQuantities jars : orders(count, seed)) {
+            int number = ++orderNumber;
+            HoneyType honey = honeys[rnd.nextInt(honeys.length)];
+            jars.forEach((jt, q) -> {
+                Map<String, Object> row = new HashMap<>();
+                row.put("order_number", number);
+                row.put("honey_type", honey.name());
+                row.put("jar_type", jt.name());
+                row.put("quantity", q);
+                rows.add(row);
+            });
+        }
+        return rows;
+    }
+
+    static PackagingSnapshot snapshot(int jarsPerType, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        Map<JarType, StockRow> jars = new EnumMap<>(JarType.class);
+        Map<LabelType, StockRow> labels = new EnumMap<>(LabelType.class);
+        Map<CrateType, StockRow> crates = new EnumMap<>(CrateType.class);
+        for (JarType jt : JarType.values()) {
+            jars.put(jt, new StockRow(rnd.nextInt(1000), spread(rnd, jarsPerType)));
+        }
+        for (LabelType lt : LabelType.values()) {
+            labels.put(lt, new StockRow(rnd.nextInt(1000), spread(rnd, jarsPerType)));
+        }
+        for (CrateType ct : CrateType.values()) {
+            crates.put(ct, new StockRow(rnd.nextInt(1000), spread(rnd, jarsPerType / 24)));
+        }
+        return new PackagingSnapshot(jars, labels, crates);
+    }
+
+    private static int spread(SplittableRandom rnd, int around) {
+        return Math.max(0, (int) (around * (0.5 + rnd.nextDouble())));
+    }
+
+    private static JarType pickSize(SplittableRandom rnd) {
+        double p = rnd.nextDouble();
+        for (int i = 0; i < SIZES.length; i++) {
+            p -= SIZE_WEIGHTS[i];
+            if (p <= 0) return SIZES[i];
+        }
+        return SIZES[SIZES.length - 1];
+    }
+
+    private static int quantity(SplittableRandom rnd, boolean bulk) {
+        double median = bulk ? 1200 : 24;
+        double gaussian = Math.sqrt(-2 * Math.log(1 - rnd.nextDouble())) * Math.cos(2 * Math.PI * rnd.nextDouble());
+        return (int) Math.clamp(Math.round(median * Math.exp(0.8 * gaussian)), 1, bulk ? 10_000 : 500);
+    }
+}
@@ -0,0 +1,49 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.services.OrderGrouping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The startup runner's group-by over the raw {@code public.orders} rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class OrderGroupingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int orders;
+
+    @Param({"TYPICAL", "BULK"})
+    public OrderDistribution distribution;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = distribution.orderRows(orders, 42);
+    }
+
+    @Benchmark
+    public OrderGrouping.Grouped group() {
+        return OrderGrouping.group(rows);
+    }
+}
@@ -0,0 +1,104 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.services.ReservationPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Method names are unchanged from the {@code Map<JarType, Integer>} planner, so
+ * {@code gc.alloc.rate.norm} in {@code jmh-result.json} compares directly across that change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class ReservationPlannerBenchmark {
+
+    private static final int ORDERS = 1024;
+
+    @Param({"TYPICAL", "BULK"})
+    public OrderDistribution distribution;
+
+    /**
+     * Share of the requested kg that survives the honey and packaging caps; 1.0 short-circuits
+     * the scale-down, lower values exercise the greedy top-up loop.
+     */
+    @Param({"1.0", "0.6"})
+    public double fillRatio;
+
+    private List<JarQuantities> orders;
+    private BigDecimal[] targets;
+    private PackagingSnapshot snapshot;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = distribution.orders(ORDERS, 42);
+        snapshot = OrderDistribution.snapshot(2_000, 7);
+        targets = new BigDecimal[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            targets[i] = orders.get(i).kg()
+                    .multiply(BigDecimal.valueOf(fillRatio));
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) & (ORDERS - 1);
+        return i;
+    }
+
+    @Benchmark
+    public BigDecimal jarsToKg() {
+        return orders.get(next()).kg();
+    }
+
+    @Benchmark
+    public ReservationPlanner.Caps capsFromSnapshot() {
+        return ReservationPlanner.capsFromSnapshot(orders.get(next()), snapshot);
+    }
+
+    @Benchmark
+    public JarQuantities reduceJarsToTargetKg() {
+        int i = next();
+        return orders.get(i).reducedToKg(targets[i]);
+    }
+
+    @Benchmark
+    public String fmtJarBreakdown() {
+        return ReservationPlanner.fmtJarBreakdown(orders.get(next()));
+    }
+
+    /**
+     * The CPU part of one reservation as the orchestrator runs it between loading inputs and
+     * the first write.
+     */
+    @Benchmark
+    public JarQuantities planOrder() {
+        int i = next();
+        JarQuantities requested = orders.get(i);
+        BigDecimal needKg = requested.kg();
+        ReservationPlanner.Caps caps = ReservationPlanner.capsFromSnapshot(requested, snapshot);
+        BigDecimal target = needKg.min(targets[i]).min(caps.jarsKg()).min(caps.labelsKg()).min(caps.cratesKg());
+        JarQuantities approved = requested.reducedToKg(target);
+        return approved.reducedToKg(approved.kg());
+    }
+}
@@ -0,0 +1,179 @@
+package com.marianbastiurea.benchmarks;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.services.ExhaustionIndex;
+import com.marianbastiurea.domain.services.HoldLedger;
+import com.marianbastiurea.domain.services.ReservationListener;
+import com.marianbastiurea.domain.services.ReservationMetrics;
+import com.marianbastiurea.domain.services.ReservationOrchestrator;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import com.marianbastiurea.domain.services.ReservationScheduler;
+import com.marianbastiurea.infrastructure.memory.InMemoryCrateRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryHoneyRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryJarRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryLabelRepo;
+import com.marianbastiurea.infrastructure.memory.SimulatedLatency;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuards;
+import com.marianbastiurea.infrastructure.resilience.HedgedReads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Skewed load through {@link ReservationScheduler} against the same load behind a fair FIFO
+ * {@link Semaphore} with as many permits as the scheduler has slots. The orchestrator is a stub
+ * whose {@code reserveFor} parks for {@code 1 ms + 0.05 ms per kg}, so large orders hold a slot
+ * longer, as they hold packaging connections longer in production.
+ * <p>
+ * {@code large-share} of the orders are large {@code FALSE_INDIGO} orders (80–240 kg), a tenth are
+ * mid-sized orders of the other types and the rest are small enough for the priority lane. Orders
+ * arrive 50 every millisecond, faster than {@code slots} can serve them, so a queue builds. Prints
+ * the end-to-end latency of small and large orders for both admission policies, plus the
+ * scheduler's {@code reservation.scheduler.wait} per lane. The small-order p99 is the figure the
+ * scheduler is there for; the large-order figures show what it costs them. Not a JMH benchmark;
+ * run it on its own:
+ * <pre>
+ *   java --enable-preview -cp target/benchmarks.jar com.marianbastiurea.benchmarks.SchedulerFairness \
+ *        [orders=20000] [slots=16] [large-share=0.8]
+ * </pre>
+ */
+public final class SchedulerFairness {
+
+    private static final double SMALL_KG = 10;
+    private static final double QUANTUM_KG = 50;
+    private static final int SMALL_BURST = 8;
+    private static final int ARRIVALS_PER_MS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int slots = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        double largeShare = args.length > 2 ? Double.parseDouble(args[2]) : 0.8;
+
+        List<Order> stream = skewed(orders, largeShare);
+        System.out.printf("%d order(s), %d slot(s), %.0f%% large FALSE_INDIGO%n", orders, slots, largeShare * 100);
+
+        Semaphore fifo = new Semaphore(slots, true);
+        StubOrchestrator direct = new StubOrchestrator(new SimpleMeterRegistry());
+        run("fifo", stream, order -> {
+            fifo.acquireUninterruptibly();
+            try {
+                return direct.reserveFor(order);
+            } finally {
+                fifo.release();
+            }
+        });
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ReservationScheduler scheduler = new ReservationScheduler(new StubOrchestrator(registry), registry,
+                true, slots, QUANTUM_KG, "", SMALL_KG, SMALL_BURST);
+        run("scheduler", stream, scheduler::reserveFor);
+        for (Timer t : registry.find("reservation.scheduler.wait").timers()) {
+            if (t.count() == 0) continue;
+            System.out.printf("  wait %-12s n=%6d mean=%8.1f max=%8.1f ms%n", t.getId().getTag("lane"),
+                    t.count(), t.mean(TimeUnit.MILLISECONDS), t.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static void run(String name, List<Order> stream, Function<Order, ReservationResult> reserve) {
+        long[] latency = new long[stream.size()];
+        long t0 = System.nanoTime();
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < stream.size(); i++) {
+                int slot = i;
+                Order order = stream.get(i);
+                exec.submit(() -> {
+                    long s0 = System.nanoTime();
+                    reserve.apply(order);
+                    latency[slot] = System.nanoTime() - s0;
+                });
+                if (i % ARRIVALS_PER_MS == ARRIVALS_PER_MS - 1) LockSupport.parkNanos(1_000_000);
+            }
+        }
+        System.out.printf("%s: %d ms%n", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+        print("small", stream, latency, true);
+        print("large", stream, latency, false);
+    }
+
+    private static void print(String label, List<Order> stream, long[] latency, boolean small) {
+        long[] picked = new long[stream.size()];
+        int n = 0;
+        for (int i = 0; i < stream.size(); i++) {
+            if (isSmall(stream.get(i)) == small) picked[n++] = latency[i];
+        }
+        if (n == 0) return;
+        long[] sorted = Arrays.copyOf(picked, n);
+        Arrays.sort(sorted);
+        System.out.printf("  %-5s n=%6d p50=%8.1f p99=%8.1f max=%8.1f ms%n", label, n,
+                sorted[n / 2] / 1e6, sorted[Math.min(n - 1, (int) (n * 0.99))] / 1e6, sorted[n - 1] / 1e6);
+    }
+
+    private static boolean isSmall(Order order) {
+        return order.jarQuantities().kg().doubleValue() <= SMALL_KG;
+    }
+
+    private static List<Order> skewed(int orders, double largeShare) {
+        SplittableRandom rnd = new SplittableRandom(1);
+        HoneyType[] honeys = HoneyType.values();
+        List<Order> out = new ArrayList<>(orders);
+        for (int i = 1; i <= orders; i++) {
+            double r = rnd.nextDouble();
+            Order order;
+            if (r < largeShare) {
+                order = new Order(HoneyType.FALSE_INDIGO, JarQuantities.of(JarType.JAR800, 100 + rnd.nextInt(200)), i);
+            } else if (r < largeShare + 0.1) {
+                HoneyType honey = honeys[rnd.nextInt(honeys.length)];
+                if (honey == HoneyType.FALSE_INDIGO) honey = HoneyType.ACACIA;
+                order = new Order(honey, JarQuantities.of(JarType.JAR800, 20 + rnd.nextInt(60)), i);
+            } else {
+                order = new Order(honeys[rnd.nextInt(honeys.length)], JarQuantities.of(JarType.JAR400, 1 + rnd.nextInt(15)), i);
+            }
+            out.add(order);
+        }
+        return out;
+    }
+
+    /**
+     * Holds the caller for a time that grows with the order's kilograms and reserves nothing; the
+     * repositories behind it are only there to satisfy the constructor.
+     */
+    private static final class StubOrchestrator extends ReservationOrchestrator {
+
+        StubOrchestrator(MeterRegistry registry) {
+            this(registry, Thread.ofVirtual().name("stub-", 0).factory(), new SimulatedLatency(0, 0, 0));
+        }
+
+        private StubOrchestrator(MeterRegistry registry, ThreadFactory vt, SimulatedLatency latency) {
+            super(new InMemoryHoneyRepo(BigDecimal.ZERO, 5, latency, registry), new InMemoryJarRepo(0, latency),
+                    new InMemoryCrateRepo(0, latency), new InMemoryLabelRepo(0, latency),
+                    new TransactionTemplate(), new TransactionTemplate(), new TransactionTemplate(), vt,
+                    new DependencyGuards(registry, 64, 50, 5, 10_000, 2_000, 2),
+                    new HedgedReads(vt, registry, false, 0.95, 20), new ReservationMetrics(registry),
+                    new HoldLedger(), new ExhaustionIndex(registry, false, 1_000),
+                    new DefaultListableBeanFactory().getBeanProvider(ReservationListener.class), 3_000, 32);
+        }
+
+        @Override
+        public ReservationResult reserveFor(Order order) {
+            LockSupport.parkNanos((long) (1_000_000 + 50_000 * order.jarQuantities().kg().doubleValue()));
+            return ReservationResult.deferred("stub");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+#!/bin/bash
+# One database per RDS instance, with the tables the repositories expect.
+# final_stock is kept as initial_stock - delivered by trigger, as on the RDS instances.
+set -euo pipefail
+
+psql_in() {
+    psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$1"
+}
+
+final_stock_trigger() {
+    cat <<SQL
+CREATE OR REPLACE FUNCTION public.sync_final_stock() RETURNS trigger AS \$\$
+BEGIN
+    NEW.final_stock := GREATEST(NEW.initial_stock - NEW.delivered, 0);
+    RETURN NEW;
+END
+\$\$ LANGUAGE plpgsql;
+CREATE TRIGGER $1_final_stock BEFORE INSERT OR UPDATE ON public.$1
+    FOR EACH ROW EXECUTE FUNCTION public.sync_final_stock();
+SQL
+}
+
+for honey in acacia rapeseed linden sunflower wildflower falseindigo; do
+    echo "CREATE DATABASE $honey;" | psql_in postgres
+    {
+        cat <<SQL
+CREATE TABLE public.stock (
+    id            int PRIMARY KEY,
+    initial_stock numeric(12,3) NOT NULL,
+    ordered       numeric(12,3) NOT NULL DEFAULT 0,
+    delivered     numeric(12,3) NOT NULL DEFAULT 0,
+    final_stock   numeric(12,3) NOT NULL DEFAULT 0,
+    row_version   bigint        NOT NULL DEFAULT 0,
+    fence_epoch   bigint        NOT NULL DEFAULT 0,
+    last_updated  timestamptz   NOT NULL DEFAULT now()
+);
+CREATE TABLE public.processing_log (
+    id           bigserial PRIMARY KEY,
+    order_number int           NOT NULL,
+    requested_kg numeric(12,3) NOT NULL,
+    delivered_kg numeric(12,3) NOT NULL,
+    reason       text          NOT NULL,
+    created_at   timestamptz   NOT NULL DEFAULT now()
+);
+SQL
+        final_stock_trigger stock
+    } | psql_in "$honey"
+done
+
+for kind in jar label crate; do
+    db="${kind}s"
+    echo "CREATE DATABASE $db;" | psql_in postgres
+    {
+        cat <<SQL
+CREATE TABLE public.${kind}_stock (
+    ${kind}_type  text PRIMARY KEY,
+    initial_stock int         NOT NULL,
+    ordered       int         NOT NULL DEFAULT 0,
+    delivered     int         NOT NULL DEFAULT 0,
+    final_stock   int         NOT NULL DEFAULT 0,
+    row_version   bigint      NOT NULL DEFAULT 0,
+    last_updated  timestamptz NOT NULL DEFAULT now()
+);
+CREATE TABLE public.processing_log (
+    id            bigserial PRIMARY KEY,
+    order_number  int         NOT NULL,
+    ${kind}_type  text        NOT NULL,
+    requested_qty int         NOT NULL,
+    delivered_qty int         NOT NULL,
+    reason        text        NOT NULL,
+    created_at    timestamptz NOT NULL DEFAULT now()
+);
+SQL
+        final_stock_trigger "${kind}_stock"
+    } | psql_in "$db"
+done
+
+echo "CREATE DATABASE orders;" | psql_in postgres
+psql_in orders <<SQL
+CREATE TABLE public.orders (
+    id           bigserial PRIMARY KEY,
+    order_number int         NOT NULL,
+    honey_type   text        NOT NULL,
+    jar_type     text        NOT NULL,
+    quantity     int         NOT NULL,
+    status       text        NOT NULL DEFAULT 'PENDING',
+    claimed_by   text,
+    claimed_at   timestamptz,
+    attempts     int         NOT NULL DEFAULT 0,
+    processed_at timestamptz,
+    result       text,
+    claim_epoch  bigint      NOT NULL DEFAULT 0
+);
+CREATE INDEX orders_order_number_idx ON public.orders(order_number);
+CREATE INDEX orders_group_idx ON public.orders(order_number, honey_type, id);
+CREATE INDEX orders_open_idx ON public.orders(order_number, honey_type) WHERE status IN ('PENDING', 'CLAIMED');
+CREATE TABLE public.processing_log (
+    id            bigserial PRIMARY KEY,
+    order_number  int         NOT NULL,
+    honey_type    text        NOT NULL,
+    jar_type      text        NOT NULL,
+    requested_qty int         NOT NULL,
+    delivered_qty int         NOT NULL,
+    reason        text        NOT NULL,
+    created_at    timestamptz NOT NULL DEFAULT now()
+);
+CREATE TABLE public.run_checkpoint (
+    name         text        PRIMARY KEY,
+    order_number int         NOT NULL,
+    honey_type   text        NOT NULL,
+    updated_at   timestamptz NOT NULL DEFAULT now()
+);
+CREATE TABLE public.lease_member (
+    node       text        PRIMARY KEY,
+    expires_at timestamptz NOT NULL
+);
+CREATE TABLE public.partition_lease (
+    partition  text        PRIMARY KEY,
+    owner      text        NOT NULL,
+    expires_at timestamptz NOT NULL,
+    epoch      bigint      NOT NULL DEFAULT 1
+);
+CREATE TABLE public.stock_hold (
+    id           text          PRIMARY KEY,
+    owner        text          NOT NULL,
+    order_number int           NOT NULL,
+    honey_type   text          NOT NULL,
+    jars         jsonb         NOT NULL,
+    kg           numeric(12,3) NOT NULL,
+    status       text          NOT NULL DEFAULT 'ACTIVE',
+    created_at   timestamptz   NOT NULL DEFAULT now(),
+    expires_at   timestamptz   NOT NULL,
+    settled_at   timestamptz
+);
+CREATE INDEX stock_hold_active_idx ON public.stock_hold(owner, expires_at) WHERE status = 'ACTIVE';
+CREATE TABLE public.stock_hold_owner (
+    id         smallint    PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    owner      text        NOT NULL,
+    expires_at timestamptz NOT NULL
+);
+SQL
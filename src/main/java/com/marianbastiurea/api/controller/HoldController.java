@@ -0,0 +1,76 @@
+package com.marianbastiurea.api.controller;
+
+import com.marianbastiurea.api.dto.PlaceOrderRequest;
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.services.HoldService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/holds")
+@ConditionalOnProperty(name = "holds.enabled", havingValue = "true")
+public class HoldController {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldController.class);
+
+    private final HoldService holds;
+
+    public HoldController(HoldService holds) {
+        this.holds = holds;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> place(@RequestBody PlaceOrderRequest req,
+                                   @RequestParam(value = "ttlSeconds", required = false) Long ttlSeconds)
+            throws InterruptedException {
+        String invalid = req == null ? "body is required" : req.validationError();
+        if (invalid == null && ttlSeconds != null && ttlSeconds <= 0) invalid = "ttlSeconds must be > 0";
+        if (invalid != null) {
+            log.info("hold.place.invalid reason={}", invalid);
+            return ResponseEntity.badRequest().body(Map.of("error", invalid));
+        }
+        HoldService.Placed placed = holds.place(new Order(req.honeyType(), req.quantities(), req.orderNumber()),
+                ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds));
+        return placed.hold()
+                .<ResponseEntity<?>>map(h -> ResponseEntity.created(URI.create("/api/holds/" + h.id())).body(h))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Nothing left to hold (limited by " + placed.limitedBy() + ")")));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Hold> get(@PathVariable String id) {
+        return holds.find(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<?> confirm(@PathVariable String id) {
+        return holds.confirm(id)
+                .<ResponseEntity<?>>map(r -> r.success()
+                        ? ResponseEntity.ok(r)
+                        : ResponseEntity.status(r.deferred() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.CONFLICT)
+                        .body(r))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "No active hold " + id + " on this instance")));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> release(@PathVariable String id) {
+        return holds.release(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -1,18 +1,34 @@
 package com.marianbastiurea.api.controller;
 
 
+import com.marianbastiurea.api.dto.OrderStatusResponse;
+import com.marianbastiurea.api.dto.PlaceOrderRequest;
+import com.marianbastiurea.api.dto.WhatIfResponse;
 import com.marianbastiurea.domain.model.Order;
-import com.marianbastiurea.domain.services.OrderService;
+import com.marianbastiurea.domain.services.OrderIntake;
+import com.marianbastiurea.domain.services.OrderLookupCache;
+import com.marianbastiurea.domain.services.WhatIfPlanner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,32 +36,130 @@ public class OrderController {
 
     private static final Logger log = LoggerFactory.getLogger(OrderController.class);
 
-    private final OrderService orderService;
+    private final OrderLookupCache lookups;
+    private final OrderIntake intake;
+    private final WhatIfPlanner whatIf;
+    private final MeterRegistry registry;
+    private final int whatIfMaxOrders;
 
 
-    public OrderController(OrderService orderService) {
-        this.orderService = orderService;
+    public OrderController(OrderLookupCache lookups,
+                           OrderIntake intake,
+                           WhatIfPlanner whatIf,
+                           MeterRegistry registry,
+                           @Value("${orders.what-if.max-orders:10000}") int whatIfMaxOrders) {
+        this.lookups = lookups;
+        this.intake = intake;
+        this.whatIf = whatIf;
+        this.registry = registry;
+        this.whatIfMaxOrders = whatIfMaxOrders;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> place(@RequestBody PlaceOrderRequest req) {
+        String invalid = req == null ? "body is required" : req.validationError();
+        if (invalid != null) {
+            log.info("order.place.invalid reason={}", invalid);
+            return ResponseEntity.badRequest().body(Map.of("error", invalid));
+        }
+        Order order = new Order(req.honeyType(), req.quantities(), req.orderNumber());
+        return intake.submit(order)
+                .<ResponseEntity<?>>map(id -> {
+                    log.info("order.place.accepted order#{} [{}] id={}", order.orderNumber(), order.honeyType(), id);
+                    return ResponseEntity.accepted()
+                            .location(URI.create(statusUrl(id)))
+                            .body(toResponse(intake.status(id).orElseThrow()));
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", "1")
+                        .body(Map.of("error", "Order intake is full, retry later")));
+    }
+
+    @PostMapping("/what-if")
+    public ResponseEntity<?> whatIf(@RequestBody List<PlaceOrderRequest> orders) throws InterruptedException {
+        if (orders == null || orders.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "at least one order is required"));
+        }
+        if (orders.size() > whatIfMaxOrders) {
+            return ResponseEntity.badRequest().body(Map.of("error", "at most " + whatIfMaxOrders + " orders per call"));
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            PlaceOrderRequest req = orders.get(i);
+            String invalid = req == null ? "order is required" : req.validationError();
+            if (invalid != null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "orders[" + i + "]: " + invalid));
+            }
+        }
+        Timer.Sample sample = Timer.start(registry);
+        WhatIfResponse result = whatIf.evaluate(orders);
+        long tookNanos = sample.stop(Timer.builder("orders.what_if")
+                .description("Dry-run planning of an order batch")
+                .register(registry));
+        log.info("order.what_if orders={} tookMs={}", orders.size(), tookNanos / 1_000_000);
+        return ResponseEntity.ok(result);
+    }
 
+    @GetMapping("/requests/{id}")
+    public ResponseEntity<OrderStatusResponse> status(@PathVariable String id) {
+        return intake.status(id)
+                .map(t -> ResponseEntity.ok(toResponse(t)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/number/{orderNumber}")
-    public ResponseEntity<List<Order>> getByOrderNumber(@PathVariable Integer orderNumber) {
+    public ResponseEntity<List<Order>> getByOrderNumber(@PathVariable Integer orderNumber,
+                                                        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         MDC.put("orderNumber", String.valueOf(orderNumber));
         log.info("order.get.request");
-        long t0 = System.nanoTime();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
         try {
-            List<Order> found = orderService.findByOrderNumber(orderNumber);
-            long tookMs = (System.nanoTime() - t0) / 1_000_000;
+            Optional<OrderLookupCache.Entry> found = lookups.lookup(orderNumber);
 
-            if (found == null || found.isEmpty()) {
+            if (found.isEmpty()) {
+                outcome = "not_found";
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(found);
+            String etag = found.get().etag();
+            if (matches(ifNoneMatch, etag)) {
+                outcome = "not_modified";
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            outcome = "found";
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(found.get().orders());
         } catch (Exception e) {
             log.error("order.get.failure", e);
             throw e;
         } finally {
+            long tookNanos = sample.stop(Timer.builder("orders.lookup")
+                    .description("Order lookup by order number")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            log.info("order.get.done outcome={} tookMs={}", outcome, tookNanos / 1_000_000);
             MDC.remove("orderNumber");
         }
     }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static String statusUrl(String id) {
+        return "/api/orders/requests/" + id;
+    }
+
+    private static OrderStatusResponse toResponse(OrderIntake.Tracked t) {
+        return new OrderStatusResponse(t.id(), t.orderNumber(), t.honeyType(), t.status(), t.note(), t.updatedAt(),
+                statusUrl(t.id()));
+    }
 }
@@ -0,0 +1,37 @@
+package com.marianbastiurea.api.controller;
+
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.api.stream.StockStreamHub;
+import com.marianbastiurea.domain.services.StockOverview;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stock")
+public class StockController {
+
+    private final StockOverview overview;
+    private final StockStreamHub stream;
+
+    public StockController(StockOverview overview, StockStreamHub stream) {
+        this.overview = overview;
+        this.stream = stream;
+    }
+
+    @GetMapping
+    public ResponseEntity<StockOverviewResponse> get() throws InterruptedException {
+        return ResponseEntity.ok(overview.current());
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        return stream.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build());
+    }
+}
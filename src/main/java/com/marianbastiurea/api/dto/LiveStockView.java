@@ -0,0 +1,21 @@
+package com.marianbastiurea.api.dto;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+public record LiveStockView(
+        Instant asOf,
+        long revision,
+        Map<HoneyType, BigDecimal> honeyKg,
+        Map<JarType, Integer> jars,
+        Map<LabelType, Integer> labels,
+        Map<CrateType, Integer> crates,
+        double reservationsPerSec,
+        double kgPerSec) {
+}
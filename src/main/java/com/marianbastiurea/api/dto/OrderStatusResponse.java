@@ -0,0 +1,16 @@
+package com.marianbastiurea.api.dto;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.OrderRecord;
+
+import java.time.Instant;
+
+public record OrderStatusResponse(
+        String id,
+        Integer orderNumber,
+        HoneyType honeyType,
+        OrderRecord.Status status,
+        String note,
+        Instant updatedAt,
+        String statusUrl) {
+}
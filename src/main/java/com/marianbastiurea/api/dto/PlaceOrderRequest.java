@@ -2,12 +2,39 @@ package com.marianbastiurea.api.dto;
 
 import com.marianbastiurea.domain.enums.HoneyType;
 import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
 
 import java.util.Map;
 
+/**
+ * The body of an order as posted. Jar counts stay a map here so {@link #validationError()} can
+ * name a bad entry in the {@code {"error": ...}} body; {@link #quantities()} converts them once
+ * the request is valid.
+ */
 public record PlaceOrderRequest(
         HoneyType honeyType,
         Map<JarType, Integer> jarQuantities,
         Integer orderNumber
 ) {
+
+    /**
+     * @return why the request cannot be placed, or {@code null} when it is valid
+     */
+    public String validationError() {
+        if (orderNumber == null || orderNumber <= 0) return "orderNumber must be > 0";
+        if (honeyType == null) return "honeyType is required";
+        if (jarQuantities == null || jarQuantities.isEmpty()) return "jarQuantities must not be empty";
+        for (Map.Entry<JarType, Integer> e : jarQuantities.entrySet()) {
+            if (e.getKey() == null) return "jarQuantities has an unknown jar type";
+            if (e.getValue() == null || e.getValue() <= 0) return "quantity for " + e.getKey() + " must be > 0";
+        }
+        return null;
+    }
+
+    /**
+     * The jar counts of a request that passed {@link #validationError()}.
+     */
+    public JarQuantities quantities() {
+        return JarQuantities.from(jarQuantities);
+    }
 }
@@ -0,0 +1,25 @@
+package com.marianbastiurea.api.dto;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stock across all nine databases. {@code stale} names the sources (e.g. {@code acacia},
+ * {@code jars}) that did not answer within the deadline; their values are the last ones seen,
+ * or absent when there never was one.
+ */
+public record StockOverviewResponse(
+        Instant asOf,
+        Map<HoneyType, BigDecimal> honeyKg,
+        Map<JarType, Integer> jars,
+        Map<LabelType, Integer> labels,
+        Map<CrateType, Integer> crates,
+        Set<String> stale) {
+}
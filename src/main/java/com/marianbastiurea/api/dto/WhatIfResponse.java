@@ -0,0 +1,42 @@
+package com.marianbastiurea.api.dto;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.JarQuantities;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dry-run result for a batch of orders, evaluated in request order against one stock snapshot
+ * taken at {@code snapshotAt}. {@code stale} lists sources whose values were older than that.
+ */
+public record WhatIfResponse(
+        Instant snapshotAt,
+        Set<String> stale,
+        List<Line> orders,
+        Leftover leftover) {
+
+    public record Line(
+            Integer orderNumber,
+            HoneyType honeyType,
+            JarQuantities requestedJars,
+            JarQuantities approvedJars,
+            BigDecimal requestedKg,
+            BigDecimal approvedKg,
+            LimitingResource limitedBy) {
+    }
+
+    public record Leftover(
+            Map<HoneyType, BigDecimal> honeyKg,
+            Map<JarType, Integer> jars,
+            Map<LabelType, Integer> labels,
+            Map<CrateType, Integer> crates) {
+    }
+}
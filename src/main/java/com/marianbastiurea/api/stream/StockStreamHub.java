@@ -0,0 +1,171 @@
+package com.marianbastiurea.api.stream;
+
+import com.marianbastiurea.api.dto.LiveStockView;
+import com.marianbastiurea.domain.services.LiveStock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pushes {@link LiveStock} views to SSE subscribers. One ticker builds at most one view per
+ * {@code stock.stream.interval-ms} and hands it to every subscriber's single-slot mailbox; each
+ * subscriber has its own virtual thread that writes the mailbox to its connection. A subscriber
+ * that is still writing when the next view arrives simply gets the newer one (drop-to-latest),
+ * so a slow client never holds up the others or queues memory.
+ */
+@Component
+public class StockStreamHub implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(StockStreamHub.class);
+
+    private final LiveStock liveStock;
+    private final ThreadFactory vtFactory;
+    private final Duration interval;
+    private final Duration heartbeat;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+    private volatile boolean running;
+    private Thread ticker;
+
+    public StockStreamHub(LiveStock liveStock,
+                          @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                          MeterRegistry registry,
+                          @Value("${stock.stream.interval-ms:500}") long intervalMs,
+                          @Value("${stock.stream.heartbeat-ms:15000}") long heartbeatMs,
+                          @Value("${stock.stream.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${stock.stream.max-subscribers:5000}") int maxSubscribers) {
+        this.liveStock = requireNonNull(liveStock, "liveStock");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.interval = Duration.ofMillis(intervalMs);
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.dropped = Counter.builder("stock.stream.dropped")
+                .description("Views replaced before a slow subscriber sent them")
+                .register(registry);
+        Gauge.builder("stock.stream.subscribers", subscribers, Set::size)
+                .register(registry);
+    }
+
+    /**
+     * @return the emitter for a new subscriber, or empty when {@code max-subscribers} is reached
+     */
+    public Optional<SseEmitter> subscribe() {
+        if (!running || subscribers.size() >= maxSubscribers) return Optional.empty();
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber sub = new Subscriber(emitter);
+        subscribers.add(sub);
+        emitter.onCompletion(sub::close);
+        emitter.onTimeout(sub::close);
+        emitter.onError(e -> sub.close());
+        sub.offer(liveStock.view());
+        sub.thread = vtFactory.newThread(sub::pump);
+        sub.thread.start();
+        return Optional.of(emitter);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        ticker = vtFactory.newThread(this::tick);
+        ticker.start();
+        log.info("[stream] Stock stream up: interval={} ms, maxSubscribers={}", interval.toMillis(), maxSubscribers);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(ticker);
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void tick() {
+        long lastRevision = -1;
+        long lastSecond = -1;
+        while (running) {
+            LockSupport.parkNanos(interval.toNanos());
+            if (!running || subscribers.isEmpty()) continue;
+            long revision = liveStock.revision();
+            long second = System.currentTimeMillis() / 1000;
+            // throughput moves every second even without new commits
+            if (revision == lastRevision && second == lastSecond) continue;
+            lastRevision = revision;
+            lastSecond = second;
+            LiveStockView view = liveStock.view();
+            subscribers.forEach(s -> s.offer(view));
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicReference<LiveStockView> mailbox = new AtomicReference<>();
+        private volatile Thread thread;
+        private volatile boolean open = true;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(LiveStockView view) {
+            if (mailbox.getAndSet(view) != null) dropped.increment();
+            Thread t = thread;
+            if (t != null) LockSupport.unpark(t);
+        }
+
+        void pump() {
+            long lastSent = System.nanoTime();
+            while (open && running) {
+                LiveStockView view = mailbox.getAndSet(null);
+                try {
+                    if (view != null) {
+                        emitter.send(SseEmitter.event().name("stock").id(Long.toString(view.revision())).data(view));
+                        lastSent = System.nanoTime();
+                    } else if (System.nanoTime() - lastSent >= heartbeat.toNanos()) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                        lastSent = System.nanoTime();
+                    } else {
+                        LockSupport.parkNanos(heartbeat.toNanos());
+                    }
+                } catch (Exception ex) {
+                    emitter.completeWithError(ex);
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            open = false;
+            subscribers.remove(this);
+            Thread t = thread;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.marianbastiurea.config;
+
+import com.marianbastiurea.infrastructure.jdbc.AdmissionControlledDataSource;
+import com.marianbastiurea.infrastructure.jdbc.ReplicaLagMonitor;
+import com.marianbastiurea.infrastructure.jdbc.ReplicaRoutingDataSource;
+import com.marianbastiurea.infrastructure.resilience.AdaptiveConcurrencyLimit;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class DataSourceWrappingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceWrappingConfig.class);
+
+    @Bean
+    static BeanPostProcessor dataSourceWrappingPostProcessor(Environment env,
+                                                             ObjectProvider<MeterRegistry> registry) {
+        return new DataSourceWrapper(env, registry);
+    }
+
+    static final class DataSourceWrapper implements BeanPostProcessor {
+
+        private final Environment env;
+        private final ObjectProvider<MeterRegistry> registry;
+
+        private final boolean admissionEnabled;
+        private final int maxQueue;
+        private final long maxWaitMs;
+        private final boolean limitsEnabled;
+        private final int minLimit;
+        private final double tolerance;
+        private final double backoff;
+        private final long baselineMs;
+        private final long replicaMaxLagMs;
+        private final long replicaCheckMs;
+
+        DataSourceWrapper(Environment env, ObjectProvider<MeterRegistry> registry) {
+            this.env = env;
+            this.registry = registry;
+            this.admissionEnabled = env.getProperty("db.admission.enabled", Boolean.class, true);
+            this.maxQueue = env.getProperty("db.admission.max-queue", Integer.class, 256);
+            this.maxWaitMs = env.getProperty("db.admission.max-wait-ms", Long.class, 4000L);
+            this.limitsEnabled = env.getProperty("db.limits.enabled", Boolean.class, true);
+            this.minLimit = env.getProperty("db.limits.min", Integer.class, 1);
+            this.tolerance = env.getProperty("db.limits.tolerance", Double.class, 2.0);
+            this.backoff = env.getProperty("db.limits.backoff", Double.class, 0.9);
+            this.baselineMs = env.getProperty("db.limits.baseline-ms", Long.class, 10000L);
+            this.replicaMaxLagMs = env.getProperty("db.replica.max-lag-ms", Long.class, 5000L);
+            this.replicaCheckMs = env.getProperty("db.replica.lag-check-ms", Long.class, 1000L);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof HikariDataSource hikari)) {
+                return bean;
+            }
+            DataSource primary = admit(hikari, hikari.getPoolName() != null ? hikari.getPoolName() : beanName);
+
+            String group = beanName.endsWith("Ds") ? beanName.substring(0, beanName.length() - 2) : beanName;
+            String replicaPrefix = "rds." + group + ".replica";
+            if (!env.containsProperty(replicaPrefix + ".jdbc-url")) {
+                return primary;
+            }
+
+            HikariDataSource replicaHikari = Binder.get(env)
+                    .bind(replicaPrefix, Bindable.ofInstance(new HikariDataSource()))
+                    .orElseThrow(() -> new IllegalStateException("Cannot bind " + replicaPrefix));
+            if (replicaHikari.getPoolName() == null) {
+                replicaHikari.setPoolName("hikari-" + group + "-replica");
+            }
+            DataSource replica = admit(replicaHikari, replicaHikari.getPoolName());
+
+            var lag = new ReplicaLagMonitor(group, replica,
+                    Duration.ofMillis(replicaMaxLagMs), Duration.ofMillis(replicaCheckMs));
+            Gauge.builder("db.replica.lag", lag, ReplicaLagMonitor::getLagMs)
+                    .baseUnit("milliseconds")
+                    .tag("pool", replicaHikari.getPoolName())
+                    .register(registry.getObject());
+
+            log.info("Read replica configured for '{}' (pool={}, maxLag={} ms).",
+                    group, replicaHikari.getPoolName(), replicaMaxLagMs);
+            return new ReplicaRoutingDataSource(primary, replica, lag);
+        }
+
+        private DataSource admit(HikariDataSource hikari, String name) {
+            if (hikari.getMetricsTrackerFactory() == null && hikari.getMetricRegistry() == null) {
+                hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry.getObject()));
+            }
+            if (!admissionEnabled) {
+                return hikari;
+            }
+            int poolSize = hikari.getMaximumPoolSize();
+            // the limit counts callers holding a connection, so it starts at and never exceeds the pool size
+            AdaptiveConcurrencyLimit limit = limitsEnabled
+                    ? new AdaptiveConcurrencyLimit(name, poolSize, Math.clamp(minLimit, 1, poolSize), poolSize,
+                    tolerance, backoff, Duration.ofMillis(baselineMs))
+                    : null;
+            log.debug("Wrapping DataSource '{}' with admission control.", name);
+            return new AdmissionControlledDataSource(
+                    hikari,
+                    name,
+                    poolSize,
+                    maxQueue,
+                    Duration.ofMillis(maxWaitMs),
+                    limit,
+                    registry.getObject());
+        }
+    }
+}
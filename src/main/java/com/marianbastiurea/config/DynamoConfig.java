@@ -5,8 +5,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
@@ -15,12 +18,19 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
 import java.net.URI;
 
 @Configuration(proxyBeanMethods = false)
+@Profile("!simulation")
 public class DynamoConfig {
 
     private static final Logger log = LoggerFactory.getLogger(DynamoConfig.class);
 
     @Bean
-    public AwsCredentialsProvider awsCredentialsProvider() {
+    public AwsCredentialsProvider awsCredentialsProvider(
+            @Value("${aws.credentials.access-key-id:}") String accessKeyId,
+            @Value("${aws.credentials.secret-access-key:}") String secretAccessKey) {
+        if (!accessKeyId.isBlank()) {
+            log.info("Using static AWS credentials (accessKeyId={})", accessKeyId);
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKeyId, secretAccessKey));
+        }
         return DefaultCredentialsProvider.create();
     }
 
@@ -0,0 +1,32 @@
+package com.marianbastiurea.config;
+
+import com.marianbastiurea.infrastructure.jfr.PinnedThreadRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+@Profile("jfr")
+public class FlightRecorderConfig {
+
+    @Bean(destroyMethod = "close")
+    public PinnedThreadRecorder pinnedThreadRecorder(
+            @Value("${jfr.pinned.threshold-ms:20}") long pinnedThresholdMs,
+            @Value("${jfr.recording.max-age-minutes:30}") long maxAgeMinutes,
+            @Value("${jfr.recording.max-size-mb:256}") long maxSizeMb,
+            @Value("${jfr.recording.dump-file:}") String dumpFile,
+            MeterRegistry registry
+    ) throws Exception {
+        return new PinnedThreadRecorder(
+                Duration.ofMillis(pinnedThresholdMs),
+                Duration.ofMinutes(maxAgeMinutes),
+                maxSizeMb * 1024 * 1024,
+                dumpFile.isBlank() ? null : Path.of(dumpFile),
+                registry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.marianbastiurea.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.ExhaustionIndex;
+import com.marianbastiurea.domain.services.OrderLookupCache;
+import com.marianbastiurea.domain.services.ReservationScheduler;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuards;
+import com.marianbastiurea.loadtest.LoadTestReport;
+import com.marianbastiurea.loadtest.LoadTestRunner;
+import com.marianbastiurea.loadtest.LoadTestSeeder;
+import com.marianbastiurea.loadtest.LoadTestSettings;
+import com.marianbastiurea.loadtest.StockSeeder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+@Configuration(proxyBeanMethods = false)
+@Profile({"loadtest", "simulation"})
+public class LoadTestConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestConfig.class);
+
+    @Bean
+    @Profile("loadtest")
+    public LoadTestSeeder loadTestSeeder(ApplicationContext ctx,
+                                         @Qualifier("jarsTpl") NamedParameterJdbcTemplate jarsTpl,
+                                         @Qualifier("labelsTpl") NamedParameterJdbcTemplate labelsTpl,
+                                         @Qualifier("cratesTpl") NamedParameterJdbcTemplate cratesTpl,
+                                         @Qualifier("ordersTpl") NamedParameterJdbcTemplate ordersTpl,
+                                         DynamoDbClient dynamo,
+                                         OrderLookupCache lookups,
+                                         ExhaustionIndex exhaustion,
+                                         @Value("${dynamodb.tables.order-records:order_records}") String orderRecordsTable) {
+        Map<HoneyType, NamedParameterJdbcTemplate> honeyTpls = new EnumMap<>(HoneyType.class);
+        for (HoneyType type : HoneyType.values()) {
+            String bean = DependencyGuards.dependencyName(type) + "Tpl";
+            honeyTpls.put(type, ctx.getBean(bean, NamedParameterJdbcTemplate.class));
+        }
+        return new LoadTestSeeder(honeyTpls, jarsTpl, labelsTpl, cratesTpl, ordersTpl, dynamo, orderRecordsTable,
+                () -> {
+                    lookups.invalidateAll();
+                    exhaustion.reset();
+                });
+    }
+
+    @Bean
+    public LoadTestRunner loadTestRunner(ReservationScheduler scheduler,
+                                         OrderRecordRepository orderRecords,
+                                         StockSeeder seeder,
+                                         MeterRegistry registry,
+                                         @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                                         ObjectMapper mapper) {
+        return new LoadTestRunner(scheduler, orderRecords, seeder, registry, vtFactory, mapper);
+    }
+
+    @Bean
+    CommandLineRunner runLoadTest(LoadTestRunner runner,
+                                  ConfigurableApplicationContext ctx,
+                                  @Value("${loadtest.orders:5000}") int orders,
+                                  @Value("${loadtest.concurrency:64}") int concurrency,
+                                  @Value("${loadtest.seed:42}") long seed,
+                                  @Value("${loadtest.honey-mix:ACACIA:1,RAPESEED:1,WILDFLOWER:1,LINDEN:1,SUNFLOWER:1,FALSE_INDIGO:1}") String honeyMix,
+                                  @Value("${loadtest.jar-mix:JAR200:1,JAR400:1,JAR800:1}") String jarMix,
+                                  @Value("${loadtest.lines-per-order:1-3}") String linesPerOrder,
+                                  @Value("${loadtest.jars-per-line:1-60}") String jarsPerLine,
+                                  @Value("${loadtest.stock.honey-kg:1000000}") BigDecimal honeyKg,
+                                  @Value("${loadtest.stock.jars:5000000}") int jars,
+                                  @Value("${loadtest.stock.labels:5000000}") int labels,
+                                  @Value("${loadtest.stock.crates:500000}") int crates,
+                                  @Value("${loadtest.report-dir:loadtest/results}") String reportDir,
+                                  @Value("${loadtest.exit-on-finish:true}") boolean exitOnFinish) {
+        int[] lines = LoadTestSettings.parseRange(linesPerOrder);
+        int[] perLine = LoadTestSettings.parseRange(jarsPerLine);
+        LoadTestSettings settings = new LoadTestSettings(orders, concurrency, seed,
+                LoadTestSettings.parseMix(honeyMix, HoneyType.class),
+                LoadTestSettings.parseMix(jarMix, JarType.class),
+                lines[0], lines[1], perLine[0], perLine[1]);
+
+        return args -> {
+            log.info("[loadtest] Settings: {}", settings);
+            LoadTestReport report = runner.run(settings, honeyKg, jars, labels, crates, Path.of(reportDir));
+            if (exitOnFinish) {
+                int code = report.errors() > 0 ? 1 : 0;
+                System.exit(SpringApplication.exit(ctx, () -> code));
+            }
+        };
+    }
+}
@@ -1,16 +1,19 @@
 package com.marianbastiurea.config;
 
+import com.marianbastiurea.infrastructure.jdbc.DeadlineAwareJdbcTemplate;
 import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import javax.sql.DataSource;
 
 @Configuration(proxyBeanMethods = false)
+@Profile("!simulation")
 public class MultiRdsConfig {
 
     @Bean(name = "acaciaDs")
@@ -21,7 +24,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "acaciaTpl")
     public NamedParameterJdbcTemplate acaciaTpl(@Qualifier("acaciaDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "rapeseedDs")
@@ -32,7 +35,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "rapeseedTpl")
     public NamedParameterJdbcTemplate rapeseedTpl(@Qualifier("rapeseedDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "lindenDs")
@@ -43,7 +46,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "lindenTpl")
     public NamedParameterJdbcTemplate lindenTpl(@Qualifier("lindenDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "sunflowerDs")
@@ -54,7 +57,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "sunflowerTpl")
     public NamedParameterJdbcTemplate sunflowerTpl(@Qualifier("sunflowerDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "wildflowerDs")
@@ -65,7 +68,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "wildflowerTpl")
     public NamedParameterJdbcTemplate wildflowerTpl(@Qualifier("wildflowerDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "falseindigoDs")
@@ -76,7 +79,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "falseindigoTpl")
     public NamedParameterJdbcTemplate falseindigoTpl(@Qualifier("falseindigoDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "jarsDs")
@@ -87,7 +90,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "jarsTpl")
     public NamedParameterJdbcTemplate jarsTpl(@Qualifier("jarsDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "labelsDs")
@@ -98,7 +101,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "labelsTpl")
     public NamedParameterJdbcTemplate labelsTpl(@Qualifier("labelsDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Bean(name = "cratesDs")
@@ -109,7 +112,7 @@ public class MultiRdsConfig {
 
     @Bean(name = "cratesTpl")
     public NamedParameterJdbcTemplate cratesTpl(@Qualifier("cratesDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 
     @Primary
@@ -121,6 +124,6 @@ public class MultiRdsConfig {
 
     @Bean(name = "ordersTpl")
     public NamedParameterJdbcTemplate ordersTpl(@Qualifier("ordersDs") DataSource ds) {
-        return new NamedParameterJdbcTemplate(ds);
+        return new NamedParameterJdbcTemplate(new DeadlineAwareJdbcTemplate(ds));
     }
 }
@@ -0,0 +1,78 @@
+package com.marianbastiurea.config;
+
+import com.marianbastiurea.infrastructure.memory.InMemoryCrateRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryHoneyRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryJarRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryLabelRepo;
+import com.marianbastiurea.infrastructure.memory.InMemoryOrderRecordRepository;
+import com.marianbastiurea.infrastructure.memory.InMemoryOrderRepo;
+import com.marianbastiurea.loadtest.StockSeeder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Wiring for the in-memory repositories. The orchestrator keeps its TransactionTemplates; here
+ * they run on a transaction manager that does nothing, since every in-memory write is already
+ * a single atomic swap.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("simulation")
+public class SimulationConfig {
+
+    @Bean("simulationTx")
+    PlatformTransactionManager simulationTx() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    @Bean("jarsTT")
+    TransactionTemplate jarsTT(@Qualifier("simulationTx") PlatformTransactionManager tm) {
+        return new TransactionTemplate(tm);
+    }
+
+    @Bean("cratesTT")
+    TransactionTemplate cratesTT(@Qualifier("simulationTx") PlatformTransactionManager tm) {
+        return new TransactionTemplate(tm);
+    }
+
+    @Bean("labelsTT")
+    TransactionTemplate labelsTT(@Qualifier("simulationTx") PlatformTransactionManager tm) {
+        return new TransactionTemplate(tm);
+    }
+
+    @Bean
+    StockSeeder simulationSeeder(InMemoryHoneyRepo honey,
+                                 InMemoryJarRepo jars,
+                                 InMemoryLabelRepo labels,
+                                 InMemoryCrateRepo crates,
+                                 InMemoryOrderRepo orders,
+                                 InMemoryOrderRecordRepository records) {
+        return (honeyKg, jarQty, labelQty, crateQty, seedOrders) -> {
+            honey.reset(honeyKg);
+            jars.reset(jarQty);
+            labels.reset(labelQty);
+            crates.reset(crateQty);
+            orders.replaceAll(seedOrders);
+            records.clear();
+        };
+    }
+}
@@ -0,0 +1,458 @@
+package com.marianbastiurea.config;
+
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.OrderRecord;
+import com.marianbastiurea.domain.repo.CheckpointStore;
+import com.marianbastiurea.domain.repo.CheckpointStore.Watermark;
+import com.marianbastiurea.domain.repo.OrderRepo.ProcessingLogRow;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.AllocationOptimizer;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Allocation;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Objective;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Planned;
+import com.marianbastiurea.domain.services.HoldLedger;
+import com.marianbastiurea.domain.services.OrderGrouping;
+import com.marianbastiurea.domain.services.ReservationMetrics;
+import com.marianbastiurea.domain.services.ReservationOrchestrator;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import com.marianbastiurea.domain.services.StockOverview;
+import com.marianbastiurea.infrastructure.flow.FlowStage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.marianbastiurea.domain.services.ReservationPlanner.fmtJarBreakdown;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The startup run as a chain of {@link FlowStage}s: source → grouper → planner → committer →
+ * recorder → checkpointer. Groups may finish out of order; the checkpointer only moves the
+ * watermark over groups whose record is written, and the planner lets at most
+ * {@code maxUncheckpointed} groups run ahead of it. A checkpoint that cannot be written stops the run.
+ */
+final class StartupPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupPipeline.class);
+
+    // whole orders per page: every row of the page's order numbers, however many there are
+    private static final String PAGE_SQL = """
+                WITH page AS (
+                    SELECT DISTINCT order_number
+                      FROM public.orders
+                     WHERE order_number >= :from
+                     ORDER BY order_number
+                     LIMIT :orders
+                )
+                SELECT o.order_number, o.honey_type, o.jar_type, o.quantity
+                  FROM public.orders o
+                  JOIN page p ON p.order_number = o.order_number
+                 ORDER BY o.order_number
+            """;
+
+    /**
+     * @param objective allocation objective, or {@code null} to reserve order by order
+     */
+    record Settings(int pageOrders, int buffer, int commitConcurrency, int recordConcurrency,
+                    int maxUncheckpointed, Objective objective, int chunkSize) {
+    }
+
+    record Summary(int success, int failed, int resumed, int skippedRows) {
+    }
+
+    private record Ticket(long seq, Order order) {
+    }
+
+    /**
+     * Tickets for the committer; {@code plan} is aligned with them, or {@code null} to reserve
+     * each one on its own.
+     */
+    private record Work(List<Ticket> tickets, List<Planned> plan) {
+    }
+
+    private record Outcome(Ticket ticket, ReservationResult result, Exception error) {
+    }
+
+    private record Recorded(Ticket ticket, boolean reserved, JarQuantities delivered, String reason) {
+    }
+
+    private final ReservationOrchestrator orchestrator;
+    private final NamedParameterJdbcTemplate ordersTpl;
+    private final OrderRecordRepository orderRecords;
+    private final ReservationMetrics metrics;
+    private final CheckpointStore checkpoints;
+    private final String checkpointName;
+    private final StockOverview overview;
+    private final HoldLedger holds;
+    private final ThreadFactory threads;
+    private final MeterRegistry registry;
+    private final Settings settings;
+
+    private final AtomicInteger resumed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger success = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    StartupPipeline(ReservationOrchestrator orchestrator,
+                    NamedParameterJdbcTemplate ordersTpl,
+                    OrderRecordRepository orderRecords,
+                    ReservationMetrics metrics,
+                    CheckpointStore checkpoints,
+                    String checkpointName,
+                    StockOverview overview,
+                    HoldLedger holds,
+                    ThreadFactory threads,
+                    MeterRegistry registry,
+                    Settings settings) {
+        this.orchestrator = requireNonNull(orchestrator, "orchestrator");
+        this.ordersTpl = requireNonNull(ordersTpl, "ordersTpl");
+        this.orderRecords = requireNonNull(orderRecords, "orderRecords");
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.checkpoints = requireNonNull(checkpoints, "checkpoints");
+        this.checkpointName = requireNonNull(checkpointName, "checkpointName");
+        this.overview = requireNonNull(overview, "overview");
+        this.holds = requireNonNull(holds, "holds");
+        this.threads = requireNonNull(threads, "threads");
+        this.registry = requireNonNull(registry, "registry");
+        this.settings = requireNonNull(settings, "settings");
+    }
+
+    /**
+     * Processes every order group past {@code watermark} and returns once the last one is
+     * checkpointed; a stage failing fails the run.
+     */
+    Summary run(Optional<Watermark> watermark) throws Exception {
+        int buffer = settings.buffer();
+        Window window = new Window(settings.maxUncheckpointed());
+        Planner planner = new Planner(window);
+        Checkpointer checkpointer = new Checkpointer(window);
+        try (var source = FlowStage.<List<Map<String, Object>>>source("source", buffer,
+                     emit -> fetch(watermark.map(Watermark::orderNumber).orElse(Integer.MIN_VALUE), emit),
+                     threads, registry);
+             var grouper = new FlowStage<List<Map<String, Object>>, Ticket>("grouper", 1, buffer,
+                     new Grouper(watermark)::group, null, threads, registry);
+             var plan = new FlowStage<Ticket, Work>("planner", 1, buffer,
+                     planner::add, planner::flush, threads, registry);
+             var commit = new FlowStage<Work, Outcome>("committer", settings.commitConcurrency(), buffer,
+                     this::commit, null, threads, registry);
+             var record = new FlowStage<Outcome, Recorded>("recorder", settings.recordConcurrency(), buffer,
+                     this::record, null, threads, registry);
+             var checkpoint = new FlowStage<Recorded, Void>("checkpointer", 1, buffer,
+                     checkpointer::accept, null, threads, registry)) {
+
+            source.then(grouper).then(plan).then(commit).then(record).then(checkpoint);
+            long t0 = System.nanoTime();
+            source.start();
+            try {
+                checkpoint.done().join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof Exception cause) throw cause;
+                throw ex;
+            } finally {
+                window.close();
+                long wall = System.nanoTime() - t0;
+                for (var stage : List.of(source, grouper, plan, commit, record, checkpoint)) {
+                    FlowStage.Stats s = stage.stats();
+                    log.info("[pipeline] {}: in={} out={} slots={} working={}% blocked={}%",
+                            s.stage(), s.in(), s.out(), s.concurrency(),
+                            Math.round(100 * s.workShare(wall)), Math.round(100 * s.blockedShare(wall)));
+                }
+            }
+        }
+        return new Summary(success.get(), failed.get(), resumed.get(), skipped.get());
+    }
+
+    static Timer startupPhase(MeterRegistry registry, String phase) {
+        return Timer.builder("startup.phase")
+                .description("Duration of a startup order-processing phase")
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    private void fetch(int from, Consumer<List<Map<String, Object>>> emit) {
+        Timer fetchTimer = startupPhase(registry, "fetch");
+        for (int next = from; ; ) {
+            int pageFrom = next;
+            List<Map<String, Object>> rows = fetchTimer.record(() -> ordersTpl.queryForList(PAGE_SQL,
+                    Map.of("from", pageFrom, "orders", settings.pageOrders())));
+            if (rows.isEmpty()) return;
+            log.debug("[pipeline] Fetched {} order row(s) from order#{}", rows.size(), next);
+            emit.accept(rows);
+            int last = ((Number) rows.getLast().get("order_number")).intValue();
+            if (last == Integer.MAX_VALUE) return;
+            next = last + 1;
+        }
+    }
+
+    /**
+     * Groups one page and numbers the groups the watermark does not cover yet.
+     */
+    private final class Grouper {
+        private final Optional<Watermark> watermark;
+        private final Timer groupTimer = startupPhase(registry, "group");
+        // not synchronized: emit blocks on a full buffer, and a blocked virtual thread would pin its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private long seq;
+
+        Grouper(Optional<Watermark> watermark) {
+            this.watermark = watermark;
+        }
+
+        void group(List<Map<String, Object>> rows, Consumer<Ticket> emit) {
+            OrderGrouping.Grouped page = groupTimer.record(() -> OrderGrouping.group(rows));
+            skipped.addAndGet(page.skipped());
+            lock.lock();
+            try {
+                page.orders().forEach((orderNo, perHoney) -> perHoney.forEach((honey, jarsMap) -> {
+                    log.info("[orders/agg] order#{} [{}] -> totalJars={} totalKg={}",
+                            orderNo, honey, jarsMap.total(), jarsMap.kg());
+                    log.info("[orders/agg] order#{} [{}] breakdown:\n{}",
+                            orderNo, honey, fmtJarBreakdown(jarsMap));
+                    if (watermark.isPresent() && watermark.get().covers(orderNo, honey)) {
+                        resumed.incrementAndGet();
+                        return;
+                    }
+                    emit.accept(new Ticket(seq++, new Order(honey, jarsMap, orderNo)));
+                }));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Passes tickets through one by one, or with an objective holds them all and emits chunks of
+     * the optimized plan. Either way each emit first takes its tickets' places in the window.
+     */
+    private final class Planner {
+        private final List<Ticket> pending = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Window window;
+
+        Planner(Window window) {
+            this.window = window;
+        }
+
+        void add(Ticket ticket, Consumer<Work> emit) throws InterruptedException {
+            lock.lock();
+            try {
+                if (settings.objective() == null) {
+                    window.acquire(1);
+                    emit.accept(new Work(List.of(ticket), null));
+                } else {
+                    pending.add(ticket);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void flush(Consumer<Work> emit) throws InterruptedException {
+            lock.lock();
+            try {
+                planAll(emit);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void planAll(Consumer<Work> emit) throws InterruptedException {
+            if (settings.objective() == null || pending.isEmpty()) return;
+            StockOverviewResponse stock = overview.current();
+            if (!stock.stale().isEmpty()) {
+                log.warn("Allocating against stale stock for {}; commits still clamp to what is left.", stock.stale());
+            }
+            Timer.Sample optimize = Timer.start(registry);
+            // commitPlan writes what it is given, so what the holds set aside is taken off here
+            Map<HoneyType, BigDecimal> honeyKg = new EnumMap<>(HoneyType.class);
+            stock.honeyKg().forEach((h, kg) -> honeyKg.put(h, holds.unheldKg(h, kg, JarQuantities.NONE)));
+            Allocation allocation = AllocationOptimizer.optimize(pending.stream().map(Ticket::order).toList(),
+                    honeyKg, holds.unheld(StockOverview.packagingOf(stock), JarQuantities.NONE), settings.objective());
+            long optimizeNanos = optimize.stop(startupPhase(registry, "optimize"));
+            log.info("Allocation [{}] over {} order(s) in {} ms: filled={}, partial={}, unfilled={}, kg={}.",
+                    settings.objective(), pending.size(), TimeUnit.NANOSECONDS.toMillis(optimizeNanos),
+                    allocation.filled(), allocation.partial(), allocation.unfilled(), allocation.allocatedKg());
+
+            List<Planned> planned = allocation.planned();
+            int chunk = Math.min(settings.chunkSize(), window.limit);
+            for (int from = 0; from < planned.size(); from += chunk) {
+                int to = Math.min(from + chunk, planned.size());
+                window.acquire(to - from);
+                emit.accept(new Work(List.copyOf(pending.subList(from, to)), List.copyOf(planned.subList(from, to))));
+            }
+        }
+    }
+
+    private void commit(Work work, Consumer<Outcome> emit) {
+        if (work.plan() == null) {
+            for (Ticket t : work.tickets()) {
+                try {
+                    emit.accept(new Outcome(t, orchestrator.reserveFor(t.order()), null));
+                } catch (RuntimeException ex) {
+                    emit.accept(new Outcome(t, null, ex));
+                }
+            }
+            return;
+        }
+        List<ReservationResult> results;
+        try {
+            results = orchestrator.commitPlan(work.plan());
+        } catch (RuntimeException ex) {
+            for (Ticket t : work.tickets()) emit.accept(new Outcome(t, null, ex));
+            return;
+        }
+        for (int k = 0; k < work.tickets().size(); k++) {
+            emit.accept(new Outcome(work.tickets().get(k), results.get(k), null));
+        }
+    }
+
+    /**
+     * Writes the order record of one outcome; a record that cannot be written fails the order.
+     */
+    private void record(Outcome outcome, Consumer<Recorded> emit) {
+        Order order = outcome.ticket().order();
+        ReservationResult result = outcome.result();
+        Exception error = outcome.error();
+        if (error == null) {
+            try {
+                metrics.timed(ReservationMetrics.RECORD_SAVE, order.honeyType(), () -> orderRecords.save(
+                        new OrderRecord(null, order.orderNumber(), order.honeyType(), order.jarQuantities(),
+                                Instant.now(),
+                                result.success() ? OrderRecord.Status.RESERVED : OrderRecord.Status.FAILED,
+                                result.message())));
+                emit.accept(new Recorded(outcome.ticket(), result.success(), result.deliveredJars(),
+                        result.success() ? "RESERVED" : "FAILED"));
+                return;
+            } catch (Exception ex) {
+                error = ex;
+            }
+        }
+        try {
+            String message = "EXCEPTION: " + error.getMessage();
+            metrics.timed(ReservationMetrics.RECORD_SAVE, order.honeyType(), () -> orderRecords.save(
+                    new OrderRecord(null, order.orderNumber(), order.honeyType(), order.jarQuantities(),
+                            Instant.now(), OrderRecord.Status.FAILED, message)));
+        } catch (Exception ex) {
+            log.warn("Could not write the FAILED record of order#{} [{}]: {}",
+                    order.orderNumber(), order.honeyType(), ex.toString());
+        }
+        emit.accept(new Recorded(outcome.ticket(), false,
+                result != null ? result.deliveredJars() : JarQuantities.NONE, "EXCEPTION"));
+    }
+
+    /**
+     * Moves the watermark over finished groups in the order they were numbered.
+     */
+    private final class Checkpointer {
+        private final TreeMap<Long, Recorded> waiting = new TreeMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Window window;
+        private long next;
+
+        Checkpointer(Window window) {
+            this.window = window;
+        }
+
+        void accept(Recorded recorded, Consumer<Void> emit) {
+            lock.lock();
+            try {
+                waiting.put(recorded.ticket().seq(), recorded);
+                for (Recorded r; (r = waiting.remove(next)) != null; next++) {
+                    checkpoint(r);
+                    window.release();
+                    if (r.reserved()) success.incrementAndGet();
+                    else failed.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Groups handed to the committer that the watermark has not passed yet. Only the planner
+     * acquires, in ticket order, so the oldest open groups always hold their places and the
+     * checkpointer can release them. Closing it fails a planner still waiting, once the run is over.
+     */
+    private static final class Window {
+        private final int limit;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition freed = lock.newCondition();
+        private int open;
+        private boolean closed;
+
+        Window(int limit) {
+            if (limit <= 0) throw new IllegalArgumentException("app.pipeline.max-uncheckpointed must be > 0");
+            this.limit = limit;
+        }
+
+        void acquire(int groups) throws InterruptedException {
+            lock.lock();
+            try {
+                while (!closed && open + groups > limit) freed.await();
+                if (closed) throw new CancellationException("startup pipeline closed");
+                open += groups;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                open--;
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkpoint(Recorded r) {
+        Order order = r.ticket().order();
+        HoneyType honey = order.honeyType();
+        List<ProcessingLogRow> logRows = new ArrayList<>(JarType.values().length);
+        order.jarQuantities().forEach((jt, q) ->
+                logRows.add(new ProcessingLogRow(honey, jt, q, r.delivered().get(jt), r.reason())));
+        try {
+            checkpoints.commit(checkpointName, new Watermark(order.orderNumber(), honey), logRows);
+        } catch (RuntimeException ex) {
+            // the next checkpoint would move the watermark past this group and drop its log rows
+            log.error("Could not checkpoint order#{} [{}], stopping the run; a restart resumes from the last checkpoint: {}",
+                    order.orderNumber(), honey, ex.toString());
+            throw ex;
+        }
+    }
+}
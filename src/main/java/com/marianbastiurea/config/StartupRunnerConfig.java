@@ -1,175 +1,84 @@
 package com.marianbastiurea.config;
 
-import com.marianbastiurea.domain.enums.HoneyType;
-import com.marianbastiurea.domain.enums.JarType;
-import com.marianbastiurea.domain.model.Order;
-import com.marianbastiurea.domain.model.OrderRecord;
+import com.marianbastiurea.domain.repo.CheckpointStore;
+import com.marianbastiurea.domain.repo.CheckpointStore.Watermark;
 import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Objective;
+import com.marianbastiurea.domain.services.HoldLedger;
+import com.marianbastiurea.domain.services.ReservationMetrics;
 import com.marianbastiurea.domain.services.ReservationOrchestrator;
+import com.marianbastiurea.domain.services.StockOverview;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
-import java.math.BigDecimal;
-import java.time.Instant;
-import java.util.EnumMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@Profile("!simulation")
 public class StartupRunnerConfig {
 
     private static final Logger log = LoggerFactory.getLogger(StartupRunnerConfig.class);
 
 
-    private static BigDecimal jarsToKg(Map<JarType, Integer> m) {
-        if (m == null || m.isEmpty()) return BigDecimal.ZERO;
-        BigDecimal sum = BigDecimal.ZERO;
-        for (var e : m.entrySet()) {
-            if (e.getKey() == null) continue;
-            int q = e.getValue() == null ? 0 : e.getValue();
-            if (q <= 0) continue;
-            sum = sum.add(e.getKey().kgPerJar().multiply(BigDecimal.valueOf(q)));
-        }
-        return sum.max(BigDecimal.ZERO);
-    }
-
-    private static String fmtJarBreakdown(Map<JarType, Integer> m) {
-        if (m == null || m.isEmpty()) return "(none)";
-        StringBuilder sb = new StringBuilder();
-        int total = 0;
-        BigDecimal totalKg = BigDecimal.ZERO;
-        for (JarType jt : JarType.values()) {
-            int q = m.getOrDefault(jt, 0);
-            if (q <= 0) continue;
-            BigDecimal kg = jt.kgPerJar().multiply(BigDecimal.valueOf(q));
-            sb.append(String.format("  - %-6s : qty=%-5d  kgPerJar=%-4s  kg=%s%n",
-                    jt.name(), q, jt.kgPerJar().toPlainString(), kg.toPlainString()));
-            total += q;
-            totalKg = totalKg.add(kg);
-        }
-        sb.append(String.format("  Σ jars=%d  Σ kg=%s", total, totalKg.toPlainString()));
-        return sb.toString();
-    }
-
     @Bean
     @ConditionalOnProperty(name = "app.process-orders-on-startup", havingValue = "true", matchIfMissing = false)
     CommandLineRunner runOnce(ReservationOrchestrator orchestrator,
                               @Qualifier("ordersTpl") NamedParameterJdbcTemplate ordersTpl,
-                              OrderRecordRepository orderRecords) {
+                              OrderRecordRepository orderRecords,
+                              ReservationMetrics metrics,
+                              MeterRegistry registry,
+                              CheckpointStore checkpoints,
+                              StockOverview overview,
+                              HoldLedger holds,
+                              @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                              @Value("${app.checkpoint.name:startup}") String checkpointName,
+                              @Value("${app.checkpoint.reset:false}") boolean resetCheckpoint,
+                              @Value("${app.allocation.objective:}") String allocationObjective,
+                              @Value("${app.allocation.chunk-size:500}") int chunkSize,
+                              @Value("${app.pipeline.page-orders:1000}") int pageOrders,
+                              @Value("${app.pipeline.buffer:256}") int buffer,
+                              @Value("${app.pipeline.commit-concurrency:1}") int commitConcurrency,
+                              @Value("${app.pipeline.record-concurrency:8}") int recordConcurrency,
+                              @Value("${app.pipeline.max-uncheckpointed:1}") int maxUncheckpointed) {
         return args -> {
             log.info("Startup runner enabled: app.process-orders-on-startup=true");
 
-            final String sql = """
-                        SELECT order_number, honey_type, jar_type, quantity
-                          FROM public.orders
-                    """;
-            long t0 = System.nanoTime();
-            List<Map<String, Object>> rows = ordersTpl.getJdbcTemplate().queryForList(sql);
-            long tFetch = System.nanoTime();
-
-            if (rows == null || rows.isEmpty()) {
-                return;
-            }
-
-            Map<Integer, Map<HoneyType, Map<JarType, Integer>>> grouped = new LinkedHashMap<>();
-            int skipped = 0;
-
-            for (Map<String, Object> r : rows) {
-                try {
-                    Integer ord = ((Number) r.get("order_number")).intValue();
-                    HoneyType honey = HoneyType.valueOf(((String) r.get("honey_type")).trim());
-                    JarType jar = JarType.valueOf(((String) r.get("jar_type")).trim());
-                    int qty = ((Number) r.get("quantity")).intValue();
-
-                    if (qty <= 0) {
-                        skipped++;
-                        continue;
-                    }
-
-                    grouped
-                            .computeIfAbsent(ord, k -> new EnumMap<>(HoneyType.class))
-                            .computeIfAbsent(honey, k -> new EnumMap<>(JarType.class))
-                            .merge(jar, qty, Integer::sum);
-                } catch (Exception ex) {
-                    skipped++;
-                }
-            }
-            long tGroup = System.nanoTime();
-            log.info("Grouping complete in {} ms. Skipped {} row(s).",
-                    (tGroup - tFetch) / 1_000_000, skipped);
-
-            grouped.forEach((orderNo, perHoney) ->
-                    perHoney.forEach((honey, jarsMap) -> {
-                        int totalJars = jarsMap.values().stream().mapToInt(Integer::intValue).sum();
-                        BigDecimal totalKg = jarsToKg(jarsMap);
-                        log.info("[orders/agg] order#{} [{}] -> totalJars={} totalKg={}",
-                                orderNo, honey, totalJars, totalKg);
-                        log.info("[orders/agg] order#{} [{}] breakdown:\n{}",
-                                orderNo, honey, fmtJarBreakdown(jarsMap));
-                    })
-            );
-
-            int success = 0, failed = 0;
-
-            for (var ordEntry : grouped.entrySet()) {
-                Integer orderNumber = ordEntry.getKey();
-
-                for (var honeyEntry : ordEntry.getValue().entrySet()) {
-                    HoneyType honey = honeyEntry.getKey();
-                    Map<JarType, Integer> jarQuantities = honeyEntry.getValue();
-                    Order order = new Order(honey, jarQuantities, orderNumber);
-
-                    long tOrch0 = System.nanoTime();
-                    try {
-                        var result = orchestrator.reserveFor(order);
-                        long tOrch1 = System.nanoTime();
-
-                        OrderRecord.Status status = result.success()
-                                ? OrderRecord.Status.RESERVED
-                                : OrderRecord.Status.FAILED;
-
-                        orderRecords.save(new OrderRecord(
-                                null,
-                                orderNumber,
-                                honey,
-                                jarQuantities,
-                                Instant.now(),
-                                status,
-                                result.message()
-                        ));
-
-                        if (result.success()) {
-                            success++;
-                        } else {
-                            failed++;
-                        }
-                    } catch (Exception ex) {
-                        failed++;
-                        try {
-                            orderRecords.save(new OrderRecord(
-                                    null,
-                                    orderNumber,
-                                    honey,
-                                    jarQuantities,
-                                    Instant.now(),
-                                    OrderRecord.Status.FAILED,
-                                    "EXCEPTION: " + ex.getMessage()
-                            ));
-                        } catch (Exception ignore) {
-                        }
-                    }
-                }
+            if (resetCheckpoint) {
+                checkpoints.reset(checkpointName);
+                log.info("Checkpoint '{}' reset, processing every order.", checkpointName);
             }
-            long tEnd = System.nanoTime();
-            log.info("Startup runner finished in {} ms. Success={}, Failed={}.",
-                    (tEnd - t0) / 1_000_000, success, failed);
+            Optional<Watermark> watermark = checkpoints.load(checkpointName);
+            watermark.ifPresent(w -> log.info("Resuming after checkpoint '{}': order#{} [{}]",
+                    checkpointName, w.orderNumber(), w.honeyType()));
+
+            Objective objective = allocationObjective.isBlank()
+                    ? null
+                    : Objective.valueOf(allocationObjective.trim().toUpperCase());
+            StartupPipeline pipeline = new StartupPipeline(orchestrator, ordersTpl, orderRecords, metrics,
+                    checkpoints, checkpointName, overview, holds, vtFactory, registry,
+                    new StartupPipeline.Settings(pageOrders, buffer, commitConcurrency, recordConcurrency,
+                            maxUncheckpointed, objective, chunkSize));
+
+            Timer.Sample total = Timer.start(registry);
+            StartupPipeline.Summary summary = pipeline.run(watermark);
+            long totalNanos = total.stop(StartupPipeline.startupPhase(registry, "total"));
+            registry.counter("startup.orders", "outcome", "success").increment(summary.success());
+            registry.counter("startup.orders", "outcome", "failed").increment(summary.failed());
+            log.info("Startup runner finished in {} ms. Success={}, Failed={}, Resumed past={}, Skipped rows={}.",
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), summary.success(), summary.failed(),
+                    summary.resumed(), summary.skippedRows());
         };
     }
 }
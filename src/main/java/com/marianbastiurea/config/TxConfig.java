@@ -4,12 +4,14 @@ import javax.sql.DataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionTemplate;
 
 @Configuration(proxyBeanMethods = false)
+@Profile("!simulation")
 public class TxConfig {
 
     @Bean("jarsTx")
@@ -24,6 +26,10 @@ public class TxConfig {
     PlatformTransactionManager labelsTx(@Qualifier("labelsDs") DataSource ds) {
         return new DataSourceTransactionManager(ds);
     }
+    @Bean("ordersTx")
+    PlatformTransactionManager ordersTx(@Qualifier("ordersDs") DataSource ds) {
+        return new DataSourceTransactionManager(ds);
+    }
 
     @Bean("jarsTT")
     TransactionTemplate jarsTT(@Qualifier("jarsTx") PlatformTransactionManager tm) {
@@ -43,4 +49,10 @@ public class TxConfig {
         tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
         return tt;
     }
+    @Bean("ordersTT")
+    TransactionTemplate ordersTT(@Qualifier("ordersTx") PlatformTransactionManager tm) {
+        var tt = new TransactionTemplate(tm);
+        tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        return tt;
+    }
 }
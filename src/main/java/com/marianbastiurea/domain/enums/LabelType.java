@@ -1,5 +1,13 @@
 package com.marianbastiurea.domain.enums;
 
 public enum LabelType {
-    LABEL200, LABEL400, LABEL800
+    LABEL200, LABEL400, LABEL800;
+
+    public static LabelType forJarType(JarType jarType) {
+        return switch (jarType) {
+            case JAR200 -> LABEL200;
+            case JAR400 -> LABEL400;
+            case JAR800 -> LABEL800;
+        };
+    }
 }
@@ -0,0 +1,3 @@
+package com.marianbastiurea.domain.enums;
+
+public enum LimitingResource {NONE, HONEY, JARS, LABELS, CRATES}
@@ -0,0 +1,31 @@
+package com.marianbastiurea.domain.model;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Stock set aside for an order until it is confirmed, released or {@code expiresAt} passes.
+ * {@code jarQuantities} is what was held, which may be less than was asked for.
+ */
+public record Hold(
+        String id,
+        Integer orderNumber,
+        HoneyType honeyType,
+        JarQuantities jarQuantities,
+        BigDecimal kg,
+        Instant createdAt,
+        Instant expiresAt,
+        Status status
+) {
+    public enum Status {ACTIVE, CONFIRMED, RELEASED, EXPIRED}
+
+    public Hold withStatus(Status status) {
+        return new Hold(id, orderNumber, honeyType, jarQuantities, kg, createdAt, expiresAt, status);
+    }
+
+    public Order order() {
+        return new Order(honeyType, jarQuantities, orderNumber);
+    }
+}
@@ -0,0 +1,206 @@
+package com.marianbastiurea.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Jar counts per {@link JarType}, held in an immutable {@code int[]} indexed by ordinal. This is
+ * what orders, plans and deliveries carry instead of {@code Map<JarType, Integer>}: no boxing, no
+ * null entries, and the label, crate and kilogram figures planning needs are derived from the
+ * array without building maps. Serialises to and from the same JSON object the map did.
+ */
+public final class JarQuantities {
+
+    private static final JarType[] TYPES = JarType.values();
+    private static final long[] GRAMS_PER_JAR = new long[TYPES.length];
+    private static final int[] LABEL_OF = new int[TYPES.length];
+    private static final int[] CRATE_OF = new int[TYPES.length];
+
+    static {
+        for (JarType jt : TYPES) {
+            GRAMS_PER_JAR[jt.ordinal()] = jt.kgPerJar().movePointRight(3).longValueExact();
+            LABEL_OF[jt.ordinal()] = LabelType.forJarType(jt).ordinal();
+            CRATE_OF[jt.ordinal()] = CrateType.forJarType(jt).ordinal();
+        }
+    }
+
+    public static final JarQuantities NONE = new JarQuantities(new int[TYPES.length]);
+
+    private final int[] counts;
+
+    private JarQuantities(int[] counts) {
+        this.counts = counts;
+    }
+
+    public static JarQuantities of(JarType type, int count) {
+        return NONE.plus(type, count);
+    }
+
+    /**
+     * @throws IllegalArgumentException on a null or negative count
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static JarQuantities from(Map<JarType, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return NONE;
+        int[] c = new int[TYPES.length];
+        quantities.forEach((jt, q) -> {
+            if (jt == null) throw new IllegalArgumentException("unknown jar type");
+            if (q == null || q < 0) throw new IllegalArgumentException("quantity for " + jt + " must be >= 0");
+            c[jt.ordinal()] = Math.addExact(c[jt.ordinal()], q);
+        });
+        return new JarQuantities(c);
+    }
+
+    public static long gramsPerJar(JarType type) {
+        return GRAMS_PER_JAR[type.ordinal()];
+    }
+
+    public int get(JarType type) {
+        return counts[type.ordinal()];
+    }
+
+    public int total() {
+        int sum = 0;
+        for (int c : counts) sum += c;
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        for (int c : counts) if (c != 0) return false;
+        return true;
+    }
+
+    public long grams() {
+        long g = 0;
+        for (int i = 0; i < counts.length; i++) g += GRAMS_PER_JAR[i] * counts[i];
+        return g;
+    }
+
+    public BigDecimal kg() {
+        return BigDecimal.valueOf(grams(), 3);
+    }
+
+    /**
+     * Labels needed: one per jar.
+     */
+    public int labels(LabelType type) {
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) if (LABEL_OF[i] == type.ordinal()) sum += counts[i];
+        return sum;
+    }
+
+    /**
+     * Crates needed, rounded up per jar size as the crate repositories do.
+     */
+    public int crates(CrateType type) {
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (CRATE_OF[i] == type.ordinal() && counts[i] > 0) sum += type.cratesNeededForJars(counts[i]);
+        }
+        return sum;
+    }
+
+    public JarQuantities plus(JarType type, int count) {
+        if (count < 0) throw new IllegalArgumentException("quantity for " + type + " must be >= 0");
+        if (count == 0) return this;
+        int[] c = counts.clone();
+        c[type.ordinal()] = Math.addExact(c[type.ordinal()], count);
+        return new JarQuantities(c);
+    }
+
+    public JarQuantities plus(JarQuantities other) {
+        if (other.isEmpty()) return this;
+        int[] c = counts.clone();
+        for (int i = 0; i < c.length; i++) c[i] = Math.addExact(c[i], other.counts[i]);
+        return new JarQuantities(c);
+    }
+
+    /**
+     * Per-size difference, floored at zero.
+     */
+    public JarQuantities minus(JarQuantities other) {
+        int[] c = new int[counts.length];
+        for (int i = 0; i < c.length; i++) c[i] = Math.max(0, counts[i] - other.counts[i]);
+        return new JarQuantities(c);
+    }
+
+    /**
+     * Each size scaled by {@code factor} in {@code [0, 1]}, rounded down to whole jars.
+     */
+    public JarQuantities scaled(double factor) {
+        if (factor >= 1) return this;
+        int[] c = new int[counts.length];
+        if (factor > 0) for (int i = 0; i < c.length; i++) c[i] = (int) Math.floor(counts[i] * factor);
+        return new JarQuantities(c);
+    }
+
+    /**
+     * The largest sub-plan weighing at most {@code targetKg}: every size scaled down by the same
+     * ratio, then topped up one jar at a time, smallest size first, while it still fits.
+     */
+    public JarQuantities reducedToKg(BigDecimal targetKg) {
+        if (targetKg == null || targetKg.signum() <= 0) return NONE;
+        long need = grams();
+        if (need <= 0) return NONE;
+        long target = targetKg.movePointRight(3).setScale(0, RoundingMode.FLOOR).longValue();
+        if (target >= need) return this;
+
+        int[] c = new int[counts.length];
+        long used = 0;
+        for (int i = 0; i < c.length; i++) {
+            c[i] = (int) (Math.multiplyExact(counts[i], target) / need);
+            used += GRAMS_PER_JAR[i] * c[i];
+        }
+        boolean progressed = true;
+        while (used < target && progressed) {
+            progressed = false;
+            for (int i = 0; i < c.length && used < target; i++) {
+                if (c[i] >= counts[i] || used + GRAMS_PER_JAR[i] > target) continue;
+                c[i]++;
+                used += GRAMS_PER_JAR[i];
+                progressed = true;
+            }
+        }
+        return new JarQuantities(c);
+    }
+
+    /**
+     * Calls {@code action} for every size with a non-zero count, in {@link JarType} order.
+     */
+    public void forEach(ObjIntConsumer<JarType> action) {
+        for (int i = 0; i < counts.length; i++) if (counts[i] != 0) action.accept(TYPES[i], counts[i]);
+    }
+
+    @JsonValue
+    public Map<JarType, Integer> toMap() {
+        Map<JarType, Integer> m = new EnumMap<>(JarType.class);
+        forEach(m::put);
+        return Collections.unmodifiableMap(m);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof JarQuantities other && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
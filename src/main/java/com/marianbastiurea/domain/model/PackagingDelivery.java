@@ -0,0 +1,23 @@
+package com.marianbastiurea.domain.model;
+
+import java.util.Map;
+
+/**
+ * What one packaging delivery did, per type it touched: how many went out (less than asked once
+ * a row ran out) and the row left behind, with its row version.
+ */
+public record PackagingDelivery<E extends Enum<E>>(Map<E, Integer> delivered, Map<E, StockRow> remaining) {
+
+    public PackagingDelivery {
+        delivered = Map.copyOf(delivered);
+        remaining = Map.copyOf(remaining);
+    }
+
+    public static <E extends Enum<E>> PackagingDelivery<E> none() {
+        return new PackagingDelivery<E>(Map.of(), Map.of());
+    }
+
+    public int delivered(E type) {
+        return delivered.getOrDefault(type, 0);
+    }
+}
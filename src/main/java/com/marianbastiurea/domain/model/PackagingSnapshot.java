@@ -4,29 +4,61 @@ import com.marianbastiurea.domain.enums.CrateType;
 import com.marianbastiurea.domain.enums.JarType;
 import com.marianbastiurea.domain.enums.LabelType;
 
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 
+/**
+ * Packaging stock as read at one moment, each row with the {@code row_version} it was read at.
+ * Immutable: the versions are what packaging commits are made conditional on, so planning
+ * against a snapshot gives a new one ({@link #minus}) rather than changing it.
+ */
 public record PackagingSnapshot(
         Map<JarType, StockRow> jars,
         Map<LabelType, StockRow> labels,
         Map<CrateType, StockRow> crates
 ) {
+    public PackagingSnapshot {
+        jars = copy(jars, JarType.class);
+        labels = copy(labels, LabelType.class);
+        crates = copy(crates, CrateType.class);
+    }
+
     public static PackagingSnapshot of(Map<JarType, StockRow> j,
                                        Map<LabelType, StockRow> l,
                                        Map<CrateType, StockRow> c) {
-        return new PackagingSnapshot(new EnumMap<>(j), new EnumMap<>(l), new EnumMap<>(c));
+        return new PackagingSnapshot(j, l, c);
     }
 
-    public void bumpJar(JarType t, long newVer, int newFinal) {
-        jars.put(t, new StockRow(newVer, newFinal));
+    /**
+     * The stock left once {@code plan} is packed: jars and labels one per jar, crates rounded up
+     * per jar type as the crate repositories do. Versions are kept, nothing has been written yet.
+     */
+    public PackagingSnapshot minus(JarQuantities plan) {
+        if (plan.isEmpty()) return this;
+        EnumMap<JarType, StockRow> j = new EnumMap<>(JarType.class);
+        EnumMap<LabelType, StockRow> l = new EnumMap<>(LabelType.class);
+        EnumMap<CrateType, StockRow> c = new EnumMap<>(CrateType.class);
+        j.putAll(jars);
+        l.putAll(labels);
+        c.putAll(crates);
+        plan.forEach((jt, q) -> {
+            take(j, jt, q);
+            take(l, LabelType.forJarType(jt), q);
+            CrateType ct = CrateType.forJarType(jt);
+            take(c, ct, ct.cratesNeededForJars(q));
+        });
+        return new PackagingSnapshot(j, l, c);
     }
 
-    public void bumpLabel(LabelType t, long newVer, int newFinal) {
-        labels.put(t, new StockRow(newVer, newFinal));
+    private static <E extends Enum<E>> void take(Map<E, StockRow> rows, E type, int n) {
+        StockRow r = rows.get(type);
+        if (r != null) rows.put(type, r.withFinal(Math.max(0, r.finalStock() - n)));
     }
 
-    public void bumpCrate(CrateType t, long newVer, int newFinal) {
-        crates.put(t, new StockRow(newVer, newFinal));
+    private static <E extends Enum<E>> Map<E, StockRow> copy(Map<E, StockRow> rows, Class<E> type) {
+        EnumMap<E, StockRow> m = new EnumMap<>(type);
+        if (rows != null) m.putAll(rows);
+        return Collections.unmodifiableMap(m);
     }
-}
\ No newline at end of file
+}
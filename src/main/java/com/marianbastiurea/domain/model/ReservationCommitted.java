@@ -0,0 +1,24 @@
+package com.marianbastiurea.domain.model;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * What one successful reservation delivered and the stock rows it left behind, as returned by
+ * the writes themselves.
+ */
+public record ReservationCommitted(int orderNumber,
+                                   HoneyType honeyType,
+                                   BigDecimal deliveredKg,
+                                   int jarsDelivered,
+                                   BigDecimal honeyRemainingKg,
+                                   long honeyVersion,
+                                   Map<JarType, StockRow> jars,
+                                   Map<LabelType, StockRow> labels,
+                                   Map<CrateType, StockRow> crates) {
+}
@@ -0,0 +1,31 @@
+package com.marianbastiurea.domain.repo;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.repo.OrderRepo.ProcessingLogRow;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CheckpointStore {
+
+    Optional<Watermark> load(String name);
+
+    /**
+     * Writes the processing log of one finished group and moves the watermark to it, atomically.
+     */
+    void commit(String name, Watermark watermark, List<ProcessingLogRow> log);
+
+    void reset(String name);
+
+    /**
+     * Last fully processed order group. Groups are ordered by order number, then by
+     * {@link HoneyType} declaration order, which is the order the startup runner walks them in.
+     */
+    record Watermark(int orderNumber, HoneyType honeyType) {
+
+        public boolean covers(int orderNumber, HoneyType honeyType) {
+            return orderNumber < this.orderNumber
+                    || (orderNumber == this.orderNumber && honeyType.compareTo(this.honeyType) <= 0);
+        }
+    }
+}
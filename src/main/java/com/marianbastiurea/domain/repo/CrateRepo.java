@@ -1,10 +1,34 @@
 package com.marianbastiurea.domain.repo;
 
-import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
 
 import java.util.Map;
+import java.util.Set;
 
 
 public interface CrateRepo {
-    void deliveredCrates(Map<JarType, Integer> plan);
+    /**
+     * Reads the primary: the row versions feed the conditional deliveries, which a lagging
+     * replica would only send into conflicts. Wrap in {@code ReadRouting.readOnly} for display.
+     */
+    Map<CrateType, StockRow> stockFor(Set<CrateType> types);
+
+    /**
+     * Delivers as much of {@code plan} as there is, taking each row as it stands.
+     *
+     * @return per type the plan touched, what was delivered and the stock left
+     */
+    PackagingDelivery<CrateType> deliveredCrates(JarQuantities plan);
+
+    /**
+     * Delivers {@code plan} without locking rows up front: each row is written only if it is
+     * still at its version in {@code expected}. Rows that moved on are re-read and replanned on
+     * their own, and fall back to the locking delivery if they keep losing.
+     *
+     * @return per type the plan touched, what was delivered and the stock left
+     */
+    PackagingDelivery<CrateType> deliveredCrates(JarQuantities plan, Map<CrateType, StockRow> expected);
 }
\ No newline at end of file
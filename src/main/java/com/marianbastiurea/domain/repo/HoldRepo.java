@@ -0,0 +1,49 @@
+package com.marianbastiurea.domain.repo;
+
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.Hold.Status;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface HoldRepo {
+
+    void insert(Hold hold, String owner);
+
+    Optional<Hold> find(String id);
+
+    /**
+     * Moves ACTIVE holds to {@code status}; holds already settled are left alone.
+     *
+     * @return how many holds moved
+     */
+    int settle(Collection<String> ids, Status status);
+
+    /**
+     * Expires every ACTIVE hold past its deadline, whoever placed it.
+     *
+     * @return how many holds expired
+     */
+    int expireOverdue();
+
+    /**
+     * Makes {@code owner} the owner of every ACTIVE hold, whoever placed it.
+     *
+     * @return the holds taken over
+     */
+    List<Hold> adopt(String owner);
+
+    /**
+     * Takes or renews the lease that makes {@code owner} the one instance serving holds.
+     *
+     * @return false while another instance holds a lease that has not run out
+     */
+    boolean lease(String owner, Duration ttl);
+
+    /**
+     * Gives the lease up, if {@code owner} has it, so the next instance need not wait it out.
+     */
+    void unlease(String owner);
+}
@@ -0,0 +1,48 @@
+package com.marianbastiurea.domain.repo;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Order;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+public interface OrderQueue {
+
+    /**
+     * Claims up to {@code maxGroups} pending order groups (one honey type of one order each) of
+     * the given honey types for {@code worker}. Groups whose claim is older than {@code lease}
+     * are considered abandoned and can be claimed again.
+     */
+    List<Claimed> claim(String worker, Set<HoneyType> honeys, int maxGroups, Duration lease);
+
+    /**
+     * Starts the lease on a claimed group over, right before it is worked on, so a group that
+     * waited behind the rest of its batch is not taken by another worker mid-reservation, and
+     * records the partition epoch it is worked on at. Returns {@code false} when the claim was
+     * lost in the meantime, or the partition has moved past {@code claimed.epoch()}; the group
+     * must then be left alone.
+     */
+    boolean renew(String worker, Claimed claimed);
+
+    /**
+     * Settles a claimed group; returns {@code false} when the claim was lost to another worker
+     * in the meantime.
+     */
+    boolean complete(String worker, Claimed claimed, Outcome outcome, String result);
+
+    enum Outcome {DONE, FAILED, RETRY}
+
+    /**
+     * A claimed group. Every claim bumps {@code attempts}, so it doubles as the claim's fencing
+     * token: once the group is claimed again, renewing or settling the older claim does nothing.
+     * {@code epoch} is the partition lease epoch the claim is worked on at, see
+     * {@link PartitionLeases}; a claim is settled only at the epoch it was renewed with.
+     */
+    record Claimed(Order order, int attempts, long epoch) {
+
+        public Claimed at(long epoch) {
+            return new Claimed(order, attempts, epoch);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.marianbastiurea.domain.repo;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+
+import java.util.Set;
+
+/**
+ * Which honey partitions this instance currently owns. Only the owner should send reservation
+ * traffic to a honey database, so its {@code public.stock} row has a single writer.
+ * <p>
+ * Every change of owner bumps a partition's epoch. Work done for a partition carries the epoch
+ * it was started under, so the queue and the honey database can turn away an instance that lost
+ * the partition without noticing.
+ */
+public interface PartitionLeases {
+
+    /**
+     * Epoch of work that nobody fences, when partitions are not leased at all.
+     */
+    long UNFENCED = 0;
+
+    /**
+     * What {@link #epoch} returns for a partition this instance does not own.
+     */
+    long NOT_OWNED = -1;
+
+    Set<HoneyType> owned();
+
+    /**
+     * The epoch this instance owns {@code honey} at, or {@link #NOT_OWNED}.
+     */
+    default long epoch(HoneyType honey) {
+        return owned().contains(honey) ? UNFENCED : NOT_OWNED;
+    }
+}
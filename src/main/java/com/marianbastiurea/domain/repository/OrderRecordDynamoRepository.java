@@ -5,16 +5,16 @@ import com.marianbastiurea.persistence.nosql.OrderRecordEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 
 import java.time.Instant;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Repository
+@Profile("!simulation")
 public class OrderRecordDynamoRepository implements OrderRecordRepository {
 
     private static final Logger log = LoggerFactory.getLogger(OrderRecordDynamoRepository.class);
@@ -40,13 +40,10 @@ public class OrderRecordDynamoRepository implements OrderRecordRepository {
     public String save(Order order) {
         Instant now = Instant.now();
 
-        Map<String, Integer> jarsAsString = order.jarQuantities().entrySet().stream()
-                .collect(Collectors.toMap(e -> e.getKey().name(), Map.Entry::getValue));
-
         OrderRecordEntity entity = OrderRecordEntity.received(
                 order.orderNumber(),
                 order.honeyType().name(),
-                jarsAsString,
+                order.jarQuantities(),
                 now
         );
 
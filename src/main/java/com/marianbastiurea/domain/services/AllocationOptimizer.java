@@ -0,0 +1,291 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.services.ReservationPlanner.Allotment;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.IntToDoubleFunction;
+
+import static com.marianbastiurea.domain.services.ReservationPlanner.allot;
+import static com.marianbastiurea.domain.services.ReservationPlanner.consume;
+import static com.marianbastiurea.domain.services.ReservationPlanner.labelTypeFor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Allocates a whole batch of orders against one stock snapshot instead of first come, first
+ * served: orders are placed greedily in an objective-specific order with
+ * {@link ReservationPlanner#allot}, then a repair pass hands what is left to the ones skipped or cut.
+ */
+public final class AllocationOptimizer {
+
+    private static final int HONEY = 0;
+    private static final int JARS = HONEY + HoneyType.values().length;
+    private static final int LABELS = JARS + JarType.values().length;
+    private static final int CRATES = LABELS + LabelType.values().length;
+    private static final int LINES = CRATES + CrateType.values().length;
+    private static final JarType[] JAR_TYPES = JarType.values();
+
+    private AllocationOptimizer() {
+    }
+
+    public enum Objective {
+        /** As many orders as possible filled completely; what is left goes out as partial fills. */
+        MAX_FILLED,
+        /** As many kilograms shipped as possible. */
+        MAX_KG,
+        /**
+         * Orders sharing a scarce line all get the same fraction of what they asked for; ships
+         * fewer kilograms than the others, since every partial order rounds its crates up.
+         */
+        FAIR_SHARE
+    }
+
+    public record Planned(Order order,
+                          JarQuantities approved,
+                          BigDecimal approvedKg,
+                          BigDecimal requestedKg,
+                          LimitingResource limitedBy) {
+
+        public boolean filled() {
+            return approvedKg.compareTo(requestedKg) >= 0;
+        }
+    }
+
+    /**
+     * The plan, one entry per input order and in input order.
+     */
+    public record Allocation(Objective objective,
+                             List<Planned> planned,
+                             int filled,
+                             int partial,
+                             int unfilled,
+                             BigDecimal allocatedKg) {
+    }
+
+    public static Allocation optimize(List<Order> orders,
+                                      Map<HoneyType, BigDecimal> honeyKg,
+                                      PackagingSnapshot stock,
+                                      Objective objective) {
+        requireNonNull(orders, "orders");
+        requireNonNull(objective, "objective");
+        int n = orders.size();
+        Map<HoneyType, BigDecimal> honey = new EnumMap<>(HoneyType.class);
+        honey.putAll(honeyKg);
+        PackagingSnapshot left = stock;
+
+        double[] supply = supply(honey, left);
+        double[] demand = new double[n * LINES];
+        double[] total = new double[LINES];
+        BigDecimal[] requestedKg = new BigDecimal[n];
+        for (int i = 0; i < n; i++) {
+            requestedKg[i] = demand(orders.get(i), demand, i * LINES);
+            for (int r = 0; r < LINES; r++) total[r] += demand[i * LINES + r];
+        }
+        double[] pressure = new double[LINES];
+        for (int r = 0; r < LINES; r++) {
+            pressure[r] = total[r] == 0 ? 0 : supply[r] <= 0 ? Double.POSITIVE_INFINITY : total[r] / supply[r];
+        }
+
+        Allotment[] out = new Allotment[n];
+        switch (objective) {
+            case MAX_FILLED -> {
+                Integer[] byCost = sorted(n, i -> scarcityCost(demand, i, supply, pressure));
+                List<Integer> skipped = new ArrayList<>();
+                for (int i : byCost) {
+                    Allotment a = allot(orders.get(i).honeyType(), orders.get(i).jarQuantities(), honey, left);
+                    if (a.limitedBy() == LimitingResource.NONE) {
+                        left = take(orders.get(i), a, honey, left, out, i);
+                    } else {
+                        skipped.add(i);
+                    }
+                }
+                for (int i : skipped) {
+                    left = take(orders.get(i), allot(orders.get(i).honeyType(), orders.get(i).jarQuantities(), honey, left),
+                            honey, left, out, i);
+                }
+            }
+            case MAX_KG -> {
+                // kilograms per unit of scarce stock, best first; orders touching no scarce line come first
+                Integer[] byYield = sorted(n, i -> {
+                    double cost = scarcityCost(demand, i, supply, pressure);
+                    return cost == 0 ? Double.NEGATIVE_INFINITY : -requestedKg[i].doubleValue() / cost;
+                });
+                for (int i : byYield) {
+                    left = take(orders.get(i), allot(orders.get(i).honeyType(), orders.get(i).jarQuantities(), honey, left),
+                            honey, left, out, i);
+                }
+            }
+            case FAIR_SHARE -> {
+                double[] lineShare = lineShares(demand, n, supply, pressure);
+                for (int i = 0; i < n; i++) {
+                    Order o = orders.get(i);
+                    JarQuantities capped = capped(o, lineShare);
+                    Allotment a = allot(o.honeyType(), capped, honey, left);
+                    left = take(o, a.limitedBy() == LimitingResource.NONE && !capped.equals(o.jarQuantities())
+                            ? new Allotment(a.approved(), a.approvedKg(), limitOf(demand, i, lineShare))
+                            : a, honey, left, out, i);
+                }
+                // rounding down to whole jars and per-order crates leaves crumbs; top up in order
+                for (int i = 0; i < n; i++) {
+                    Order o = orders.get(i);
+                    if (out[i].approvedKg().compareTo(requestedKg[i]) >= 0) continue;
+                    JarQuantities rest = o.jarQuantities().minus(out[i].approved());
+                    Allotment more = allot(o.honeyType(), rest, honey, left);
+                    if (more.approved().isEmpty()) continue;
+                    left = consume(o.honeyType(), more.approved(), honey, left);
+                    JarQuantities approved = out[i].approved().plus(more.approved());
+                    BigDecimal kg = approved.kg();
+                    out[i] = new Allotment(approved, kg,
+                            kg.compareTo(requestedKg[i]) >= 0 ? LimitingResource.NONE : more.limitedBy());
+                }
+            }
+        }
+
+        List<Planned> planned = new ArrayList<>(n);
+        int filled = 0, partial = 0, unfilled = 0;
+        BigDecimal allocatedKg = BigDecimal.ZERO;
+        for (int i = 0; i < n; i++) {
+            Planned p = new Planned(orders.get(i), out[i].approved(), out[i].approvedKg(), requestedKg[i], out[i].limitedBy());
+            planned.add(p);
+            allocatedKg = allocatedKg.add(p.approvedKg());
+            if (p.filled()) filled++;
+            else if (p.approvedKg().signum() > 0) partial++;
+            else unfilled++;
+        }
+        return new Allocation(objective, planned, filled, partial, unfilled, allocatedKg);
+    }
+
+    private static PackagingSnapshot take(Order o, Allotment a, Map<HoneyType, BigDecimal> honey, PackagingSnapshot left,
+                                          Allotment[] out, int i) {
+        out[i] = a;
+        return consume(o.honeyType(), a.approved(), honey, left);
+    }
+
+    private static double[] supply(Map<HoneyType, BigDecimal> honey, PackagingSnapshot stock) {
+        double[] s = new double[LINES];
+        honey.forEach((h, kg) -> s[HONEY + h.ordinal()] = Math.max(0, kg.doubleValue()));
+        stock.jars().forEach((t, r) -> s[JARS + t.ordinal()] = available(r));
+        stock.labels().forEach((t, r) -> s[LABELS + t.ordinal()] = available(r));
+        stock.crates().forEach((t, r) -> s[CRATES + t.ordinal()] = available(r));
+        return s;
+    }
+
+    private static BigDecimal demand(Order o, double[] demand, int at) {
+        BigDecimal kg = o.jarQuantities().kg();
+        demand[at + HONEY + o.honeyType().ordinal()] = kg.doubleValue();
+        o.jarQuantities().forEach((jt, q) -> {
+            CrateType ct = CrateType.forJarType(jt);
+            demand[at + JARS + jt.ordinal()] += q;
+            demand[at + LABELS + labelTypeFor(jt).ordinal()] += q;
+            demand[at + CRATES + ct.ordinal()] += ct.cratesNeededForJars(q);
+        });
+        return kg;
+    }
+
+    /**
+     * Share of every over-subscribed line this order would use; zero when it touches none.
+     */
+    private static double scarcityCost(double[] demand, int i, double[] supply, double[] pressure) {
+        double cost = 0;
+        for (int r = 0; r < LINES; r++) {
+            double d = demand[i * LINES + r];
+            if (d == 0 || pressure[r] <= 1) continue;
+            if (supply[r] <= 0) return Double.MAX_VALUE;
+            cost += d / supply[r];
+        }
+        return cost;
+    }
+
+    /**
+     * For every over-subscribed line, the largest fraction every order on it can be scaled to
+     * while the whole jars and per-order crates that leaves still fit the supply; 1 elsewhere.
+     */
+    private static double[] lineShares(double[] demand, int n, double[] supply, double[] pressure) {
+        double[] share = new double[LINES];
+        for (int r = 0; r < LINES; r++) {
+            if (pressure[r] <= 1) {
+                share[r] = 1;
+                continue;
+            }
+            double lo = 0, hi = 1;
+            for (int step = 0; step < 30; step++) {
+                double mid = (lo + hi) / 2, used = 0;
+                for (int i = 0; i < n && used <= supply[r]; i++) used += usage(demand, i, r, mid);
+                if (used <= supply[r]) lo = mid;
+                else hi = mid;
+            }
+            share[r] = lo;
+        }
+        return share;
+    }
+
+    /**
+     * What order {@code i} takes from line {@code r} when scaled to {@code share} of its request.
+     */
+    private static double usage(double[] demand, int i, int r, double share) {
+        double d = demand[i * LINES + r];
+        if (d == 0) return 0;
+        if (r < JARS) return d * share;
+        if (r < CRATES) return Math.floor(d * share);
+        double crates = 0;
+        for (JarType jt : JAR_TYPES) {
+            CrateType ct = CrateType.forJarType(jt);
+            if (CRATES + ct.ordinal() != r) continue;
+            crates += ct.cratesNeededForJars((int) Math.floor(demand[i * LINES + JARS + jt.ordinal()] * share));
+        }
+        return crates;
+    }
+
+    /**
+     * The order with each jar size scaled to the tightest of its honey, jar, label and crate line.
+     */
+    private static JarQuantities capped(Order o, double[] lineShare) {
+        JarQuantities out = JarQuantities.NONE;
+        double honeyShare = lineShare[HONEY + o.honeyType().ordinal()];
+        for (JarType jt : JAR_TYPES) {
+            int q = o.jarQuantities().get(jt);
+            if (q == 0) continue;
+            double share = Math.min(Math.min(honeyShare, lineShare[JARS + jt.ordinal()]),
+                    Math.min(lineShare[LABELS + labelTypeFor(jt).ordinal()],
+                            lineShare[CRATES + CrateType.forJarType(jt).ordinal()]));
+            out = out.plus(jt, share >= 1 ? q : (int) Math.floor(q * share));
+        }
+        return out;
+    }
+
+    private static LimitingResource limitOf(double[] demand, int i, double[] lineShare) {
+        int worst = -1;
+        for (int r = 0; r < LINES; r++) {
+            if (demand[i * LINES + r] > 0 && (worst < 0 || lineShare[r] < lineShare[worst])) worst = r;
+        }
+        if (worst < JARS) return LimitingResource.HONEY;
+        if (worst < LABELS) return LimitingResource.JARS;
+        if (worst < CRATES) return LimitingResource.LABELS;
+        return LimitingResource.CRATES;
+    }
+
+    private static Integer[] sorted(int n, IntToDoubleFunction key) {
+        double[] keys = new double[n];
+        Integer[] idx = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key.applyAsDouble(i);
+            idx[i] = i;
+        }
+        // stable, so ties keep arrival order
+        Arrays.sort(idx, Comparator.comparingDouble(i -> keys[i]));
+        return idx;
+    }
+
+    private static int available(StockRow r) {
+        return r == null ? 0 : Math.max(0, r.finalStock());
+    }
+}
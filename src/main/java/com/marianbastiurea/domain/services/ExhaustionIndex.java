@@ -0,0 +1,253 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.ReservationCommitted;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock known to be gone, from what the writes and reads of earlier reservations returned, so an
+ * order that cannot be filled fails before any round trip. A mark lasts
+ * {@code reservation.exhaustion.recheck-ms}, then the next order it would stop goes through as a probe.
+ */
+@Service
+public class ExhaustionIndex implements ReservationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ExhaustionIndex.class);
+
+    private static final HoneyType[] HONEY_TYPES = HoneyType.values();
+    private static final JarType[] JAR_TYPES = JarType.values();
+    private static final LabelType[] LABEL_TYPES = LabelType.values();
+    private static final CrateType[] CRATE_TYPES = CrateType.values();
+    private static final long AVAILABLE = Long.MIN_VALUE;
+    // less honey than the lightest jar fills nothing
+    private static final BigDecimal MIN_JAR_KG = Arrays.stream(JAR_TYPES)
+            .map(JarType::kgPerJar).min(BigDecimal::compareTo).orElseThrow();
+
+    // from least to most exhausted
+    private enum State {AVAILABLE, RECHECK, EXHAUSTED}
+
+    /**
+     * One kind of stock: per type, when to let a probe through ({@link #AVAILABLE} when not
+     * marked) and the newest row version seen.
+     */
+    private static final class Marks {
+        final LimitingResource resource;
+        final Enum<?>[] types;
+        final AtomicLongArray recheckAt;
+        final long[] version;
+
+        Marks(LimitingResource resource, Enum<?>[] types) {
+            this.resource = resource;
+            this.types = types;
+            this.recheckAt = new AtomicLongArray(types.length);
+            this.version = new long[types.length];
+            clear();
+        }
+
+        void clear() {
+            for (int i = 0; i < types.length; i++) recheckAt.set(i, AVAILABLE);
+            Arrays.fill(version, Long.MIN_VALUE);
+        }
+
+        State state(int i, long now) {
+            long at = recheckAt.get(i);
+            if (at == AVAILABLE) return State.AVAILABLE;
+            return now - at < 0 ? State.EXHAUSTED : State.RECHECK;
+        }
+
+        int marked() {
+            int n = 0;
+            for (int i = 0; i < types.length; i++) if (recheckAt.get(i) != AVAILABLE) n++;
+            return n;
+        }
+    }
+
+    private final boolean enabled;
+    private final long recheckNanos;
+    private final Marks honey = new Marks(LimitingResource.HONEY, HONEY_TYPES);
+    private final Marks jars = new Marks(LimitingResource.JARS, JAR_TYPES);
+    private final Marks labels = new Marks(LimitingResource.LABELS, LABEL_TYPES);
+    private final Marks crates = new Marks(LimitingResource.CRATES, CRATE_TYPES);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<LimitingResource, Counter> shortCircuited = new EnumMap<>(LimitingResource.class);
+    private final Counter probes;
+
+    public ExhaustionIndex(MeterRegistry registry,
+                           @Value("${reservation.exhaustion.enabled:true}") boolean enabled,
+                           @Value("${reservation.exhaustion.recheck-ms:1000}") long recheckMs) {
+        this.enabled = enabled;
+        this.recheckNanos = Math.max(1, recheckMs) * 1_000_000L;
+        for (Marks m : new Marks[]{honey, jars, labels, crates}) {
+            shortCircuited.put(m.resource, Counter.builder("reservation.exhaustion.short-circuited")
+                    .description("Orders failed without a round trip because a resource they need is exhausted")
+                    .tag("resource", m.resource.name())
+                    .register(registry));
+            Gauge.builder("reservation.exhaustion.marked", m, Marks::marked)
+                    .description("Stock types currently known to be exhausted")
+                    .tag("resource", m.resource.name())
+                    .register(registry);
+        }
+        this.probes = Counter.builder("reservation.exhaustion.probes")
+                .description("Orders let through to re-read stock marked exhausted")
+                .register(registry);
+    }
+
+    /**
+     * The resource that certainly leaves {@code order} with nothing, or {@link LimitingResource#NONE}
+     * when the order may be filled, or when this caller is the probe for a mark due a recheck. Reads
+     * no database and takes no lock. An order is stopped by its honey, or by a kind of packaging
+     * that is gone for every jar type it asks for, the same cases in which the planner's cap is 0.
+     */
+    public LimitingResource doomed(Order order) {
+        JarQuantities requested = order.jarQuantities();
+        if (!enabled || requested.isEmpty()) return LimitingResource.NONE;
+        long now = System.nanoTime();
+
+        State h = honey.state(order.honeyType().ordinal(), now);
+        State j = State.EXHAUSTED, l = State.EXHAUSTED, c = State.EXHAUSTED;
+        for (JarType jt : JAR_TYPES) {
+            if (requested.get(jt) <= 0) continue;
+            j = weaker(j, jars.state(jt.ordinal(), now));
+            l = weaker(l, labels.state(LabelType.forJarType(jt).ordinal(), now));
+            c = weaker(c, crates.state(CrateType.forJarType(jt).ordinal(), now));
+        }
+
+        if (h == State.EXHAUSTED) return stop(LimitingResource.HONEY);
+        if (j == State.EXHAUSTED) return stop(LimitingResource.JARS);
+        if (l == State.EXHAUSTED) return stop(LimitingResource.LABELS);
+        if (c == State.EXHAUSTED) return stop(LimitingResource.CRATES);
+        if (h == State.AVAILABLE && j == State.AVAILABLE && l == State.AVAILABLE && c == State.AVAILABLE) {
+            return LimitingResource.NONE;
+        }
+        if (claimProbe(order, now)) return LimitingResource.NONE;
+        return stop(h != State.AVAILABLE ? LimitingResource.HONEY
+                : j != State.AVAILABLE ? LimitingResource.JARS
+                : l != State.AVAILABLE ? LimitingResource.LABELS
+                : LimitingResource.CRATES);
+    }
+
+    /**
+     * Rows read for a reservation, before holds are taken off.
+     */
+    public void observe(PackagingSnapshot stock) {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            stock.jars().forEach((t, r) -> apply(jars, t.ordinal(), r.version(), r.finalStock() <= 0));
+            stock.labels().forEach((t, r) -> apply(labels, t.ordinal(), r.version(), r.finalStock() <= 0));
+            stock.crates().forEach((t, r) -> apply(crates, t.ordinal(), r.version(), r.finalStock() <= 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Honey read for a reservation. The read carries no version, so it only ever clears a mark.
+     */
+    public void observeRead(HoneyType type, BigDecimal freeKg) {
+        if (!enabled || freeKg.compareTo(MIN_JAR_KG) < 0) return;
+        lock.lock();
+        try {
+            int i = type.ordinal();
+            if (honey.recheckAt.get(i) != AVAILABLE) apply(honey, i, honey.version[i], false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Honey left by a honey write, whether it delivered anything or not.
+     */
+    public void observeWrite(HoneyType type, BigDecimal remainingKg, long version) {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            apply(honey, type.ordinal(), version, remainingKg.compareTo(MIN_JAR_KG) < 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onCommitted(ReservationCommitted c) {
+        observeWrite(c.honeyType(), c.honeyRemainingKg(), c.honeyVersion());
+        observe(new PackagingSnapshot(c.jars(), c.labels(), c.crates()));
+    }
+
+    public void reset() {
+        lock.lock();
+        try {
+            for (Marks m : new Marks[]{honey, jars, labels, crates}) m.clear();
+        } finally {
+            lock.unlock();
+        }
+        log.info("[exhaustion] All marks cleared");
+    }
+
+    private void apply(Marks m, int i, long version, boolean exhausted) {
+        if (version < m.version[i]) return;
+        m.version[i] = version;
+        boolean marked = m.recheckAt.get(i) != AVAILABLE;
+        if (exhausted) {
+            // a mark seen again waits a full interval before the next probe
+            m.recheckAt.set(i, System.nanoTime() + recheckNanos);
+            if (!marked) log.info("[exhaustion] {} {} exhausted", m.resource, m.types[i]);
+        } else if (marked) {
+            m.recheckAt.set(i, AVAILABLE);
+            log.info("[exhaustion] {} {} back in stock", m.resource, m.types[i]);
+        }
+    }
+
+    /**
+     * Pushes every due mark the order runs into one interval on; whoever moves one of them is
+     * the probe.
+     */
+    private boolean claimProbe(Order order, long now) {
+        boolean claimed = claim(honey, order.honeyType().ordinal(), now);
+        for (JarType jt : JAR_TYPES) {
+            if (order.jarQuantities().get(jt) <= 0) continue;
+            claimed |= claim(jars, jt.ordinal(), now);
+            claimed |= claim(labels, LabelType.forJarType(jt).ordinal(), now);
+            claimed |= claim(crates, CrateType.forJarType(jt).ordinal(), now);
+        }
+        if (claimed) probes.increment();
+        return claimed;
+    }
+
+    private boolean claim(Marks m, int i, long now) {
+        long at = m.recheckAt.get(i);
+        return at != AVAILABLE && now - at >= 0 && m.recheckAt.compareAndSet(i, at, now + recheckNanos);
+    }
+
+    private LimitingResource stop(LimitingResource r) {
+        shortCircuited.get(r).increment();
+        return r;
+    }
+
+    /**
+     * For packaging the order needs any one jar type to go through: the least exhausted wins.
+     */
+    private static State weaker(State a, State b) {
+        return a.ordinal() <= b.ordinal() ? a : b;
+    }
+}
@@ -0,0 +1,126 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.services.ReservationPlanner.Allotment;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock set aside by the active holds of this instance, kept in memory so that reservations
+ * and new holds see it without touching the holds table or locking stock rows. Crates are
+ * counted per hold, rounded up the way they will be delivered. Empty unless holds are enabled.
+ */
+@Service
+public class HoldLedger {
+
+    private static final CrateType[] CRATE_TYPES = CrateType.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final BigDecimal[] honeyKg = new BigDecimal[HoneyType.values().length];
+    private final int[] crates = new int[CRATE_TYPES.length];
+    private JarQuantities jars = JarQuantities.NONE;
+    private volatile int holds;
+
+    public HoldLedger() {
+        Arrays.fill(honeyKg, BigDecimal.ZERO);
+    }
+
+    /**
+     * Allots {@code requested} against {@code honeyFreeKg} and {@code stock} less everything
+     * already held, and holds what it allots, in one step.
+     */
+    public Allotment hold(HoneyType honey, JarQuantities requested, BigDecimal honeyFreeKg, PackagingSnapshot stock) {
+        lock.lock();
+        try {
+            Allotment a = ReservationPlanner.allot(honey, requested,
+                    Map.of(honey, unheldKg(honey, honeyFreeKg, JarQuantities.NONE)),
+                    unheld(stock, JarQuantities.NONE));
+            if (!a.approved().isEmpty()) add(honey, a.approved(), 1);
+            return a;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a hold placed earlier back on the books, e.g. one recovered from the holds table.
+     */
+    public void debit(HoneyType honey, JarQuantities held) {
+        lock.lock();
+        try {
+            add(honey, held, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void credit(HoneyType honey, JarQuantities held) {
+        lock.lock();
+        try {
+            add(honey, held, -1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Honey free for a reservation once other holds are set aside; {@code own} is a hold the
+     * reservation is confirming, which stays available to it.
+     */
+    public BigDecimal unheldKg(HoneyType honey, BigDecimal freeKg, JarQuantities own) {
+        if (holds == 0) return freeKg;
+        lock.lock();
+        try {
+            return freeKg.subtract(honeyKg[honey.ordinal()]).add(own.kg()).max(BigDecimal.ZERO);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@code stock} with other holds set aside; row versions are kept.
+     */
+    public PackagingSnapshot unheld(PackagingSnapshot stock, JarQuantities own) {
+        if (holds == 0) return stock;
+        lock.lock();
+        try {
+            JarQuantities others = jars.minus(own);
+            Map<JarType, StockRow> j = new EnumMap<>(JarType.class);
+            Map<LabelType, StockRow> l = new EnumMap<>(LabelType.class);
+            Map<CrateType, StockRow> c = new EnumMap<>(CrateType.class);
+            stock.jars().forEach((t, r) -> j.put(t, less(r, others.get(t))));
+            stock.labels().forEach((t, r) -> l.put(t, less(r, others.labels(t))));
+            stock.crates().forEach((t, r) -> c.put(t, less(r, crates[t.ordinal()] - own.crates(t))));
+            return new PackagingSnapshot(j, l, c);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int holds() {
+        return holds;
+    }
+
+    private void add(HoneyType honey, JarQuantities held, int sign) {
+        BigDecimal kg = held.kg();
+        honeyKg[honey.ordinal()] = honeyKg[honey.ordinal()].add(sign > 0 ? kg : kg.negate());
+        jars = sign > 0 ? jars.plus(held) : jars.minus(held);
+        for (CrateType ct : CRATE_TYPES) crates[ct.ordinal()] += sign * held.crates(ct);
+        holds += sign;
+    }
+
+    private static StockRow less(StockRow r, int held) {
+        return held <= 0 ? r : r.withFinal(Math.max(0, r.finalStock() - held));
+    }
+}
@@ -0,0 +1,315 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.Hold.Status;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.repo.HoldRepo;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import com.marianbastiurea.domain.services.ReservationPlanner.Allotment;
+import com.marianbastiurea.infrastructure.timer.TimingWheel;
+import com.marianbastiurea.infrastructure.timer.TimingWheel.Timeout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Two-phase reservations: {@link #place} sets stock aside in the {@link HoldLedger} for a TTL,
+ * {@link #confirm} reserves it, {@link #release} or expiry gives it back. The ledger is in memory,
+ * so holds run on the one instance holding the lease in {@code public.stock_hold_owner}.
+ */
+@Service
+@ConditionalOnProperty(name = "holds.enabled", havingValue = "true")
+public class HoldService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldService.class);
+    private static final int SETTLE_CHUNK = 1000;
+
+    private final HoldRepo repo;
+    private final HoldLedger ledger;
+    private final StockOverview overview;
+    private final ReservationOrchestrator orchestrator;
+    private final ThreadFactory vtFactory;
+    private final String nodeId;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration tick;
+    private final Duration lease;
+    private final boolean partitioned;
+
+    private final TimingWheel<String> wheel;
+    private final Map<String, Active> active = new ConcurrentHashMap<>();
+    private final Counter placed;
+    private final Counter expired;
+
+    private volatile boolean running;
+    private volatile long leasedUntilNanos;
+    private long renewAtNanos;
+    private Thread ticker;
+
+    private record Active(Hold hold, Timeout<String> timeout) {
+    }
+
+    /**
+     * A placed hold, or why nothing could be held.
+     */
+    public record Placed(Optional<Hold> hold, LimitingResource limitedBy) {
+    }
+
+    public HoldService(HoldRepo repo,
+                       HoldLedger ledger,
+                       StockOverview overview,
+                       ReservationOrchestrator orchestrator,
+                       @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                       MeterRegistry registry,
+                       @Value("${holds.node-id:}") String nodeId,
+                       @Value("${holds.ttl-ms:900000}") long defaultTtlMs,
+                       @Value("${holds.max-ttl-ms:3600000}") long maxTtlMs,
+                       @Value("${holds.tick-ms:100}") long tickMs,
+                       @Value("${holds.lease-ms:15000}") long leaseMs,
+                       @Value("${partitions.enabled:false}") boolean partitioned) {
+        this.repo = requireNonNull(repo, "repo");
+        this.ledger = requireNonNull(ledger, "ledger");
+        this.overview = requireNonNull(overview, "overview");
+        this.orchestrator = requireNonNull(orchestrator, "orchestrator");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.defaultTtl = Duration.ofMillis(defaultTtlMs);
+        this.maxTtl = Duration.ofMillis(maxTtlMs);
+        this.tick = Duration.ofMillis(tickMs);
+        this.lease = Duration.ofMillis(leaseMs);
+        this.partitioned = partitioned;
+        this.wheel = new TimingWheel<>(tick, System.currentTimeMillis());
+
+        this.placed = Counter.builder("holds.placed")
+                .description("Holds placed")
+                .register(registry);
+        this.expired = Counter.builder("holds.expired")
+                .description("Holds whose TTL ran out before they were confirmed")
+                .register(registry);
+        Gauge.builder("holds.active", active, Map::size)
+                .description("Holds waiting for confirmation on this instance")
+                .register(registry);
+    }
+
+    /**
+     * Holds what the stock allows of {@code order} for {@code ttl} (the default when null,
+     * capped at {@code holds.max-ttl-ms}). Stock is read from the {@link StockOverview}, so
+     * what is held may be up to one overview refresh out of date; confirming reserves only
+     * what is really there.
+     */
+    public Placed place(Order order, Duration ttl) throws InterruptedException {
+        requireNonNull(order, "order");
+        if (System.nanoTime() - leasedUntilNanos >= 0) {
+            throw new IllegalStateException("Not serving holds: the lease in public.stock_hold_owner has lapsed");
+        }
+        Duration lasts = ttl == null ? defaultTtl : ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+        StockOverviewResponse stock = overview.current();
+        Allotment a = ledger.hold(order.honeyType(), order.jarQuantities(),
+                stock.honeyKg().getOrDefault(order.honeyType(), BigDecimal.ZERO), StockOverview.packagingOf(stock));
+        if (a.approved().isEmpty()) return new Placed(Optional.empty(), a.limitedBy());
+
+        Instant now = Instant.now();
+        Hold hold = new Hold(UUID.randomUUID().toString(), order.orderNumber(), order.honeyType(),
+                a.approved(), a.approvedKg(), now, now.plus(lasts), Status.ACTIVE);
+        try {
+            repo.insert(hold, nodeId);
+        } catch (RuntimeException ex) {
+            ledger.credit(hold.honeyType(), hold.jarQuantities());
+            throw ex;
+        }
+        track(hold);
+        placed.increment();
+        log.info("[holds] Held order#{} [{}] {} kg until {} ({})",
+                hold.orderNumber(), hold.honeyType(), hold.kg(), hold.expiresAt(), hold.id());
+        return new Placed(Optional.of(hold), a.limitedBy());
+    }
+
+    /**
+     * Reserves a held order. A deferred reservation leaves the hold in place to be confirmed
+     * again; any other outcome settles it.
+     *
+     * @return empty when the hold is not active on this instance
+     */
+    public Optional<ReservationResult> confirm(String id) {
+        Active a = take(id);
+        if (a == null) return Optional.empty();
+        Hold hold = a.hold();
+
+        ReservationResult result = orchestrator.reserveHeld(hold);
+        if (result.deferred()) {
+            track(hold);
+            return Optional.of(result);
+        }
+        ledger.credit(hold.honeyType(), hold.jarQuantities());
+        settle(List.of(id), result.success() ? Status.CONFIRMED : Status.RELEASED);
+        log.info("[holds] {} order#{} [{}]: {}", result.success() ? "Confirmed" : "Released after failed confirm",
+                hold.orderNumber(), hold.honeyType(), result.message());
+        return Optional.of(result);
+    }
+
+    /**
+     * @return whether the hold was active on this instance and is now released
+     */
+    public boolean release(String id) {
+        Active a = take(id);
+        if (a == null) return false;
+        ledger.credit(a.hold().honeyType(), a.hold().jarQuantities());
+        settle(List.of(id), Status.RELEASED);
+        return true;
+    }
+
+    public Optional<Hold> find(String id) {
+        Active a = active.get(id);
+        return a != null ? Optional.of(a.hold()) : repo.find(id);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        if (partitioned) {
+            throw new IllegalStateException("holds.enabled needs a single instance, partitions.enabled runs several: "
+                    + "held stock is only known to the instance that holds it");
+        }
+        acquireLease();
+        running = true;
+        int overdue = repo.expireOverdue();
+        List<Hold> mine = repo.adopt(nodeId);
+        for (Hold h : mine) {
+            ledger.debit(h.honeyType(), h.jarQuantities());
+            track(h);
+        }
+        ticker = vtFactory.newThread(() -> {
+            while (running) {
+                LockSupport.parkNanos(tick.toNanos());
+                if (running) {
+                    expireDue();
+                    keepLease();
+                }
+            }
+        });
+        ticker.start();
+        log.info("[holds] Started on {}: {} hold(s) resumed, {} overdue hold(s) expired", nodeId, mine.size(), overdue);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        if (ticker != null) ticker.interrupt();
+        // the rows stay ACTIVE; the next instance to take the lease resumes them, or expires them once overdue
+        leasedUntilNanos = System.nanoTime();
+        try {
+            repo.unlease(nodeId);
+        } catch (RuntimeException ex) {
+            log.warn("[holds] Could not give up the lease, it runs out in {} ms: {}", lease.toMillis(), ex.toString());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Waits up to one lease for the lease, long enough for an instance that died without giving
+     * it up; a live instance renews it throughout, and start fails.
+     */
+    private void acquireLease() {
+        long deadline = System.nanoTime() + lease.toNanos();
+        while (!renewLease()) {
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Holds are served by another live instance (public.stock_hold_owner); "
+                        + "holds.enabled needs a single instance");
+            }
+            LockSupport.parkNanos(lease.dividedBy(3).toNanos());
+        }
+        renewAtNanos = System.nanoTime() + lease.dividedBy(3).toNanos();
+    }
+
+    private boolean renewLease() {
+        long started = System.nanoTime();
+        if (!repo.lease(nodeId, lease)) return false;
+        leasedUntilNanos = started + lease.toNanos();
+        return true;
+    }
+
+    private void keepLease() {
+        long now = System.nanoTime();
+        if (now - renewAtNanos < 0) return;
+        renewAtNanos = now + lease.dividedBy(3).toNanos();
+        try {
+            if (!renewLease()) {
+                log.error("[holds] {} lost the holds lease to another instance; no new holds are placed", nodeId);
+            }
+        } catch (RuntimeException ex) {
+            // new holds stop once the local lease deadline passes
+            log.warn("[holds] Lease renewal failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Takes a hold out of the wheel and the active set; whoever cancels its timeout owns it, so
+     * a confirm racing the expiry of the same hold settles it once.
+     */
+    private Active take(String id) {
+        Active a = active.get(id);
+        if (a == null || !wheel.cancel(a.timeout())) return null;
+        active.remove(id, a);
+        return a;
+    }
+
+    private void track(Hold hold) {
+        // scheduled inside compute so an expiry due at once waits in expireDue's remove for the entry
+        active.compute(hold.id(), (id, old) -> new Active(hold, wheel.schedule(id, hold.expiresAt().toEpochMilli())));
+    }
+
+    private void expireDue() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) return;
+        List<String> ids = new ArrayList<>(due.size());
+        for (String id : due) {
+            Active a = active.remove(id);
+            if (a == null) continue;
+            ledger.credit(a.hold().honeyType(), a.hold().jarQuantities());
+            ids.add(id);
+        }
+        expired.increment(ids.size());
+        settle(ids, Status.EXPIRED);
+        log.debug("[holds] Expired {} hold(s)", ids.size());
+    }
+
+    private void settle(List<String> ids, Status status) {
+        try {
+            for (int from = 0; from < ids.size(); from += SETTLE_CHUNK) {
+                repo.settle(ids.subList(from, Math.min(ids.size(), from + SETTLE_CHUNK)), status);
+            }
+        } catch (RuntimeException ex) {
+            // the stock is already back in memory; the start-up sweep settles overdue rows later
+            log.warn("[holds] Could not mark {} hold(s) {}: {}", ids.size(), status, ex.toString());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.api.dto.LiveStockView;
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.ReservationCommitted;
+import com.marianbastiurea.domain.model.StockRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stock levels and reservation throughput kept in memory from the rows each committed
+ * reservation wrote, so readers never query a database. A level is only replaced by one with a
+ * higher row version, which keeps out-of-order commits from moving it backwards. The first
+ * {@link #view()} seeds types no reservation has touched yet from {@link StockOverview}.
+ */
+@Service
+public class LiveStock implements ReservationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveStock.class);
+
+    private final StockOverview overview;
+    private final int windowSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<HoneyType, Level> honey = new EnumMap<>(HoneyType.class);
+    private final Map<JarType, StockRow> jars = new EnumMap<>(JarType.class);
+    private final Map<LabelType, StockRow> labels = new EnumMap<>(LabelType.class);
+    private final Map<CrateType, StockRow> crates = new EnumMap<>(CrateType.class);
+    private final long[] bucketSecond;
+    private final long[] bucketReservations;
+    private final BigDecimal[] bucketKg;
+    private long revision;
+    private volatile boolean seeded;
+
+    private record Level(long version, BigDecimal kg) {
+    }
+
+    public LiveStock(StockOverview overview,
+                     @Value("${stock.stream.rate-window-s:10}") int windowSeconds) {
+        this.overview = requireNonNull(overview, "overview");
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.bucketSecond = new long[this.windowSeconds];
+        this.bucketReservations = new long[this.windowSeconds];
+        this.bucketKg = new BigDecimal[this.windowSeconds];
+    }
+
+    @Override
+    public void onCommitted(ReservationCommitted c) {
+        long second = System.currentTimeMillis() / 1000;
+        lock.lock();
+        try {
+            Level cur = honey.get(c.honeyType());
+            if (cur == null || c.honeyVersion() > cur.version()) {
+                honey.put(c.honeyType(), new Level(c.honeyVersion(), c.honeyRemainingKg()));
+            }
+            newer(jars, c.jars());
+            newer(labels, c.labels());
+            newer(crates, c.crates());
+
+            int b = (int) (second % windowSeconds);
+            if (bucketSecond[b] != second) {
+                bucketSecond[b] = second;
+                bucketReservations[b] = 0;
+                bucketKg[b] = BigDecimal.ZERO;
+            }
+            bucketReservations[b]++;
+            bucketKg[b] = bucketKg[b].add(c.deliveredKg());
+            revision++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long revision() {
+        lock.lock();
+        try {
+            return revision;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LiveStockView view() {
+        if (!seeded) seed();
+        long now = System.currentTimeMillis() / 1000;
+        lock.lock();
+        try {
+            long reservations = 0;
+            BigDecimal kg = BigDecimal.ZERO;
+            // the current second is still filling up, so the rate covers the whole seconds before it
+            for (int i = 0; i < windowSeconds; i++) {
+                long age = now - bucketSecond[i];
+                if (age >= 1 && age <= windowSeconds) {
+                    reservations += bucketReservations[i];
+                    kg = kg.add(bucketKg[i]);
+                }
+            }
+            Map<HoneyType, BigDecimal> honeyKg = new EnumMap<>(HoneyType.class);
+            honey.forEach((t, l) -> honeyKg.put(t, l.kg()));
+            return new LiveStockView(Instant.now(), revision,
+                    Collections.unmodifiableMap(honeyKg),
+                    finalStock(jars, JarType.class),
+                    finalStock(labels, LabelType.class),
+                    finalStock(crates, CrateType.class),
+                    (double) reservations / windowSeconds,
+                    kg.doubleValue() / windowSeconds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void seed() {
+        StockOverviewResponse snapshot;
+        try {
+            snapshot = overview.current();
+        } catch (Exception ex) {
+            log.warn("[stock] Could not seed live stock, showing committed levels only: {}", ex.toString());
+            return;
+        }
+        lock.lock();
+        try {
+            if (seeded) return;
+            // seeded levels lose to any committed row, whatever its version
+            snapshot.honeyKg().forEach((t, kg) -> honey.putIfAbsent(t, new Level(Long.MIN_VALUE, kg)));
+            snapshot.jars().forEach((t, n) -> jars.putIfAbsent(t, new StockRow(Long.MIN_VALUE, n)));
+            snapshot.labels().forEach((t, n) -> labels.putIfAbsent(t, new StockRow(Long.MIN_VALUE, n)));
+            snapshot.crates().forEach((t, n) -> crates.putIfAbsent(t, new StockRow(Long.MIN_VALUE, n)));
+            seeded = snapshot.stale().isEmpty();
+            revision++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <E extends Enum<E>> void newer(Map<E, StockRow> current, Map<E, StockRow> committed) {
+        committed.forEach((type, row) -> current.merge(type, row,
+                (old, fresh) -> fresh.version() > old.version() ? fresh : old));
+    }
+
+    private static <E extends Enum<E>> Map<E, Integer> finalStock(Map<E, StockRow> rows, Class<E> type) {
+        Map<E, Integer> out = new EnumMap<>(type);
+        rows.forEach((t, r) -> out.put(t, r.finalStock()));
+        return Collections.unmodifiableMap(out);
+    }
+}
@@ -0,0 +1,49 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds raw {@code public.orders} rows (one per order, honey and jar type) into
+ * order number → honey type → jar quantities, keeping the order in which orders first appear.
+ */
+public final class OrderGrouping {
+
+    private OrderGrouping() {
+    }
+
+    public record Grouped(Map<Integer, Map<HoneyType, JarQuantities>> orders, int skipped) {
+    }
+
+    public static Grouped group(List<Map<String, Object>> rows) {
+        Map<Integer, Map<HoneyType, JarQuantities>> grouped = new LinkedHashMap<>();
+        int skipped = 0;
+
+        for (Map<String, Object> r : rows) {
+            try {
+                Integer ord = ((Number) r.get("order_number")).intValue();
+                HoneyType honey = HoneyType.valueOf(((String) r.get("honey_type")).trim());
+                JarType jar = JarType.valueOf(((String) r.get("jar_type")).trim());
+                int qty = ((Number) r.get("quantity")).intValue();
+
+                if (qty <= 0) {
+                    skipped++;
+                    continue;
+                }
+
+                grouped
+                        .computeIfAbsent(ord, k -> new EnumMap<>(HoneyType.class))
+                        .merge(honey, JarQuantities.of(jar, qty), JarQuantities::plus);
+            } catch (Exception ex) {
+                skipped++;
+            }
+        }
+        return new Grouped(grouped, skipped);
+    }
+}
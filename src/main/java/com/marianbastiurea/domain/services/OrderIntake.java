@@ -0,0 +1,236 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.OrderRecord;
+import com.marianbastiurea.domain.model.OrderRecord.Status;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Accepts orders into a bounded queue that {@code orders.intake.workers} virtual threads drain
+ * through the orchestrator; callers poll {@link #status(String)}. A full queue rejects at once.
+ * Stopping drains the queue without interrupting a worker, which may already have taken honey.
+ */
+@Service
+public class OrderIntake implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntake.class);
+
+    private final ReservationScheduler scheduler;
+    private final OrderRecordRepository orderRecords;
+    private final ReservationMetrics metrics;
+    private final ThreadFactory vtFactory;
+    private final OrderLookupCache lookups;
+
+    private final BlockingQueue<Ticket> queue;
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final AtomicLong nextEviction = new AtomicLong(System.nanoTime());
+    private final int workerCount;
+    private final Duration retention;
+    private final Duration drainTimeout;
+
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile long drainDeadline;
+
+    public record Tracked(String id, Integer orderNumber, HoneyType honeyType, Status status, String note, Instant updatedAt) {
+    }
+
+    private record Ticket(String id, Order order, long enqueuedNanos) {
+    }
+
+    public OrderIntake(ReservationScheduler scheduler,
+                       OrderRecordRepository orderRecords,
+                       ReservationMetrics metrics,
+                       @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                       OrderLookupCache lookups,
+                       MeterRegistry registry,
+                       @Value("${orders.intake.capacity:1000}") int capacity,
+                       @Value("${orders.intake.workers:8}") int workerCount,
+                       @Value("${orders.intake.retention-ms:300000}") long retentionMs,
+                       @Value("${orders.intake.drain-timeout-ms:10000}") long drainTimeoutMs) {
+        if (workerCount <= 0) throw new IllegalArgumentException("orders.intake.workers must be > 0");
+        this.scheduler = requireNonNull(scheduler, "scheduler");
+        this.orderRecords = requireNonNull(orderRecords, "orderRecords");
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.lookups = requireNonNull(lookups, "lookups");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workerCount = workerCount;
+        this.retention = Duration.ofMillis(retentionMs);
+        this.drainTimeout = Duration.ofMillis(drainTimeoutMs);
+
+        this.queueWait = Timer.builder("orders.intake.wait")
+                .description("Time accepted orders spend queued before reservation starts")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .description("Orders turned away because the intake queue was full")
+                .register(registry);
+        Gauge.builder("orders.intake.queued", queue, BlockingQueue::size)
+                .description("Accepted orders waiting for a worker")
+                .register(registry);
+    }
+
+    /**
+     * Queues the order and returns its tracking id, or empty when the queue is full or the
+     * intake is shutting down.
+     */
+    public Optional<String> submit(Order order) {
+        requireNonNull(order, "order");
+        if (!accepting) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        String id = UUID.randomUUID().toString();
+        Tracked t = new Tracked(id, order.orderNumber(), order.honeyType(), Status.NEW, null, Instant.now());
+        tracked.put(id, t);
+        if (!queue.offer(new Ticket(id, order, System.nanoTime()))) {
+            tracked.remove(id);
+            rejected.increment();
+            return Optional.empty();
+        }
+        return Optional.of(id);
+    }
+
+    public Optional<Tracked> status(String id) {
+        return Optional.ofNullable(tracked.get(id));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        accepting = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread t = vtFactory.newThread(this::drain);
+            threads.add(t);
+            t.start();
+        }
+        log.info("[intake] Started {} worker(s), capacity={}", workerCount, queue.remainingCapacity());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        drainDeadline = deadline;
+        accepting = false;
+        int busy = 0;
+        for (Thread t : threads) {
+            try {
+                if (!t.join(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())))) busy++;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        threads.clear();
+        if (busy > 0) {
+            log.warn("[intake] {} worker(s) still reserving after {} ms, left to finish", busy, drainTimeout.toMillis());
+        }
+        if (!queue.isEmpty()) {
+            log.warn("[intake] Stopped with {} accepted order(s) not reserved", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        while (accepting || (!queue.isEmpty() && System.nanoTime() - drainDeadline < 0)) {
+            Ticket ticket;
+            try {
+                ticket = queue.poll(accepting ? 1000 : 50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                return;
+            }
+            evictFinished();
+            if (ticket == null) continue;
+            queueWait.record(System.nanoTime() - ticket.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            process(ticket);
+        }
+    }
+
+    private void process(Ticket ticket) {
+        Order order = ticket.order();
+        update(ticket.id(), Status.PROCESSING, null);
+        Status status;
+        String note;
+        try {
+            ReservationResult result = scheduler.reserveFor(order);
+            status = result.success() ? Status.RESERVED : Status.FAILED;
+            note = result.message();
+        } catch (Exception ex) {
+            status = Status.FAILED;
+            note = "EXCEPTION: " + ex.getMessage();
+            log.warn("[intake] order#{} [{}] failed: {}", order.orderNumber(), order.honeyType(), ex.toString());
+        }
+        Status finalStatus = status;
+        String finalNote = note;
+        try {
+            metrics.timed(ReservationMetrics.RECORD_SAVE, order.honeyType(), () -> orderRecords.save(new OrderRecord(
+                    null,
+                    order.orderNumber(),
+                    order.honeyType(),
+                    order.jarQuantities(),
+                    Instant.now(),
+                    finalStatus,
+                    finalNote
+            )));
+        } catch (Exception ex) {
+            log.warn("[intake] Could not save record for order#{} [{}]: {}",
+                    order.orderNumber(), order.honeyType(), ex.toString());
+        }
+        lookups.invalidate(order.orderNumber());
+        update(ticket.id(), finalStatus, finalNote);
+    }
+
+    private void update(String id, Status status, String note) {
+        tracked.computeIfPresent(id, (k, t) ->
+                new Tracked(t.id(), t.orderNumber(), t.honeyType(), status, note, Instant.now()));
+    }
+
+    private void evictFinished() {
+        long due = nextEviction.get();
+        long now = System.nanoTime();
+        if (now - due < 0 || !nextEviction.compareAndSet(due, now + TimeUnit.SECONDS.toNanos(1))) return;
+        Instant cutoff = Instant.now().minus(retention);
+        tracked.values().removeIf(t -> (t.status() == Status.RESERVED || t.status() == Status.FAILED)
+                && t.updatedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,80 @@
+package com.marianbastiurea.domain.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marianbastiurea.domain.model.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read-through cache in front of {@link OrderService#findByOrderNumber}. Paths that write an
+ * order call {@link #invalidate(int)}; {@code orders.cache.ttl-ms} bounds staleness for writes
+ * made elsewhere. Unknown order numbers are not cached.
+ */
+@Service
+public class OrderLookupCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderLookupCache.class);
+
+    private final OrderService orderService;
+    private final Cache<Integer, Entry> cache;
+
+    public record Entry(List<Order> orders, String etag) {
+    }
+
+    public OrderLookupCache(OrderService orderService,
+                            MeterRegistry registry,
+                            @Value("${orders.cache.max-size:10000}") long maxSize,
+                            @Value("${orders.cache.ttl-ms:60000}") long ttlMs) {
+        this.orderService = requireNonNull(orderService, "orderService");
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "orders.lookup");
+        log.info("Order lookup cache: maxSize={}, ttl={} ms", maxSize, ttlMs);
+    }
+
+    public Optional<Entry> lookup(int orderNumber) {
+        return Optional.ofNullable(cache.get(orderNumber, this::load));
+    }
+
+    public void invalidate(int orderNumber) {
+        cache.invalidate(orderNumber);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Entry load(Integer orderNumber) {
+        List<Order> orders = orderService.findByOrderNumber(orderNumber);
+        if (orders == null || orders.isEmpty()) return null;
+        return new Entry(orders, etag(orderNumber, orders));
+    }
+
+    private static String etag(int orderNumber, List<Order> orders) {
+        StringBuilder canonical = new StringBuilder();
+        for (Order o : orders) {
+            canonical.append(o.honeyType()).append('{');
+            o.jarQuantities().forEach((jar, qty) -> canonical.append(jar).append('=').append(qty).append(','));
+            canonical.append('}');
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return "\"" + orderNumber + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+}
@@ -1,12 +1,11 @@
 package com.marianbastiurea.domain.services;
 
 import com.marianbastiurea.api.dto.PlaceOrderRequest;
-import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
 import com.marianbastiurea.domain.model.Order;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
 
 
 public interface OrderService {
@@ -16,8 +15,8 @@ public interface OrderService {
 
 
     void logProcessing(int orderNumber,
-                       Map<JarType, Integer> requestedByJar,
-                       Map<JarType, Integer> deliveredByJar,
+                       JarQuantities requestedByJar,
+                       JarQuantities deliveredByJar,
                        String reason);
 
     @Transactional
@@ -1,7 +1,7 @@
 package com.marianbastiurea.domain.services;
 
 import com.marianbastiurea.api.dto.PlaceOrderRequest;
-import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
 import com.marianbastiurea.domain.model.Order;
 import com.marianbastiurea.domain.repo.OrderRepo;
 import com.marianbastiurea.domain.repository.OrderRecordRepository;
@@ -11,7 +11,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 import static java.util.Objects.requireNonNull;
@@ -43,19 +42,16 @@ public class OrderServiceJdbc implements OrderService {
     @Override
     @Transactional
     public void logProcessing(int orderNumber,
-                              Map<JarType, Integer> requestedByJar,
-                              Map<JarType, Integer> deliveredByJar,
+                              JarQuantities requestedByJar,
+                              JarQuantities deliveredByJar,
                               String reason) {
         requireNonNull(requestedByJar, "requestedByJar");
         requireNonNull(deliveredByJar, "deliveredByJar");
 
         final String why = (reason == null) ? "" : reason;
 
-        requestedByJar.forEach((jt, req) -> {
-            int requested = (req == null) ? 0 : req;
-            int delivered = deliveredByJar.getOrDefault(jt, 0);
-            repo.insertProcessingLog(orderNumber, jt, requested, delivered, why);
-        });
+        requestedByJar.forEach((jt, requested) ->
+                repo.insertProcessingLog(orderNumber, jt, requested, deliveredByJar.get(jt), why));
     }
 
 
@@ -63,7 +59,7 @@ public class OrderServiceJdbc implements OrderService {
     @Override
     public Order create(PlaceOrderRequest req) {
         requireNonNull(req, "req");
-        Order order = new Order(req.honeyType(), req.jarQuantities(), req.orderNumber());
+        Order order = new Order(req.honeyType(), req.quantities(), req.orderNumber());
         orderRecordRepository.save(order);
         return order;
     }
@@ -0,0 +1,281 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.OrderRecord;
+import com.marianbastiurea.domain.repo.OrderQueue;
+import com.marianbastiurea.domain.repo.OrderQueue.Claimed;
+import com.marianbastiurea.domain.repo.OrderQueue.Outcome;
+import com.marianbastiurea.domain.repo.PartitionLeases;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import com.marianbastiurea.infrastructure.jdbc.WriteFence;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Claims pending order groups from {@link OrderQueue} on {@code order.workers.count} virtual
+ * threads, reserves them and settles the claim with its token. Only orders deferred before the
+ * honey write go back to the queue. With {@code partitions.enabled} only groups of owned honey
+ * types are claimed, and the honey write runs under a {@link WriteFence} at the lease epoch.
+ */
+@Service
+@ConditionalOnProperty(name = "order.workers.enabled", havingValue = "true")
+public class OrderWorkers implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWorkers.class);
+
+    private final OrderQueue queue;
+    private final ReservationScheduler scheduler;
+    private final OrderRecordRepository orderRecords;
+    private final ReservationMetrics metrics;
+    private final ThreadFactory vtFactory;
+    private final PartitionLeases partitions;
+    private final OrderLookupCache lookups;
+
+    private final String nodeId;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration idleMin;
+    private final Duration idleMax;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    private final AtomicInteger busy = new AtomicInteger();
+    private final Timer claimTimer;
+    private final Counter claimed;
+    private final MeterRegistry registry;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public OrderWorkers(OrderQueue queue,
+                        ReservationScheduler scheduler,
+                        OrderRecordRepository orderRecords,
+                        ReservationMetrics metrics,
+                        @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                        ObjectProvider<PartitionLeases> partitions,
+                        OrderLookupCache lookups,
+                        MeterRegistry registry,
+                        @Value("${order.workers.node-id:}") String nodeId,
+                        @Value("${order.workers.count:4}") int workerCount,
+                        @Value("${order.workers.batch-size:8}") int batchSize,
+                        @Value("${order.workers.idle-min-ms:50}") long idleMinMs,
+                        @Value("${order.workers.idle-max-ms:2000}") long idleMaxMs,
+                        @Value("${order.workers.lease-ms:60000}") long leaseMs,
+                        @Value("${order.workers.max-attempts:3}") int maxAttempts,
+                        @Value("${app.process-orders-on-startup:false}") boolean startupRunner) {
+        if (workerCount <= 0) throw new IllegalArgumentException("order.workers.count must be > 0");
+        if (batchSize <= 0) throw new IllegalArgumentException("order.workers.batch-size must be > 0");
+        this.queue = requireNonNull(queue, "queue");
+        this.scheduler = requireNonNull(scheduler, "scheduler");
+        this.orderRecords = requireNonNull(orderRecords, "orderRecords");
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        Set<HoneyType> all = Set.copyOf(EnumSet.allOf(HoneyType.class));
+        this.partitions = partitions.getIfAvailable(() -> () -> all);
+        this.lookups = requireNonNull(lookups, "lookups");
+        this.registry = requireNonNull(registry, "registry");
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.idleMin = Duration.ofMillis(Math.max(1, idleMinMs));
+        this.idleMax = Duration.ofMillis(Math.max(idleMinMs, idleMaxMs));
+        this.lease = Duration.ofMillis(leaseMs);
+        this.maxAttempts = maxAttempts;
+        if (startupRunner) {
+            log.warn("[workers] app.process-orders-on-startup=true also reserves every order in public.orders; "
+                    + "disable it when queue workers are enabled");
+        }
+
+        this.claimTimer = Timer.builder("order.workers.claim")
+                .description("Time to claim a batch of order groups")
+                .tag("node", this.nodeId)
+                .register(registry);
+        this.claimed = Counter.builder("order.workers.claimed")
+                .description("Order groups claimed by this node")
+                .tag("node", this.nodeId)
+                .register(registry);
+        Gauge.builder("order.workers.busy", busy, AtomicInteger::get)
+                .description("Workers currently processing a batch")
+                .tag("node", this.nodeId)
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            String worker = nodeId + "/w" + i;
+            Thread t = vtFactory.newThread(() -> loop(worker));
+            threads.add(t);
+            t.start();
+        }
+        log.info("[workers] Started {} worker(s) on {} (batch={}, idle={}..{} ms, lease={} ms, maxAttempts={})",
+                workerCount, nodeId, batchSize, idleMin.toMillis(), idleMax.toMillis(), lease.toMillis(), maxAttempts);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        threads.forEach(LockSupport::unpark);
+        for (Thread t : threads) {
+            try {
+                if (!t.join(lease)) log.warn("[workers] {} still busy after {} ms", t.getName(), lease.toMillis());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+        log.info("[workers] Stopped workers on {}", nodeId);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void loop(String worker) {
+        long idleNanos = idleMin.toNanos();
+        while (running) {
+            List<Claimed> batch;
+            try {
+                Timer.Sample sample = Timer.start(registry);
+                batch = queue.claim(worker, partitions.owned(), batchSize, lease);
+                sample.stop(claimTimer);
+            } catch (Exception ex) {
+                log.warn("[workers] {} claim failed: {}", worker, ex.toString());
+                batch = List.of();
+            }
+
+            if (batch.isEmpty()) {
+                long jitter = ThreadLocalRandom.current().nextLong(idleNanos / 4 + 1);
+                LockSupport.parkNanos(idleNanos + jitter);
+                idleNanos = Math.min(idleNanos * 2, idleMax.toNanos());
+                continue;
+            }
+
+            claimed.increment(batch.size());
+            busy.incrementAndGet();
+            try {
+                for (Claimed c : batch) {
+                    process(worker, c);
+                }
+            } finally {
+                busy.decrementAndGet();
+            }
+            // a full batch means there is more waiting, so claim again at once; an empty claim
+            // after it still backs off from idleMin
+            idleNanos = idleMin.toNanos();
+            if (batch.size() < batchSize) LockSupport.parkNanos(idleNanos);
+        }
+    }
+
+    private void process(String worker, Claimed batched) {
+        Order order = batched.order();
+        long epoch = partitions.epoch(order.honeyType());
+        if (epoch == PartitionLeases.NOT_OWNED) {
+            // the partition moved while the group waited in the batch; nothing is written, hand it back
+            settle(worker, batched, Outcome.RETRY, "Deferred: partition " + order.honeyType() + " no longer owned");
+            return;
+        }
+        Claimed claimed = batched.at(epoch);
+        try {
+            if (!queue.renew(worker, claimed)) {
+                log.info("[workers] {} lost its claim on order#{} [{}] (epoch {}) before reserving it, skipped",
+                        worker, order.orderNumber(), order.honeyType(), epoch);
+                return;
+            }
+        } catch (Exception ex) {
+            // nothing is written yet; the claim expires after the lease and the group is picked up again
+            log.warn("[workers] {} could not renew its claim on order#{} [{}]: {}",
+                    worker, order.orderNumber(), order.honeyType(), ex.toString());
+            return;
+        }
+
+        Outcome outcome;
+        String message;
+        try {
+            ReservationResult result = epoch == PartitionLeases.UNFENCED
+                    ? scheduler.reserveFor(order)
+                    : WriteFence.callAt(epoch, () -> scheduler.reserveFor(order));
+            message = result.message();
+            if (result.success()) {
+                outcome = Outcome.DONE;
+            } else if (result.deferred()) {
+                // the orchestrator and the scheduler only defer before the honey write
+                outcome = claimed.attempts() < maxAttempts ? Outcome.RETRY : Outcome.FAILED;
+            } else {
+                outcome = Outcome.FAILED;
+            }
+        } catch (Exception ex) {
+            // may have been thrown after honey was taken, where a retry would take it again
+            message = "EXCEPTION: " + ex.getMessage();
+            outcome = Outcome.FAILED;
+            log.warn("[workers] {} order#{} [{}] attempt {} failed: {}",
+                    worker, order.orderNumber(), order.honeyType(), claimed.attempts(), ex.toString());
+        }
+
+        if (outcome != Outcome.RETRY) {
+            saveRecord(order, outcome == Outcome.DONE ? OrderRecord.Status.RESERVED : OrderRecord.Status.FAILED, message);
+        }
+        settle(worker, claimed, outcome, message);
+    }
+
+    private void settle(String worker, Claimed claimed, Outcome outcome, String message) {
+        Order order = claimed.order();
+        try {
+            queue.complete(worker, claimed, outcome, message);
+            lookups.invalidate(order.orderNumber());
+        } catch (Exception ex) {
+            // the claim expires after the lease and the group is picked up again
+            log.warn("[workers] {} could not settle order#{} [{}]: {}",
+                    worker, order.orderNumber(), order.honeyType(), ex.toString());
+        }
+        registry.counter("order.workers.completed", "outcome", outcome.name().toLowerCase()).increment();
+    }
+
+    private void saveRecord(Order order, OrderRecord.Status status, String message) {
+        try {
+            metrics.timed(ReservationMetrics.RECORD_SAVE, order.honeyType(), () -> orderRecords.save(new OrderRecord(
+                    null,
+                    order.orderNumber(),
+                    order.honeyType(),
+                    order.jarQuantities(),
+                    Instant.now(),
+                    status,
+                    message
+            )));
+        } catch (Exception ex) {
+            log.warn("[workers] Could not save record for order#{} [{}]: {}",
+                    order.orderNumber(), order.honeyType(), ex.toString());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.model.ReservationCommitted;
+
+/**
+ * Called on the reserving thread after every packaging write of a reservation has committed.
+ * Implementations must be quick and must not throw.
+ */
+public interface ReservationListener {
+
+    void onCommitted(ReservationCommitted committed);
+}
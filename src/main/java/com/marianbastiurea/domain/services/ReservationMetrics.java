@@ -0,0 +1,65 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+@Component
+public class ReservationMetrics {
+
+    public static final String LOAD_INPUTS = "load-inputs";
+    public static final String SNAPSHOT_JARS = "snapshot-jars";
+    public static final String SNAPSHOT_LABELS = "snapshot-labels";
+    public static final String SNAPSHOT_CRATES = "snapshot-crates";
+    public static final String HONEY_AVAILABLE = "honey-available";
+    public static final String HONEY_PROCESS = "honey-process";
+    public static final String PACKAGING_JARS = "packaging-jars";
+    public static final String PACKAGING_LABELS = "packaging-labels";
+    public static final String PACKAGING_CRATES = "packaging-crates";
+    public static final String RECORD_SAVE = "record-save";
+
+    private final MeterRegistry registry;
+
+    public ReservationMetrics(MeterRegistry registry) {
+        this.registry = requireNonNull(registry, "registry");
+    }
+
+    public <T> T timed(String phase, HoneyType honey, Callable<T> work) throws Exception {
+        long t0 = System.nanoTime();
+        String outcome = "error";
+        try {
+            T out = work.call();
+            outcome = "success";
+            return out;
+        } finally {
+            recordPhase(phase, honey, outcome, System.nanoTime() - t0);
+        }
+    }
+
+    public void recordPhase(String phase, HoneyType honey, String outcome, long nanos) {
+        Timer.builder("reservation.phase")
+                .description("Duration of a single reservation phase")
+                .tag("phase", phase)
+                .tag("honey", honey.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOrder(HoneyType honey, String outcome, long nanos) {
+        Timer.builder("reservation.order")
+                .description("End-to-end duration of reserveFor")
+                .tag("honey", honey.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
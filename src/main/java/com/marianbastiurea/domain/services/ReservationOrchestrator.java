@@ -1,28 +1,49 @@
 package com.marianbastiurea.domain.services;
 
+import com.marianbastiurea.api.dto.DeliveryResult;
 import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
 import com.marianbastiurea.domain.enums.JarType;
 import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.JarQuantities;
 import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.PackagingDelivery;
 import com.marianbastiurea.domain.model.PackagingSnapshot;
-import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.model.ReservationCommitted;
 import com.marianbastiurea.domain.repo.CrateRepo;
 import com.marianbastiurea.domain.repo.HoneyRepo;
 import com.marianbastiurea.domain.repo.JarRepo;
 import com.marianbastiurea.domain.repo.LabelRepo;
+import com.marianbastiurea.domain.services.AllocationOptimizer.Planned;
+import com.marianbastiurea.domain.services.ReservationPlanner.Caps;
+import com.marianbastiurea.infrastructure.jdbc.PartitionFencedException;
+import com.marianbastiurea.infrastructure.jdbc.QueryDeadline;
+import com.marianbastiurea.infrastructure.jfr.OrderReservationEvent;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuard;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuards;
+import com.marianbastiurea.infrastructure.resilience.DependencyUnavailableException;
+import com.marianbastiurea.infrastructure.resilience.HedgedReads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
 
+import static com.marianbastiurea.domain.services.ReservationPlanner.capsFromSnapshot;
+import static com.marianbastiurea.domain.services.ReservationPlanner.fmtJarBreakdown;
+import static com.marianbastiurea.domain.services.ReservationPlanner.labelTypeFor;
 import static java.util.Objects.requireNonNull;
 
 @Service
@@ -39,11 +60,16 @@ public class ReservationOrchestrator {
     private final TransactionTemplate cratesTT;
     private final TransactionTemplate labelsTT;
 
-    private final NamedParameterJdbcTemplate jarsTpl;
-    private final NamedParameterJdbcTemplate labelsTpl;
-    private final NamedParameterJdbcTemplate cratesTpl;
 
     private final ThreadFactory vtFactory;
+    private final DependencyGuards guards;
+    private final HedgedReads hedgedReads;
+    private final ReservationMetrics metrics;
+    private final HoldLedger holds;
+    private final ExhaustionIndex exhaustion;
+    private final List<ReservationListener> listeners;
+    private final Duration deadline;
+    private final int packagingBatch;
 
     public ReservationOrchestrator(@Qualifier("routerHoneyRepo") HoneyRepo honeyRepo,
                                    JarRepo jarRepo,
@@ -52,10 +78,15 @@ public class ReservationOrchestrator {
                                    @Qualifier("jarsTT") TransactionTemplate jarsTT,
                                    @Qualifier("cratesTT") TransactionTemplate cratesTT,
                                    @Qualifier("labelsTT") TransactionTemplate labelsTT,
-                                   @Qualifier("jarsTpl") NamedParameterJdbcTemplate jarsTpl,
-                                   @Qualifier("labelsTpl") NamedParameterJdbcTemplate labelsTpl,
-                                   @Qualifier("cratesTpl") NamedParameterJdbcTemplate cratesTpl,
-                                   @Qualifier("vtThreadFactory") ThreadFactory vtFactory) {
+                                   @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                                   DependencyGuards guards,
+                                   HedgedReads hedgedReads,
+                                   ReservationMetrics metrics,
+                                   HoldLedger holds,
+                                   ExhaustionIndex exhaustion,
+                                   ObjectProvider<ReservationListener> listeners,
+                                   @Value("${reservation.deadline-ms:3000}") long deadlineMs,
+                                   @Value("${reservation.bulk.packaging-batch:32}") int packagingBatch) {
         this.honeyRepo = requireNonNull(honeyRepo, "honeyRepo");
         this.jarRepo = requireNonNull(jarRepo, "jarRepo");
         this.crateRepo = requireNonNull(crateRepo, "crateRepo");
@@ -63,81 +94,180 @@ public class ReservationOrchestrator {
         this.jarsTT = requireNonNull(jarsTT, "jarsTT");
         this.cratesTT = requireNonNull(cratesTT, "cratesTT");
         this.labelsTT = requireNonNull(labelsTT, "labelsTT");
-        this.jarsTpl = requireNonNull(jarsTpl, "jarsTpl");
-        this.labelsTpl = requireNonNull(labelsTpl, "labelsTpl");
-        this.cratesTpl = requireNonNull(cratesTpl, "cratesTpl");
         this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.guards = requireNonNull(guards, "guards");
+        this.hedgedReads = requireNonNull(hedgedReads, "hedgedReads");
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.holds = requireNonNull(holds, "holds");
+        this.exhaustion = requireNonNull(exhaustion, "exhaustion");
+        this.listeners = listeners.orderedStream().toList();
+        this.deadline = Duration.ofMillis(deadlineMs);
+        this.packagingBatch = Math.max(1, packagingBatch);
     }
 
     public ReservationResult reserveFor(Order order) {
+        return reserveFor(order, JarQuantities.NONE);
+    }
+
+    /**
+     * Reserves a held order: stock set aside by other holds stays out of reach, the hold's own
+     * stock is available to it.
+     */
+    public ReservationResult reserveHeld(Hold hold) {
+        requireNonNull(hold, "hold");
+        return reserveFor(hold.order(), hold.jarQuantities());
+    }
+
+    private ReservationResult reserveFor(Order order, JarQuantities ownHold) {
         requireNonNull(order, "order");
         if (order.jarQuantities() == null || order.jarQuantities().isEmpty()) {
             return ReservationResult.failure("Nu s-au cerut borcane pentru comanda #" + order.orderNumber());
         }
 
+        OrderReservationEvent event = new OrderReservationEvent();
+        event.begin();
         long t0 = System.nanoTime();
-        try {
-            PackagingSnapshot snapshot;
-            BigDecimal honeyFreeKg;
-            try (var scope = new StructuredTaskScope.ShutdownOnFailure("load-inputs", vtFactory)) {
-                var fSnap = scope.fork(() -> loadPackagingSnapshotFor(order));
-                var fHoney = scope.fork(() -> nonNeg(honeyRepo.availableKg(order.honeyType())));
-                scope.join().throwIfFailed();
-                snapshot = fSnap.get();
-                honeyFreeKg = fHoney.get();
-            }
+        ReservationResult result = reserve(order, ownHold, t0, event);
+        String outcome = result.success() ? "reserved"
+                : result.deferred() ? "deferred" : "failed";
+        metrics.recordOrder(order.honeyType(), outcome, System.nanoTime() - t0);
+        event.end();
+        if (event.shouldCommit()) {
+            event.orderNumber = order.orderNumber();
+            event.honeyType = order.honeyType().name();
+            event.outcome = outcome;
+            event.commit();
+        }
+        return result;
+    }
 
-            BigDecimal needKg = jarsToKg(order.jarQuantities());
+    private ReservationResult reserve(Order order, JarQuantities ownHold, long t0, OrderReservationEvent event) {
+        HoneyType honey = order.honeyType();
+        LimitingResource exhausted = exhaustion.doomed(order);
+        if (exhausted != LimitingResource.NONE) {
+            return ReservationResult.failure("Can't deliver nothing: " + exhausted + " exhausted.");
+        }
+        DependencyGuard honeyGuard = guards.honey(order.honeyType());
+        boolean honeyTaken = false;
+        try {
+            Instant loadDeadline = Instant.now().plus(deadline);
+            Inputs inputs = metrics.timed(ReservationMetrics.LOAD_INPUTS, honey, () -> QueryDeadline.callWithin(loadDeadline, () -> {
+                try (var scope = new StructuredTaskScope.ShutdownOnFailure("load-inputs", vtFactory)) {
+                    var fSnap = scope.fork(() -> loadPackagingSnapshotFor(order, loadDeadline));
+                    var fHoney = scope.fork(() -> nonNeg(metrics.timed(ReservationMetrics.HONEY_AVAILABLE, honey,
+                            () -> hedgedReads.read("honey-" + honey, honeyGuard, () -> honeyRepo.availableKg(honey)))));
+                    scope.joinUntil(loadDeadline).throwIfFailed();
+                    return new Inputs(fSnap.get(), fHoney.get());
+                }
+            }));
+            long tLoaded = System.nanoTime();
+            event.loadInputs = tLoaded - t0;
+            exhaustion.observe(inputs.snapshot());
+            exhaustion.observeRead(honey, inputs.honeyFreeKg());
+            PackagingSnapshot snapshot = holds.unheld(inputs.snapshot(), ownHold);
+            BigDecimal honeyFreeKg = holds.unheldKg(honey, inputs.honeyFreeKg(), ownHold);
+
+            BigDecimal needKg = order.jarQuantities().kg();
+            event.requestedKg = needKg.doubleValue();
             if (needKg.signum() <= 0) return ReservationResult.failure("No quantity.");
 
-            Caps caps = capsFromSnapshot(order, snapshot);
-            BigDecimal pkgCapKg = min(caps.jarsKg, caps.labelsKg, caps.cratesKg);
+            Caps caps = capsFromSnapshot(order.jarQuantities(), snapshot);
+            BigDecimal pkgCapKg = min(caps.jarsKg(), caps.labelsKg(), caps.cratesKg());
 
             BigDecimal targetKg = min(needKg, honeyFreeKg, pkgCapKg);
             if (targetKg.signum() <= 0) {
                 return ReservationResult.failure("Can't deliver nothing: need=" + needKg + ", honey=" + honeyFreeKg + ", pkg=" + pkgCapKg);
             }
 
-            Map<JarType, Integer> approvedJars = reduceJarsToTargetKg(order.jarQuantities(), targetKg);
-            BigDecimal approvedKg = jarsToKg(approvedJars);
-            if (approvedKg.signum() <= 0 || isZeroJars(approvedJars)) {
+            JarQuantities approvedJars = order.jarQuantities().reducedToKg(targetKg);
+            BigDecimal approvedKg = approvedJars.kg();
+            if (approvedKg.signum() <= 0) {
                 return ReservationResult.failure("No jars delivered (targetKg=" + targetKg + ").");
             }
 
-            var honeyRes = honeyRepo.processOrder(order.honeyType(), order.orderNumber(), approvedKg);
-            BigDecimal deliveredKg = nonNeg(honeyRes.deliveredKg());
-            if (deliveredKg.signum() <= 0) {
-                return ReservationResult.failure("No honey delivered (deliver=0).");
+            // packaging slots are taken before honey is debited and held until packaging is written,
+            // so nothing after the honey write can turn the order away
+            try (var jarsPermit = guards.jars().acquire();
+                 var labelsPermit = guards.labels().acquire();
+                 var cratesPermit = guards.crates().acquire()) {
+                long tHoney = System.nanoTime();
+                var honeyRes = metrics.timed(ReservationMetrics.HONEY_PROCESS, honey,
+                        () -> honeyGuard.call(() -> honeyRepo.processOrder(honey, order.orderNumber(), approvedKg)));
+                long tPackaging = System.nanoTime();
+                event.honeyProcess = tPackaging - tHoney;
+                BigDecimal deliveredKg = nonNeg(honeyRes.deliveredKg());
+                event.deliveredKg = deliveredKg.doubleValue();
+                if (deliveredKg.signum() <= 0) {
+                    exhaustion.observeWrite(honey, nonNeg(honeyRes.newStock()), honeyRes.newVersion());
+                    return ReservationResult.failure("No honey delivered (deliver=0).");
+                }
+                honeyTaken = true;
+
+
+                JarQuantities planForDelivered = approvedJars.reducedToKg(deliveredKg);
+                log.info("[deliver] PACKAGING PLAN (from honeyDelivered={}):\n{}", deliveredKg, fmtJarBreakdown(planForDelivered));
+
+
+                // conditional on the versions the plan was made against; only rows that moved on are replanned
+                PackagingDelivery<JarType> jarsOut = metrics.timed(ReservationMetrics.PACKAGING_JARS, honey,
+                        () -> jarsPermit.call(() -> jarsTT.execute(s -> jarRepo.deliveredJars(planForDelivered, snapshot.jars()))));
+                PackagingDelivery<LabelType> labelsOut = metrics.timed(ReservationMetrics.PACKAGING_LABELS, honey,
+                        () -> labelsPermit.call(() -> labelsTT.execute(s -> labelRepo.deliveredLabels(planForDelivered, snapshot.labels()))));
+                PackagingDelivery<CrateType> cratesOut = metrics.timed(ReservationMetrics.PACKAGING_CRATES, honey,
+                        () -> cratesPermit.call(() -> cratesTT.execute(s -> crateRepo.deliveredCrates(planForDelivered, snapshot.crates()))));
+
+                event.packaging = System.nanoTime() - tPackaging;
+                long ms = (System.nanoTime() - t0) / 1_000_000;
+                JarQuantities packed = packOut(planForDelivered, delivered(jarsOut, JarType.values()),
+                        delivered(labelsOut, LabelType.values()), delivered(cratesOut, CrateType.values()));
+                int totalJarsDelivered = packed.total();
+                event.jars = totalJarsDelivered;
+                if (packed.isEmpty()) {
+                    log.error("[deliver] ❌ ERROR order#{} [{}]: packaging ran out after {} kg honey was taken. jars:\n{}",
+                            order.orderNumber(), honey, deliveredKg, fmtJarBreakdown(planForDelivered));
+                    return ReservationResult.failure("Error: packaging ran out after " + deliveredKg + " kg honey was taken.");
+                }
+                publish(new ReservationCommitted(order.orderNumber(), honey, deliveredKg, totalJarsDelivered,
+                        nonNeg(honeyRes.newStock()), honeyRes.newVersion(),
+                        jarsOut.remaining(), labelsOut.remaining(), cratesOut.remaining()));
+                if (!packed.equals(planForDelivered)) {
+                    log.warn("[deliver] order#{} [{}]: packaging short, packed {} of {} jar(s) for {} kg honey taken, {} ms",
+                            order.orderNumber(), honey, totalJarsDelivered, planForDelivered.total(), deliveredKg, ms);
+                    return ReservationResult.success("Delivered " + deliveredKg + " kg, packaging short: "
+                            + totalJarsDelivered + " of " + planForDelivered.total() + " borcane.", packed);
+                }
+                log.info("[deliver] ✅ SUCCESS order#{} [{}]: deliveredKg={}, jars={}, {} ms",
+                        order.orderNumber(), order.honeyType(), deliveredKg, totalJarsDelivered, ms);
+                return ReservationResult.success("Delivered " + deliveredKg + " kg (" + totalJarsDelivered + " borcane).",
+                        packed);
             }
 
-
-            Map<JarType, Integer> planForDelivered = reduceJarsToTargetKg(approvedJars, deliveredKg);
-            BigDecimal packagingKg = jarsToKg(planForDelivered);
-            log.info("[deliver] PACKAGING PLAN (from honeyDelivered={}):\n{}", deliveredKg, fmtJarBreakdown(planForDelivered));
-
-
-            jarsTT.execute(s -> {
-                jarRepo.deliveredJars(planForDelivered);
-                return null;
-            });
-            labelsTT.execute(s -> {
-                labelRepo.deliveredLabels(planForDelivered);
-                return null;
-            });
-            cratesTT.execute(s -> {
-                crateRepo.deliveredCrates(planForDelivered);
-                return null;
-            });
-
-            long ms = (System.nanoTime() - t0) / 1_000_000;
-            int totalJarsDelivered = planForDelivered.values().stream().mapToInt(Integer::intValue).sum();
-            log.info("[deliver] ✅ SUCCESS order#{} [{}]: deliveredKg={}, jars={}, {} ms",
-                    order.orderNumber(), order.honeyType(), deliveredKg, totalJarsDelivered, ms);
-
-            return ReservationResult.success("Delivered " + deliveredKg + " kg (" + totalJarsDelivered + " borcane).");
-
         } catch (Exception ex) {
             long ms = (System.nanoTime() - t0) / 1_000_000;
+            if (honeyTaken) {
+                // honey is debited: a retry would debit it again, so this is final whatever the cause
+                log.error("[deliver] ❌ ERROR order#{} [{}] in {} ms, after honey was taken. jars:\n{}",
+                        order.orderNumber(), order.honeyType(), ms, fmtJarBreakdown(order.jarQuantities()), ex);
+                return ReservationResult.failure("Error: " + ex.getMessage());
+            }
+            if (causeOf(ex, TimeoutException.class) != null) {
+                log.warn("[deliver] ⏱ DEADLINE order#{} [{}]: inputs not loaded within {} ms (took {} ms)",
+                        order.orderNumber(), order.honeyType(), deadline.toMillis(), ms);
+                return ReservationResult.deferred("inputs not loaded within " + deadline.toMillis() + " ms.");
+            }
+            DependencyUnavailableException unavailable = causeOf(ex, DependencyUnavailableException.class);
+            if (unavailable != null) {
+                log.warn("[deliver] ⏸ DEFERRED order#{} [{}] in {} ms: {}",
+                        order.orderNumber(), order.honeyType(), ms, unavailable.getMessage());
+                return ReservationResult.deferred(unavailable.getMessage());
+            }
+            PartitionFencedException fenced = causeOf(ex, PartitionFencedException.class);
+            if (fenced != null) {
+                // the partition's new owner will reserve it
+                log.warn("[deliver] ⏸ FENCED order#{} [{}] in {} ms: {}",
+                        order.orderNumber(), order.honeyType(), ms, fenced.getMessage());
+                return ReservationResult.deferred(fenced.getMessage());
+            }
             log.error("[deliver] ❌ ERROR order#{} [{}] in {} ms. jars:\n{}",
                     order.orderNumber(), order.honeyType(), ms, fmtJarBreakdown(order.jarQuantities()), ex);
             return ReservationResult.failure("Error: " + ex.getMessage());
@@ -145,213 +275,251 @@ public class ReservationOrchestrator {
     }
 
 
-    private PackagingSnapshot loadPackagingSnapshotFor(Order order) throws Exception {
-        Set<JarType> jarTypes = order.jarQuantities().keySet();
-        Set<LabelType> labelTypes = new HashSet<>();
-        Set<CrateType> crateTypes = new HashSet<>();
-        for (JarType jt : jarTypes) {
-            labelTypes.add(labelTypeFor(jt));
-            crateTypes.add(CrateType.forJarType(jt));
+    /**
+     * Commits a plan from {@link AllocationOptimizer} in bulk, honey types side by side, each in
+     * batches whose packaging goes out in one transaction per kind. What was actually delivered is
+     * split back onto the batch in plan order. The plan must already leave held stock aside.
+     */
+    public List<ReservationResult> commitPlan(List<Planned> plan) {
+        requireNonNull(plan, "plan");
+        long t0 = System.nanoTime();
+        int n = plan.size();
+        ReservationResult[] results = new ReservationResult[n];
+        Map<HoneyType, List<Integer>> byHoney = new EnumMap<>(HoneyType.class);
+        for (int i = 0; i < n; i++) {
+            Planned p = plan.get(i);
+            if (p.approved().isEmpty()) {
+                results[i] = ReservationResult.failure("Not allocated (limited by " + p.limitedBy() + ").");
+            } else {
+                byHoney.computeIfAbsent(p.order().honeyType(), h -> new ArrayList<>()).add(i);
+            }
         }
+        if (byHoney.isEmpty()) return Arrays.asList(results);
 
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure("snap", vtFactory)) {
-            var fJars = scope.fork(() -> loadJarsStock(jarTypes));
-            var fLabels = scope.fork(() -> loadLabelsStock(labelTypes));
-            var fCrates = scope.fork(() -> loadCratesStock(crateTypes));
-            scope.join().throwIfFailed();
-            return new PackagingSnapshot(fJars.get(), fLabels.get(), fCrates.get());
+        try {
+            guards.jars().ensureAvailable();
+            guards.labels().ensureAvailable();
+            guards.crates().ensureAvailable();
+        } catch (DependencyUnavailableException ex) {
+            log.warn("[deliver/bulk] ⏸ DEFERRED {} order(s): {}", n, ex.getMessage());
+            byHoney.values().forEach(idx -> idx.forEach(i ->
+                    results[i] = ReservationResult.deferred(ex.getMessage())));
+            return Arrays.asList(results);
+        }
+
+        try (var scope = new StructuredTaskScope<Object>("commit-plan", vtFactory)) {
+            byHoney.forEach((honey, idx) -> scope.fork(() -> {
+                for (int from = 0; from < idx.size(); from += packagingBatch) {
+                    commitBatch(plan, honey, idx.subList(from, Math.min(idx.size(), from + packagingBatch)), results);
+                }
+                return null;
+            }));
+            scope.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while committing plan", ex);
         }
+
+        int committed = 0;
+        for (ReservationResult r : results) if (r != null && r.success()) committed++;
+        log.info("[deliver/bulk] ✅ committed {}/{} order(s) in {} ms",
+                committed, n, (System.nanoTime() - t0) / 1_000_000);
+        return Arrays.asList(results);
     }
 
-    private Map<JarType, StockRow> loadJarsStock(Set<JarType> types) {
-        if (types.isEmpty()) return Map.of();
-        String sql = """
-                    SELECT jar_type, COALESCE(final_stock,0) AS final_stock, row_version
-                    FROM public.jar_stock
-                    WHERE jar_type IN (:types)
-                """;
-        List<String> names = types.stream().map(Enum::name).toList();
-        return jarsTpl.query(sql, Map.of("types", names), rs -> {
-            EnumMap<JarType, StockRow> m = new EnumMap<>(JarType.class);
-            while (rs.next()) {
-                JarType jt = JarType.valueOf(rs.getString("jar_type"));
-                m.put(jt, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+    /**
+     * Takes honey for each order of {@code batch} (indexes into {@code plan}, all of one honey
+     * type), delivers the batch's packaging and fills in the batch's results.
+     */
+    private void commitBatch(List<Planned> plan, HoneyType honey, List<Integer> batch, ReservationResult[] results) {
+        DependencyGuard guard = guards.honey(honey);
+        int m = batch.size();
+        DeliveryResult[] honeyRes = new DeliveryResult[m];
+        JarQuantities[] wanted = new JarQuantities[m];
+        JarQuantities jars = JarQuantities.NONE;
+        JarQuantities crateCapacity = JarQuantities.NONE;
+        for (int k = 0; k < m; k++) {
+            int i = batch.get(k);
+            Planned p = plan.get(i);
+            try {
+                honeyRes[k] = metrics.timed(ReservationMetrics.HONEY_PROCESS, honey,
+                        () -> guard.call(() -> honeyRepo.processOrder(honey, p.order().orderNumber(), p.approvedKg())));
+            } catch (DependencyUnavailableException ex) {
+                results[i] = ReservationResult.deferred(ex.getMessage());
+                continue;
+            } catch (Exception ex) {
+                log.error("[deliver/bulk] ❌ ERROR order#{} [{}]", p.order().orderNumber(), honey, ex);
+                results[i] = ReservationResult.failure("Error: " + ex.getMessage());
+                continue;
             }
-            return m;
-        });
-    }
+            BigDecimal deliveredKg = nonNeg(honeyRes[k].deliveredKg());
+            if (deliveredKg.signum() <= 0) {
+                exhaustion.observeWrite(honey, nonNeg(honeyRes[k].newStock()), honeyRes[k].newVersion());
+                results[i] = ReservationResult.failure("No honey delivered (deliver=0).");
+                continue;
+            }
+            wanted[k] = p.approved().reducedToKg(deliveredKg);
+            jars = jars.plus(wanted[k]);
+            // crates round up per order, so ask for whole crates' worth of jars
+            for (JarType jt : JarType.values()) {
+                CrateType ct = CrateType.forJarType(jt);
+                crateCapacity = crateCapacity.plus(jt, ct.jarsCapacityForCrates(ct.cratesNeededForJars(wanted[k].get(jt))));
+            }
+        }
+        if (jars.isEmpty()) return;
 
-    private Map<LabelType, StockRow> loadLabelsStock(Set<LabelType> types) {
-        if (types.isEmpty()) return Map.of();
-        String sql = """
-                    SELECT label_type, COALESCE(final_stock,0) AS final_stock, row_version
-                    FROM public.label_stock
-                    WHERE label_type IN (:types)
-                """;
-        List<String> names = types.stream().map(Enum::name).toList();
-        return labelsTpl.query(sql, Map.of("types", names), rs -> {
-            EnumMap<LabelType, StockRow> m = new EnumMap<>(LabelType.class);
-            while (rs.next()) {
-                LabelType lt = LabelType.valueOf(rs.getString("label_type"));
-                m.put(lt, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+        JarQuantities jarsPlan = jars;
+        JarQuantities cratesPlan = crateCapacity;
+        PackagingDelivery<JarType> jarsOut;
+        PackagingDelivery<LabelType> labelsOut;
+        PackagingDelivery<CrateType> cratesOut;
+        try {
+            jarsOut = guards.jars().call(() -> jarsTT.execute(s -> jarRepo.deliveredJars(jarsPlan)));
+            labelsOut = guards.labels().call(() -> labelsTT.execute(s -> labelRepo.deliveredLabels(jarsPlan)));
+            cratesOut = guards.crates().call(() -> cratesTT.execute(s -> crateRepo.deliveredCrates(cratesPlan)));
+        } catch (Exception ex) {
+            // honey is already taken: final, as for a single reservation failing after its honey write
+            List<Integer> orders = new ArrayList<>();
+            for (int k = 0; k < m; k++) {
+                if (wanted[k] == null) continue;
+                orders.add(plan.get(batch.get(k)).order().orderNumber());
+                results[batch.get(k)] = ReservationResult.failure("Error: " + ex.getMessage());
             }
-            return m;
-        });
-    }
+            log.error("[deliver/bulk] ❌ ERROR delivering packaging [{}] for order(s) {}:\n{}",
+                    honey, orders, fmtJarBreakdown(jarsPlan), ex);
+            return;
+        }
 
-    private Map<CrateType, StockRow> loadCratesStock(Set<CrateType> types) {
-        if (types.isEmpty()) return Map.of();
-        String sql = """
-                    SELECT crate_type, COALESCE(final_stock,0) AS final_stock, row_version
-                    FROM public.crate_stock
-                    WHERE crate_type IN (:types)
-                """;
-        List<String> names = types.stream().map(Enum::name).toList();
-        return cratesTpl.query(sql, Map.of("types", names), rs -> {
-            EnumMap<CrateType, StockRow> m = new EnumMap<>(CrateType.class);
-            while (rs.next()) {
-                CrateType ct = CrateType.valueOf(rs.getString("crate_type"));
-                m.put(ct, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+        int[] jarsLeft = delivered(jarsOut, JarType.values());
+        int[] labelsLeft = delivered(labelsOut, LabelType.values());
+        int[] cratesLeft = delivered(cratesOut, CrateType.values());
+
+        for (int k = 0; k < m; k++) {
+            if (wanted[k] == null) continue;
+            int i = batch.get(k);
+            Order order = plan.get(i).order();
+            JarQuantities packed = packOut(wanted[k], jarsLeft, labelsLeft, cratesLeft);
+            BigDecimal deliveredKg = nonNeg(honeyRes[k].deliveredKg());
+            if (packed.isEmpty()) {
+                log.error("[deliver/bulk] ❌ ERROR order#{} [{}]: packaging ran out after {} kg honey was taken. jars:\n{}",
+                        order.orderNumber(), honey, deliveredKg, fmtJarBreakdown(wanted[k]));
+                results[i] = ReservationResult.failure("Error: packaging ran out after " + deliveredKg + " kg honey was taken.");
+                continue;
             }
-            return m;
-        });
+            int totalJars = packed.total();
+            publish(new ReservationCommitted(order.orderNumber(), honey, deliveredKg, totalJars,
+                    nonNeg(honeyRes[k].newStock()), honeyRes[k].newVersion(),
+                    jarsOut.remaining(), labelsOut.remaining(), cratesOut.remaining()));
+            if (packed.equals(wanted[k])) {
+                results[i] = ReservationResult.success("Delivered " + deliveredKg + " kg (" + totalJars + " borcane).", packed);
+            } else {
+                log.warn("[deliver/bulk] order#{} [{}]: packaging short, packed {} of {} jar(s) for {} kg honey taken",
+                        order.orderNumber(), honey, totalJars, wanted[k].total(), deliveredKg);
+                results[i] = ReservationResult.success("Delivered " + deliveredKg + " kg, packaging short: "
+                        + totalJars + " of " + wanted[k].total() + " borcane.", packed);
+            }
+        }
     }
 
-
-    private record Caps(BigDecimal jarsKg, BigDecimal labelsKg, BigDecimal cratesKg) {
+    private static <E extends Enum<E>> int[] delivered(PackagingDelivery<E> out, E[] types) {
+        int[] counts = new int[types.length];
+        for (E type : types) counts[type.ordinal()] = out.delivered(type);
+        return counts;
     }
 
-    private Caps capsFromSnapshot(Order order, PackagingSnapshot snap) {
-        Map<JarType, Integer> req = order.jarQuantities();
-
-        BigDecimal jarsKg = BigDecimal.ZERO;
-        BigDecimal labelsKg = BigDecimal.ZERO;
-        BigDecimal cratesKg = BigDecimal.ZERO;
-
-        for (var e : req.entrySet()) {
-            JarType jt = e.getKey();
-            int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
-
-            int jarsAvail = getFinal(snap.jars().get(jt));
-            int jarsCan = Math.min(q, jarsAvail);
-            jarsKg = jarsKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(jarsCan)));
-
-            LabelType lt = labelTypeFor(jt);
-            int labelsAvail = getFinal(snap.labels().get(lt));
-            int labelsCan = Math.min(q, labelsAvail);
-            labelsKg = labelsKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(labelsCan)));
-
+    /**
+     * How much of {@code wanted} the delivered jars, labels and crates can pack, taken out of
+     * the per-type counts.
+     */
+    private static JarQuantities packOut(JarQuantities wanted, int[] jarsLeft, int[] labelsLeft, int[] cratesLeft) {
+        JarQuantities packed = JarQuantities.NONE;
+        for (JarType jt : JarType.values()) {
+            int q = wanted.get(jt);
+            if (q <= 0) continue;
+            int lt = LabelType.forJarType(jt).ordinal();
             CrateType ct = CrateType.forJarType(jt);
-            int cratesAvail = getFinal(snap.crates().get(ct));
-            int jarsSupportedByCrates = ct.jarsCapacityForCrates(cratesAvail);
-            int canFillJarsWithCrates = Math.min(q, jarsSupportedByCrates);
-            cratesKg = cratesKg.add(jt.kgPerJar().multiply(BigDecimal.valueOf(canFillJarsWithCrates)));
+            int got = Math.min(q, Math.min(jarsLeft[jt.ordinal()],
+                    Math.min(labelsLeft[lt], ct.jarsCapacityForCrates(cratesLeft[ct.ordinal()]))));
+            jarsLeft[jt.ordinal()] -= got;
+            labelsLeft[lt] -= got;
+            cratesLeft[ct.ordinal()] -= ct.cratesNeededForJars(got);
+            packed = packed.plus(jt, got);
         }
-        return new Caps(jarsKg, labelsKg, cratesKg);
+        return packed;
     }
 
-    private static int getFinal(StockRow r) {
-        return r == null ? 0 : Math.max(0, r.finalStock());
+    private record Inputs(PackagingSnapshot snapshot, BigDecimal honeyFreeKg) {
     }
 
-    private static LabelType labelTypeFor(JarType jt) {
-        return switch (jt) {
-            case JAR200 -> LabelType.LABEL200;
-            case JAR400 -> LabelType.LABEL400;
-            case JAR800 -> LabelType.LABEL800;
-        };
+    private PackagingSnapshot loadPackagingSnapshotFor(Order order, Instant loadDeadline) throws Exception {
+        Set<JarType> jarTypes = EnumSet.noneOf(JarType.class);
+        Set<LabelType> labelTypes = EnumSet.noneOf(LabelType.class);
+        Set<CrateType> crateTypes = EnumSet.noneOf(CrateType.class);
+        order.jarQuantities().forEach((jt, q) -> {
+            jarTypes.add(jt);
+            labelTypes.add(labelTypeFor(jt));
+            crateTypes.add(CrateType.forJarType(jt));
+        });
+
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure("snap", vtFactory)) {
+            HoneyType honey = order.honeyType();
+            var fJars = scope.fork(() -> metrics.timed(ReservationMetrics.SNAPSHOT_JARS, honey,
+                    () -> hedgedReads.read("snapshot-jars", guards.jars(), () -> jarRepo.stockFor(jarTypes))));
+            var fLabels = scope.fork(() -> metrics.timed(ReservationMetrics.SNAPSHOT_LABELS, honey,
+                    () -> hedgedReads.read("snapshot-labels", guards.labels(), () -> labelRepo.stockFor(labelTypes))));
+            var fCrates = scope.fork(() -> metrics.timed(ReservationMetrics.SNAPSHOT_CRATES, honey,
+                    () -> hedgedReads.read("snapshot-crates", guards.crates(), () -> crateRepo.stockFor(crateTypes))));
+            scope.joinUntil(loadDeadline).throwIfFailed();
+            return new PackagingSnapshot(fJars.get(), fLabels.get(), fCrates.get());
+        }
     }
 
+    /**
+     * {@code deferred} marks a failure that happened before any honey was taken, so the order may
+     * be tried again.
+     */
+    public record ReservationResult(boolean success, boolean deferred, String message, JarQuantities deliveredJars) {
+        public ReservationResult {
+            if (deliveredJars == null) deliveredJars = JarQuantities.NONE;
+        }
 
-    public record ReservationResult(boolean success, String message) {
-        public static ReservationResult success(String m) {
-            return new ReservationResult(true, m);
+        public static ReservationResult success(String m, JarQuantities deliveredJars) {
+            return new ReservationResult(true, false, m, deliveredJars);
         }
 
         public static ReservationResult failure(String m) {
-            return new ReservationResult(false, m);
+            return new ReservationResult(false, false, m, JarQuantities.NONE);
         }
-    }
 
-    private static BigDecimal nonNeg(BigDecimal v) {
-        return v == null ? BigDecimal.ZERO : v.max(BigDecimal.ZERO);
-    }
-
-    private static BigDecimal min(BigDecimal... vs) {
-        BigDecimal m = vs[0];
-        for (int i = 1; i < vs.length; i++) if (vs[i].compareTo(m) < 0) m = vs[i];
-        return m;
-    }
-
-    private static BigDecimal jarsToKg(Map<JarType, Integer> jars) {
-        if (jars == null || jars.isEmpty()) return BigDecimal.ZERO;
-        BigDecimal sum = BigDecimal.ZERO;
-        for (var e : jars.entrySet()) {
-            int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
-            if (q == 0) continue;
-            sum = sum.add(e.getKey().kgPerJar().multiply(BigDecimal.valueOf(q)));
+        public static ReservationResult deferred(String reason) {
+            return new ReservationResult(false, true, "Deferred: " + reason, JarQuantities.NONE);
         }
-        return sum;
     }
 
-    private static Map<JarType, Integer> reduceJarsToTargetKg(Map<JarType, Integer> requested, BigDecimal targetKg) {
-        if (requested == null || requested.isEmpty() || targetKg == null || targetKg.signum() <= 0) return Map.of();
-
-        BigDecimal needKg = jarsToKg(requested);
-        if (needKg.signum() <= 0) return Map.of();
-
-        BigDecimal ratio = targetKg.divide(needKg, 12, RoundingMode.DOWN);
-        EnumMap<JarType, Integer> reduced = new EnumMap<>(JarType.class);
-        for (var e : requested.entrySet()) {
-            JarType jt = e.getKey();
-            int q = Math.max(0, e.getValue() == null ? 0 : e.getValue());
-            int scaled = ratio.signum() > 0
-                    ? new BigDecimal(q).multiply(ratio).setScale(0, RoundingMode.FLOOR).intValue()
-                    : 0;
-            reduced.put(jt, Math.min(scaled, q));
+    private void publish(ReservationCommitted committed) {
+        for (ReservationListener l : listeners) {
+            try {
+                l.onCommitted(committed);
+            } catch (RuntimeException ex) {
+                log.warn("[deliver] Listener {} failed: {}", l.getClass().getSimpleName(), ex.toString());
+            }
         }
+    }
 
-        BigDecimal used = jarsToKg(reduced);
-        outer:
-        while (used.compareTo(targetKg) < 0) {
-            boolean progressed = false;
-            for (JarType jt : JarType.values()) {
-                int have = reduced.getOrDefault(jt, 0);
-                int maxAllowed = Math.max(0, requested.getOrDefault(jt, 0));
-                if (have >= maxAllowed) continue;
-                BigDecimal after = used.add(jt.kgPerJar());
-                if (after.compareTo(targetKg) <= 0) {
-                    reduced.put(jt, have + 1);
-                    used = after;
-                    progressed = true;
-                    if (used.compareTo(targetKg) >= 0) break outer;
-                }
-            }
-            if (!progressed) break;
+    private static <T extends Throwable> T causeOf(Throwable ex, Class<T> type) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) return type.cast(t);
         }
-        return reduced;
+        return null;
     }
 
-    private static boolean isZeroJars(Map<JarType, Integer> m) {
-        if (m == null || m.isEmpty()) return true;
-        return m.values().stream().mapToInt(v -> v == null ? 0 : v).sum() == 0;
+    private static BigDecimal nonNeg(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v.max(BigDecimal.ZERO);
     }
 
-    private static String fmtJarBreakdown(Map<JarType, Integer> m) {
-        if (m == null || m.isEmpty()) return "(none)";
-        StringBuilder sb = new StringBuilder();
-        int total = 0;
-        BigDecimal totalKg = BigDecimal.ZERO;
-        for (JarType jt : JarType.values()) {
-            int q = m.getOrDefault(jt, 0);
-            if (q <= 0) continue;
-            BigDecimal kg = jt.kgPerJar().multiply(BigDecimal.valueOf(q));
-            sb.append(String.format("  - %-6s : qty=%-5d  kgPerJar=%-4s  kg=%s%n",
-                    jt.name(), q, jt.kgPerJar().toPlainString(), kg.toPlainString()));
-            total += q;
-            totalKg = totalKg.add(kg);
-        }
-        sb.append(String.format("  Σ jars=%d  Σ kg=%s", total, totalKg.toPlainString()));
-        return sb.toString();
+    private static BigDecimal min(BigDecimal... vs) {
+        BigDecimal m = vs[0];
+        for (int i = 1; i < vs.length; i++) if (vs[i].compareTo(m) < 0) m = vs[i];
+        return m;
     }
 }
@@ -0,0 +1,120 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.enums.LimitingResource;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure, allocation-only planning arithmetic used by {@link ReservationOrchestrator}: no I/O,
+ * no Spring, so it can be benchmarked and reasoned about in isolation.
+ */
+public final class ReservationPlanner {
+
+    private static final JarType[] JAR_TYPES = JarType.values();
+
+    private ReservationPlanner() {
+    }
+
+    public record Caps(BigDecimal jarsKg, BigDecimal labelsKg, BigDecimal cratesKg) {
+    }
+
+    public record Allotment(JarQuantities approved, BigDecimal approvedKg, LimitingResource limitedBy) {
+    }
+
+    /**
+     * What the orchestrator would approve for {@code requested} against the given stock: the
+     * request scaled down to the tightest of honey, jars, labels and crates.
+     */
+    public static Allotment allot(HoneyType honeyType,
+                                  JarQuantities requested,
+                                  Map<HoneyType, BigDecimal> honeyKg,
+                                  PackagingSnapshot stock) {
+        BigDecimal targetKg = requested.kg();
+        BigDecimal honeyFree = honeyKg.getOrDefault(honeyType, BigDecimal.ZERO).max(BigDecimal.ZERO);
+        Caps caps = capsFromSnapshot(requested, stock);
+
+        LimitingResource limit = LimitingResource.NONE;
+        for (var cap : List.of(Map.entry(LimitingResource.HONEY, honeyFree), Map.entry(LimitingResource.JARS, caps.jarsKg()),
+                Map.entry(LimitingResource.LABELS, caps.labelsKg()), Map.entry(LimitingResource.CRATES, caps.cratesKg()))) {
+            if (cap.getValue().compareTo(targetKg) < 0) {
+                targetKg = cap.getValue();
+                limit = cap.getKey();
+            }
+        }
+        JarQuantities approved = limit == LimitingResource.NONE
+                ? requested
+                : requested.reducedToKg(targetKg);
+        return new Allotment(approved, approved.kg(), limit);
+    }
+
+    /**
+     * Takes an approved plan out of in-memory stock: the honey map is updated in place, the
+     * packaging left is returned (see {@link PackagingSnapshot#minus}).
+     */
+    public static PackagingSnapshot consume(HoneyType honeyType,
+                                            JarQuantities approved,
+                                            Map<HoneyType, BigDecimal> honeyKg,
+                                            PackagingSnapshot stock) {
+        if (approved.isEmpty()) return stock;
+        honeyKg.merge(honeyType, approved.kg().negate(), BigDecimal::add);
+        return stock.minus(approved);
+    }
+
+    public static Caps capsFromSnapshot(JarQuantities req, PackagingSnapshot snap) {
+        long jarsG = 0;
+        long labelsG = 0;
+        long cratesG = 0;
+
+        for (JarType jt : JAR_TYPES) {
+            int q = req.get(jt);
+            if (q == 0) continue;
+            long gramsPerJar = JarQuantities.gramsPerJar(jt);
+
+            int jarsAvail = getFinal(snap.jars().get(jt));
+            jarsG += gramsPerJar * Math.min(q, jarsAvail);
+
+            int labelsAvail = getFinal(snap.labels().get(labelTypeFor(jt)));
+            labelsG += gramsPerJar * Math.min(q, labelsAvail);
+
+            CrateType ct = CrateType.forJarType(jt);
+            int jarsSupportedByCrates = ct.jarsCapacityForCrates(getFinal(snap.crates().get(ct)));
+            cratesG += gramsPerJar * Math.min(q, jarsSupportedByCrates);
+        }
+        return new Caps(BigDecimal.valueOf(jarsG, 3), BigDecimal.valueOf(labelsG, 3), BigDecimal.valueOf(cratesG, 3));
+    }
+
+    private static int getFinal(StockRow r) {
+        return r == null ? 0 : Math.max(0, r.finalStock());
+    }
+
+    public static LabelType labelTypeFor(JarType jt) {
+        return LabelType.forJarType(jt);
+    }
+
+    public static String fmtJarBreakdown(JarQuantities m) {
+        if (m == null || m.isEmpty()) return "(none)";
+        StringBuilder sb = new StringBuilder();
+        int total = 0;
+        BigDecimal totalKg = BigDecimal.ZERO;
+        for (JarType jt : JarType.values()) {
+            int q = m.get(jt);
+            if (q <= 0) continue;
+            BigDecimal kg = jt.kgPerJar().multiply(BigDecimal.valueOf(q));
+            sb.append(String.format("  - %-6s : qty=%-5d  kgPerJar=%-4s  kg=%s%n",
+                    jt.name(), q, jt.kgPerJar().toPlainString(), kg.toPlainString()));
+            total += q;
+            totalKg = totalKg.add(kg);
+        }
+        sb.append(String.format("  Σ jars=%d  Σ kg=%s", total, totalKg.toPlainString()));
+        return sb.toString();
+    }
+}
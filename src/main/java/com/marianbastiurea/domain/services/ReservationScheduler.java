@@ -0,0 +1,260 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.services.ReservationOrchestrator.ReservationResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Admits callers to {@link ReservationOrchestrator} {@code orders.scheduler.concurrency} at a
+ * time, one lane per {@link HoneyType} served by deficit round robin on kilograms, so a lane of
+ * large orders cannot crowd out the others. Orders up to {@code small-kg} go in a priority lane.
+ */
+@Service
+public class ReservationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationScheduler.class);
+    private static final HoneyType[] HONEY_TYPES = HoneyType.values();
+    private static final String SMALL = "small";
+
+    private final ReservationOrchestrator orchestrator;
+    private final boolean enabled;
+    private final int concurrency;
+    private final double smallKg;
+    private final int smallBurst;
+    private final double[] quantum = new double[HONEY_TYPES.length];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> small = new ArrayDeque<>();
+    private final ArrayDeque<Waiter>[] lanes;
+    private final double[] deficit = new double[HONEY_TYPES.length];
+    private final Map<HoneyType, Timer> laneWait = new EnumMap<>(HoneyType.class);
+    private final Timer smallWait;
+    private int permits;
+    private int cursor;
+    private boolean credited;
+    private int smallStreak;
+
+    private static final class Waiter {
+        final double kg;
+        final Condition admitted;
+        final long queuedNanos = System.nanoTime();
+        boolean granted;
+
+        Waiter(double kg, Condition admitted) {
+            this.kg = kg;
+            this.admitted = admitted;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public ReservationScheduler(ReservationOrchestrator orchestrator,
+                                MeterRegistry registry,
+                                @Value("${orders.scheduler.enabled:true}") boolean enabled,
+                                @Value("${orders.scheduler.concurrency:16}") int concurrency,
+                                @Value("${orders.scheduler.quantum-kg:50}") double quantumKg,
+                                @Value("${orders.scheduler.weights:}") String weights,
+                                @Value("${orders.scheduler.small-kg:10}") double smallKg,
+                                @Value("${orders.scheduler.small-burst:8}") int smallBurst) {
+        if (concurrency <= 0) throw new IllegalArgumentException("orders.scheduler.concurrency must be > 0");
+        if (quantumKg <= 0) throw new IllegalArgumentException("orders.scheduler.quantum-kg must be > 0");
+        this.orchestrator = requireNonNull(orchestrator, "orchestrator");
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+        this.permits = concurrency;
+        this.smallKg = smallKg;
+        this.smallBurst = Math.max(1, smallBurst);
+        Map<HoneyType, Integer> w = parseWeights(weights);
+        this.lanes = new ArrayDeque[HONEY_TYPES.length];
+        for (HoneyType h : HONEY_TYPES) {
+            lanes[h.ordinal()] = new ArrayDeque<>();
+            quantum[h.ordinal()] = quantumKg * w.getOrDefault(h, 1);
+            laneWait.put(h, waitTimer(registry, h.name()));
+            Gauge.builder("reservation.scheduler.queued", lanes[h.ordinal()], this::sizeOf)
+                    .description("Orders waiting to be admitted to the orchestrator")
+                    .tag("lane", h.name())
+                    .register(registry);
+        }
+        this.smallWait = waitTimer(registry, SMALL);
+        Gauge.builder("reservation.scheduler.queued", small, this::sizeOf)
+                .description("Orders waiting to be admitted to the orchestrator")
+                .tag("lane", SMALL)
+                .register(registry);
+        if (enabled) {
+            log.info("[scheduler] {} slot(s), quantum {} kg, weights {}, small orders up to {} kg",
+                    concurrency, quantumKg, w.isEmpty() ? "equal" : w, smallKg);
+        }
+    }
+
+    /**
+     * {@link ReservationOrchestrator#reserveFor} once the order's turn comes. An interrupt while
+     * waiting gives up the place and defers the order.
+     */
+    public ReservationResult reserveFor(Order order) {
+        requireNonNull(order, "order");
+        if (!enabled) return orchestrator.reserveFor(order);
+        try {
+            admit(order);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return ReservationResult.deferred("interrupted while waiting for a reservation slot");
+        }
+        try {
+            return orchestrator.reserveFor(order);
+        } finally {
+            lock.lock();
+            try {
+                permits++;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * How many of {@code callers} concurrent callers are inside the orchestrator at once: all of
+     * them when the scheduler is off, at most {@code orders.scheduler.concurrency} otherwise.
+     */
+    public int effectiveConcurrency(int callers) {
+        return enabled ? Math.min(callers, concurrency) : callers;
+    }
+
+    private void admit(Order order) throws InterruptedException {
+        double kg = order.jarQuantities().kg().doubleValue();
+        boolean isSmall = kg <= smallKg;
+        ArrayDeque<Waiter> lane = isSmall ? small : lanes[order.honeyType().ordinal()];
+        lock.lock();
+        try {
+            Waiter w = new Waiter(kg, lock.newCondition());
+            lane.addLast(w);
+            dispatch();
+            try {
+                while (!w.granted) w.admitted.await();
+            } catch (InterruptedException ie) {
+                if (w.granted) {
+                    permits++;
+                    dispatch();
+                } else {
+                    lane.remove(w);
+                }
+                throw ie;
+            }
+            (isSmall ? smallWait : laneWait.get(order.honeyType()))
+                    .record(System.nanoTime() - w.queuedNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to waiters; called with the lock held.
+     */
+    private void dispatch() {
+        while (permits > 0) {
+            Waiter next = null;
+            boolean lanesWaiting = anyLaneWaiting();
+            if (!small.isEmpty() && (smallStreak < smallBurst || !lanesWaiting)) {
+                next = small.pollFirst();
+                smallStreak++;
+            } else if (lanesWaiting) {
+                next = nextFromLanes();
+                smallStreak = 0;
+            }
+            if (next == null) return;
+            next.granted = true;
+            permits--;
+            next.admitted.signal();
+        }
+    }
+
+    /**
+     * Deficit round robin over the non-empty lanes. The lane under the cursor is credited its
+     * quantum once per visit and keeps the cursor while its head fits; an emptied lane forfeits
+     * what it had left, so idle lanes do not bank credit.
+     */
+    private Waiter nextFromLanes() {
+        for (; ; ) {
+            int i = cursor;
+            ArrayDeque<Waiter> lane = lanes[i];
+            if (lane.isEmpty()) {
+                deficit[i] = 0;
+                advance();
+                continue;
+            }
+            if (!credited) {
+                deficit[i] += quantum[i];
+                credited = true;
+            }
+            Waiter head = lane.peekFirst();
+            if (head.kg <= deficit[i]) {
+                deficit[i] -= head.kg;
+                lane.pollFirst();
+                if (lane.isEmpty()) {
+                    deficit[i] = 0;
+                    advance();
+                }
+                return head;
+            }
+            advance();
+        }
+    }
+
+    private void advance() {
+        cursor = (cursor + 1) % lanes.length;
+        credited = false;
+    }
+
+    private boolean anyLaneWaiting() {
+        for (ArrayDeque<Waiter> lane : lanes) if (!lane.isEmpty()) return true;
+        return false;
+    }
+
+    private double sizeOf(ArrayDeque<Waiter> lane) {
+        lock.lock();
+        try {
+            return lane.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Timer waitTimer(MeterRegistry registry, String lane) {
+        return Timer.builder("reservation.scheduler.wait")
+                .description("Time an order waited to be admitted to the orchestrator")
+                .tag("lane", lane)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Parses {@code FALSE_INDIGO:1,ACACIA:3} into lane weights; unlisted lanes weigh 1.
+     */
+    static Map<HoneyType, Integer> parseWeights(String spec) {
+        Map<HoneyType, Integer> out = new EnumMap<>(HoneyType.class);
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("Invalid weight '" + part + "' in '" + spec + "'");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight <= 0) throw new IllegalArgumentException("Weights must be > 0 in '" + spec + "'");
+            out.put(HoneyType.valueOf(kv[0].trim()), weight);
+        }
+        return out;
+    }
+}
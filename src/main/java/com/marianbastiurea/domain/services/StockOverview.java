@@ -0,0 +1,210 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.repo.CrateRepo;
+import com.marianbastiurea.domain.repo.HoneyRepo;
+import com.marianbastiurea.domain.repo.JarRepo;
+import com.marianbastiurea.domain.repo.LabelRepo;
+import com.marianbastiurea.infrastructure.jdbc.QueryDeadline;
+import com.marianbastiurea.infrastructure.jdbc.ReadRouting;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuard;
+import com.marianbastiurea.infrastructure.resilience.DependencyGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * One view of honey and packaging stock, read from every database under a shared deadline and
+ * served from memory for {@code stock.overview.ttl-ms}. Sources that fail or miss the deadline
+ * keep their previous value and are reported stale.
+ */
+@Service
+public class StockOverview {
+
+    private static final Logger log = LoggerFactory.getLogger(StockOverview.class);
+
+    private static final String OVERVIEW = "overview-";
+
+    private final HoneyRepo honeyRepo;
+    private final JarRepo jarRepo;
+    private final LabelRepo labelRepo;
+    private final CrateRepo crateRepo;
+    private final Map<HoneyType, DependencyGuard> honeyGuards = new EnumMap<>(HoneyType.class);
+    private final DependencyGuard jarsGuard;
+    private final DependencyGuard labelsGuard;
+    private final DependencyGuard cratesGuard;
+    private final ThreadFactory vtFactory;
+    private final Duration deadline;
+    private final long ttlNanos;
+    private final Timer refreshTimer;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Cached cached;
+
+    private record Cached(StockOverviewResponse view, long loadedNanos) {
+    }
+
+    public StockOverview(@Qualifier("routerHoneyRepo") HoneyRepo honeyRepo,
+                         JarRepo jarRepo,
+                         LabelRepo labelRepo,
+                         CrateRepo crateRepo,
+                         DependencyGuards guards,
+                         @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                         MeterRegistry registry,
+                         @Value("${stock.overview.deadline-ms:1500}") long deadlineMs,
+                         @Value("${stock.overview.ttl-ms:2000}") long ttlMs) {
+        this.honeyRepo = requireNonNull(honeyRepo, "honeyRepo");
+        this.jarRepo = requireNonNull(jarRepo, "jarRepo");
+        this.labelRepo = requireNonNull(labelRepo, "labelRepo");
+        this.crateRepo = requireNonNull(crateRepo, "crateRepo");
+        requireNonNull(guards, "guards");
+        for (HoneyType type : HoneyType.values()) {
+            honeyGuards.put(type, guards.guard(OVERVIEW + DependencyGuards.dependencyName(type)));
+        }
+        this.jarsGuard = guards.guard(OVERVIEW + DependencyGuards.JARS);
+        this.labelsGuard = guards.guard(OVERVIEW + DependencyGuards.LABELS);
+        this.cratesGuard = guards.guard(OVERVIEW + DependencyGuards.CRATES);
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.deadline = Duration.ofMillis(deadlineMs);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.refreshTimer = Timer.builder("stock.overview.refresh")
+                .description("Fan-out refresh of the stock overview")
+                .register(registry);
+    }
+
+    public StockOverviewResponse current() throws InterruptedException {
+        Cached c = cached;
+        if (fresh(c)) return c.view();
+
+        if (!refreshLock.tryLock(deadline.toMillis(), TimeUnit.MILLISECONDS)) {
+            if (c != null) return c.view();
+            throw new IllegalStateException("Stock overview not available within " + deadline.toMillis() + " ms");
+        }
+        try {
+            c = cached;
+            if (fresh(c)) return c.view();
+            long t0 = System.nanoTime();
+            StockOverviewResponse view = refresh(c == null ? null : c.view());
+            cached = new Cached(view, System.nanoTime());
+            refreshTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            return view;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private boolean fresh(Cached c) {
+        return c != null && System.nanoTime() - c.loadedNanos() < ttlNanos;
+    }
+
+    private StockOverviewResponse refresh(StockOverviewResponse previous) throws InterruptedException {
+        Instant until = Instant.now().plus(deadline);
+        Map<HoneyType, Subtask<BigDecimal>> honey = new EnumMap<>(HoneyType.class);
+        Subtask<Map<JarType, StockRow>> jars;
+        Subtask<Map<LabelType, StockRow>> labels;
+        Subtask<Map<CrateType, StockRow>> crates;
+
+        try (var scope = new StructuredTaskScope<Object>("stock-overview", vtFactory)) {
+            for (HoneyType type : HoneyType.values()) {
+                honey.put(type, scope.fork(within(until, () -> honeyGuards.get(type).call(() -> honeyRepo.availableKg(type)))));
+            }
+            jars = scope.fork(within(until, () -> jarsGuard.call(
+                    () -> ReadRouting.readOnly(() -> jarRepo.stockFor(EnumSet.allOf(JarType.class))))));
+            labels = scope.fork(within(until, () -> labelsGuard.call(
+                    () -> ReadRouting.readOnly(() -> labelRepo.stockFor(EnumSet.allOf(LabelType.class))))));
+            crates = scope.fork(within(until, () -> cratesGuard.call(
+                    () -> ReadRouting.readOnly(() -> crateRepo.stockFor(EnumSet.allOf(CrateType.class))))));
+            try {
+                scope.joinUntil(until);
+            } catch (TimeoutException e) {
+                scope.shutdown();
+                scope.join();
+            }
+        }
+
+        Set<String> stale = new TreeSet<>();
+        Map<HoneyType, BigDecimal> honeyKg = new EnumMap<>(HoneyType.class);
+        honey.forEach((type, task) -> {
+            if (task.state() == Subtask.State.SUCCESS) {
+                honeyKg.put(type, task.get());
+            } else {
+                stale.add(DependencyGuards.dependencyName(type));
+                if (previous != null && previous.honeyKg().containsKey(type)) honeyKg.put(type, previous.honeyKg().get(type));
+            }
+        });
+        Map<JarType, Integer> jarStock = packaging(jars, DependencyGuards.JARS, JarType.class,
+                previous == null ? null : previous.jars(), stale);
+        Map<LabelType, Integer> labelStock = packaging(labels, DependencyGuards.LABELS, LabelType.class,
+                previous == null ? null : previous.labels(), stale);
+        Map<CrateType, Integer> crateStock = packaging(crates, DependencyGuards.CRATES, CrateType.class,
+                previous == null ? null : previous.crates(), stale);
+
+        if (!stale.isEmpty()) {
+            log.warn("[stock] Overview refreshed with stale sources {} (deadline {} ms)", stale, deadline.toMillis());
+        }
+        return new StockOverviewResponse(Instant.now(),
+                Collections.unmodifiableMap(honeyKg),
+                Collections.unmodifiableMap(jarStock),
+                Collections.unmodifiableMap(labelStock),
+                Collections.unmodifiableMap(crateStock),
+                Collections.unmodifiableSet(stale));
+    }
+
+    /**
+     * The packaging rows of an overview's stock levels, for planning against in memory. The
+     * snapshot is immutable; planning takes stock out with {@link PackagingSnapshot#minus}.
+     */
+    public static PackagingSnapshot packagingOf(StockOverviewResponse snap) {
+        return PackagingSnapshot.of(rows(snap.jars(), JarType.class),
+                rows(snap.labels(), LabelType.class), rows(snap.crates(), CrateType.class));
+    }
+
+    private static <E extends Enum<E>> Map<E, StockRow> rows(Map<E, Integer> stock, Class<E> type) {
+        Map<E, StockRow> out = new EnumMap<>(type);
+        stock.forEach((t, n) -> out.put(t, new StockRow(0, n)));
+        return out;
+    }
+
+    private static <E extends Enum<E>> Map<E, Integer> packaging(Subtask<Map<E, StockRow>> task,
+                                                                String source,
+                                                                Class<E> type,
+                                                                Map<E, Integer> previous,
+                                                                Set<String> stale) {
+        Map<E, Integer> out = new EnumMap<>(type);
+        if (task.state() == Subtask.State.SUCCESS) {
+            task.get().forEach((k, row) -> out.put(k, row.finalStock()));
+        } else {
+            stale.add(source);
+            if (previous != null) out.putAll(previous);
+        }
+        return out;
+    }
+
+    private static <T> Callable<T> within(Instant until, Callable<T> read) {
+        return () -> QueryDeadline.callWithin(until, read::call);
+    }
+}
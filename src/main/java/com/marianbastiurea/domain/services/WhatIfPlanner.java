@@ -0,0 +1,69 @@
+package com.marianbastiurea.domain.services;
+
+import com.marianbastiurea.api.dto.PlaceOrderRequest;
+import com.marianbastiurea.api.dto.StockOverviewResponse;
+import com.marianbastiurea.api.dto.WhatIfResponse;
+import com.marianbastiurea.api.dto.WhatIfResponse.Leftover;
+import com.marianbastiurea.api.dto.WhatIfResponse.Line;
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingSnapshot;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.services.ReservationPlanner.Allotment;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static com.marianbastiurea.domain.services.ReservationPlanner.allot;
+import static com.marianbastiurea.domain.services.ReservationPlanner.consume;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Answers "could these orders be filled right now" without reserving anything. The batch is
+ * planned in order against one snapshot from {@link StockOverview} with the same
+ * {@link ReservationPlanner} arithmetic the orchestrator uses, each order consuming what it was
+ * approved from an in-memory copy so later orders see what earlier ones would leave. Stock set
+ * aside by active holds is left out, as it is for a real reservation.
+ */
+@Service
+public class WhatIfPlanner {
+
+    private final StockOverview overview;
+    private final HoldLedger holds;
+
+    public WhatIfPlanner(StockOverview overview, HoldLedger holds) {
+        this.overview = requireNonNull(overview, "overview");
+        this.holds = requireNonNull(holds, "holds");
+    }
+
+    public WhatIfResponse evaluate(List<PlaceOrderRequest> orders) throws InterruptedException {
+        StockOverviewResponse snap = overview.current();
+        Map<HoneyType, BigDecimal> honey = new EnumMap<>(HoneyType.class);
+        snap.honeyKg().forEach((h, kg) -> honey.put(h, holds.unheldKg(h, kg, JarQuantities.NONE)));
+        PackagingSnapshot packaging = holds.unheld(StockOverview.packagingOf(snap), JarQuantities.NONE);
+
+        List<Line> lines = new ArrayList<>(orders.size());
+        for (PlaceOrderRequest req : orders) {
+            JarQuantities requested = req.quantities();
+            Allotment a = allot(req.honeyType(), requested, honey, packaging);
+            packaging = consume(req.honeyType(), a.approved(), honey, packaging);
+            lines.add(new Line(req.orderNumber(), req.honeyType(), requested, a.approved(),
+                    requested.kg(), a.approvedKg(), a.limitedBy()));
+        }
+        return new WhatIfResponse(snap.asOf(), snap.stale(), lines, new Leftover(
+                Collections.unmodifiableMap(honey),
+                finalStock(packaging.jars(), JarType.class),
+                finalStock(packaging.labels(), LabelType.class),
+                finalStock(packaging.crates(), CrateType.class)));
+    }
+
+    private static <E extends Enum<E>> Map<E, Integer> finalStock(Map<E, StockRow> rows, Class<E> type) {
+        Map<E, Integer> out = new EnumMap<>(type);
+        rows.forEach((t, r) -> out.put(t, r.finalStock()));
+        return Collections.unmodifiableMap(out);
+    }
+}
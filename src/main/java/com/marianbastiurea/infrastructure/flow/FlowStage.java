@@ -0,0 +1,237 @@
+package com.marianbastiurea.infrastructure.flow;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * One stage of a {@link Flow} pipeline: runs {@link Step} on up to {@code concurrency} items at a
+ * time, each on its own virtual thread, and emits into a buffer of {@code buffer} items. Emitting
+ * into a full buffer blocks, so a slow stage holds back the ones before it. {@link Flush} runs
+ * once after the last item; a failing step fails the stage and everything after it.
+ */
+public final class FlowStage<I, O> implements Flow.Processor<I, O>, AutoCloseable {
+
+    @FunctionalInterface
+    public interface Step<I, O> {
+        void apply(I item, Consumer<O> emit) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Flush<O> {
+        void apply(Consumer<O> emit) throws Exception;
+    }
+
+    /**
+     * Totals since the stage was built; the nanos add up across workers.
+     */
+    public record Stats(String stage, int concurrency, long in, long out, long workNanos, long blockedNanos) {
+
+        /**
+         * Share of the stage's slots spent working over {@code wallNanos}; near 1 means saturated.
+         */
+        public double workShare(long wallNanos) {
+            return share(workNanos, wallNanos);
+        }
+
+        public double blockedShare(long wallNanos) {
+            return share(blockedNanos, wallNanos);
+        }
+
+        private double share(long nanos, long wallNanos) {
+            return wallNanos <= 0 ? 0 : (double) nanos / ((long) concurrency * wallNanos);
+        }
+    }
+
+    private final String name;
+    private final int concurrency;
+    private final Step<I, O> step;
+    private final Flush<O> flush;
+    private final ThreadFactory threads;
+    private final ExecutorService delivery;
+    private final SubmissionPublisher<O> out;
+    private final Timer work;
+    private final Timer blocked;
+
+    // one count per running step, plus one while upstream is open
+    private final AtomicInteger open = new AtomicInteger(1);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean failed = new AtomicBoolean();
+    private final AtomicLong in = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong workNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile Flow.Subscription upstream;
+    private volatile boolean subscribed;
+
+    public FlowStage(String name, int concurrency, int buffer, Step<I, O> step, Flush<O> flush,
+                     ThreadFactory threads, MeterRegistry registry) {
+        if (concurrency <= 0) throw new IllegalArgumentException(name + ": concurrency must be > 0");
+        if (buffer <= 0) throw new IllegalArgumentException(name + ": buffer must be > 0");
+        this.name = requireNonNull(name, "name");
+        this.concurrency = concurrency;
+        this.step = step;
+        this.flush = flush;
+        this.threads = requireNonNull(threads, "threads");
+        this.delivery = Executors.newThreadPerTaskExecutor(threads);
+        this.out = new SubmissionPublisher<>(delivery, buffer);
+        this.work = Timer.builder("pipeline.stage.work")
+                .description("Time a pipeline stage spends on one item")
+                .tag("stage", name)
+                .register(registry);
+        this.blocked = Timer.builder("pipeline.stage.blocked")
+                .description("Time a pipeline stage waits for room in the next stage's buffer")
+                .tag("stage", name)
+                .register(registry);
+        Gauge.builder("pipeline.stage.in-flight", inFlight, AtomicInteger::get)
+                .description("Items a pipeline stage is working on")
+                .tag("stage", name)
+                .register(registry);
+        Gauge.builder("pipeline.stage.buffered", out, SubmissionPublisher::estimateMaximumLag)
+                .description("Items a pipeline stage has emitted that the next stage has not taken yet")
+                .tag("stage", name)
+                .register(registry);
+    }
+
+    /**
+     * A stage without upstream whose {@code produce} emits every item once {@link #start} is called.
+     */
+    public static <O> FlowStage<Void, O> source(String name, int buffer, Flush<O> produce,
+                                                ThreadFactory threads, MeterRegistry registry) {
+        return new FlowStage<>(name, 1, buffer, null, requireNonNull(produce, "produce"), threads, registry);
+    }
+
+    /**
+     * Subscribes {@code next} and returns it, for chaining stages.
+     */
+    public <R> FlowStage<O, R> then(FlowStage<O, R> next) {
+        subscribe(next);
+        return next;
+    }
+
+    /**
+     * Starts a {@link #source}; subscribe every stage first, a publisher drops what it emits
+     * before anyone listens.
+     */
+    public void start() {
+        if (step != null) throw new IllegalStateException(name + " is not a source");
+        threads.newThread(this::release).start();
+    }
+
+    /**
+     * Completes once the stage has emitted everything, exceptionally if it failed.
+     */
+    public CompletableFuture<Void> done() {
+        return done;
+    }
+
+    public Stats stats() {
+        return new Stats(name, concurrency, in.get(), emitted.get(), workNanos.get(), blockedNanos.get());
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super O> subscriber) {
+        subscribed = true;
+        out.subscribe(subscriber);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        upstream = subscription;
+        subscription.request(concurrency);
+    }
+
+    @Override
+    public void onNext(I item) {
+        if (failed.get()) return;
+        open.incrementAndGet();
+        inFlight.incrementAndGet();
+        in.incrementAndGet();
+        threads.newThread(() -> {
+            long[] waited = {0};
+            long t0 = System.nanoTime();
+            try {
+                step.apply(item, o -> waited[0] += emit(o));
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                long took = System.nanoTime() - t0 - waited[0];
+                work.record(took, TimeUnit.NANOSECONDS);
+                workNanos.addAndGet(took);
+                inFlight.decrementAndGet();
+                if (!failed.get()) upstream.request(1);
+                release();
+            }
+        }).start();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        release();
+    }
+
+    @Override
+    public void close() {
+        out.close();
+        delivery.close();
+    }
+
+    private long emit(O item) {
+        if (failed.get()) throw new CancellationException(name + " has failed");
+        if (subscribed && out.getNumberOfSubscribers() == 0) {
+            throw new CancellationException(name + ": downstream cancelled");
+        }
+        long t0 = System.nanoTime();
+        out.submit(item);
+        long waited = System.nanoTime() - t0;
+        blocked.record(waited, TimeUnit.NANOSECONDS);
+        blockedNanos.addAndGet(waited);
+        emitted.incrementAndGet();
+        return waited;
+    }
+
+    private void release() {
+        if (open.decrementAndGet() != 0 || failed.get()) return;
+        long[] waited = {0};
+        long t0 = System.nanoTime();
+        try {
+            if (flush != null) flush.apply(o -> waited[0] += emit(o));
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        } finally {
+            workNanos.addAndGet(System.nanoTime() - t0 - waited[0]);
+        }
+        out.close();
+        done.complete(null);
+    }
+
+    private void fail(Throwable t) {
+        if (!failed.compareAndSet(false, true)) return;
+        Flow.Subscription s = upstream;
+        if (s != null) s.cancel();
+        out.closeExceptionally(t);
+        done.completeExceptionally(t);
+    }
+}
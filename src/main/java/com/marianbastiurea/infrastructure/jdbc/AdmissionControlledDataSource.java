@@ -0,0 +1,256 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.infrastructure.resilience.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A fair, bounded queue in front of a connection pool: callers wait in arrival order for a
+ * permit, released when the connection is closed, and are rejected once {@code maxQueue} are
+ * already waiting. An {@link AdaptiveConcurrencyLimit}, when given, caps the callers holding a
+ * connection; waiting for room under it is queue time, never a drop.
+ */
+public class AdmissionControlledDataSource extends DelegatingDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlledDataSource.class);
+
+    private final String name;
+    private final int permitCount;
+    private final Semaphore permits;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AdaptiveConcurrencyLimit limit;
+
+    private final Timer admittedWait;
+    private final Timer timedOutWait;
+    private final Counter rejected;
+
+    public AdmissionControlledDataSource(DataSource target,
+                                         String name,
+                                         int permits,
+                                         int maxQueue,
+                                         Duration maxWait,
+                                         AdaptiveConcurrencyLimit limit,
+                                         MeterRegistry registry) {
+        super(requireNonNull(target, "target"));
+        if (permits <= 0) throw new IllegalArgumentException("permits must be > 0");
+        if (maxQueue < 0) throw new IllegalArgumentException("maxQueue must be >= 0");
+        this.name = requireNonNull(name, "name");
+        this.permitCount = permits;
+        this.permits = new Semaphore(permits, true);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = requireNonNull(maxWait, "maxWait").toNanos();
+        this.limit = limit;
+
+        this.admittedWait = Timer.builder("db.admission.wait")
+                .description("Time spent waiting for a connection permit")
+                .tag("pool", name)
+                .tag("outcome", "admitted")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.timedOutWait = Timer.builder("db.admission.wait")
+                .description("Time spent waiting for a connection permit")
+                .tag("pool", name)
+                .tag("outcome", "timeout")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = Counter.builder("db.admission.rejected")
+                .description("Callers turned away before reaching the pool")
+                .tag("pool", name)
+                .tag("reason", "queue")
+                .register(registry);
+        Gauge.builder("db.admission.waiting", waiting, AtomicInteger::get)
+                .tag("pool", name)
+                .register(registry);
+        Gauge.builder("db.admission.in_use", this, ds -> ds.permitCount - ds.permits.availablePermits())
+                .tag("pool", name)
+                .register(registry);
+
+        if (limit != null) {
+            Gauge.builder("db.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("pool", name)
+                    .register(registry);
+            Gauge.builder("db.limit.inflight", limit, AdaptiveConcurrencyLimit::getInflight)
+                    .tag("pool", name)
+                    .register(registry);
+            Gauge.builder("db.limit.rtt", limit, l -> l.getShortRtt(TimeUnit.MILLISECONDS))
+                    .baseUnit("milliseconds")
+                    .tag("pool", name)
+                    .tag("window", "short")
+                    .register(registry);
+            Gauge.builder("db.limit.rtt", limit, l -> l.getLongRtt(TimeUnit.MILLISECONDS))
+                    .baseUnit("milliseconds")
+                    .tag("pool", name)
+                    .tag("window", "long")
+                    .register(registry);
+        }
+
+        log.info("Admission control for {}: permits={}, maxQueue={}, maxWait={} ms, adaptiveLimit={}",
+                name, permits, maxQueue, maxWait.toMillis(), limit != null ? limit.getLimit() : "off");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return admit(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return admit(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public int getInUse() {
+        return permitCount - permits.availablePermits();
+    }
+
+    public AdaptiveConcurrencyLimit getLimit() {
+        return limit;
+    }
+
+    private Connection admit(ConnectionOpener opener) throws SQLException {
+        long t0 = System.nanoTime();
+        long waitNanos = QueryDeadline.remaining()
+                .map(r -> Math.min(maxWaitNanos, Math.max(0, r.toNanos())))
+                .orElse(maxWaitNanos);
+        acquirePermit(t0, waitNanos);
+        if (limit != null) acquireLimit(t0, waitNanos);
+        long admitted = System.nanoTime();
+        admittedWait.record(admitted - t0, TimeUnit.NANOSECONDS);
+        try {
+            return releasingOnClose(opener.open(), admitted);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            if (limit != null) limit.onDropped(System.nanoTime() - admitted);
+            throw ex;
+        }
+    }
+
+    private void acquirePermit(long t0, long waitNanos) throws SQLException {
+        // tryAcquire(0, unit) honours fairness, plain tryAcquire() would barge past waiters
+        try {
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit on " + name, ie);
+        }
+
+        int queued = waiting.incrementAndGet();
+        if (queued > maxQueue) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new SQLTransientConnectionException(
+                    "Admission queue full for " + name + " (waiting=" + (queued - 1) + ", maxQueue=" + maxQueue + ")");
+        }
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit on " + name, ie);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            timedOutWait.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            throw new SQLTransientConnectionException(
+                    "No connection permit for " + name + " within " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+    }
+
+    /**
+     * Waits, holding the permit, for room under the adaptive limit in what is left of the wait.
+     */
+    private void acquireLimit(long t0, long waitNanos) throws SQLException {
+        boolean acquired;
+        try {
+            acquired = limit.acquire(waitNanos - (System.nanoTime() - t0));
+        } catch (InterruptedException ie) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit on " + name, ie);
+        }
+        if (!acquired) {
+            permits.release();
+            timedOutWait.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            throw new SQLTransientConnectionException("No room under the concurrency limit for " + name
+                    + " (limit=" + limit.getLimit() + ") within " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+    }
+
+    private Connection releasingOnClose(Connection target, long admitted) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Admitted[" + name + "] " + target;
+                    case "close" -> {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                                if (limit != null) limit.onSuccess(System.nanoTime() - admitted);
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(target, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (obtainTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+}
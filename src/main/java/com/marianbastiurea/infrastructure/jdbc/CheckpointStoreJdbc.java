@@ -0,0 +1,72 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.repo.CheckpointStore;
+import com.marianbastiurea.domain.repo.OrderRepo.ProcessingLogRow;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps watermarks in {@code public.run_checkpoint} of the orders database (see
+ * {@code db/run-checkpoint.sql}), next to the processing log they are committed with.
+ */
+@Repository
+@Profile("!simulation")
+public class CheckpointStoreJdbc implements CheckpointStore {
+
+    private static final String UPSERT = """
+            INSERT INTO public.run_checkpoint(name, order_number, honey_type, updated_at)
+            VALUES (:name, :o, :h, now())
+            ON CONFLICT (name) DO UPDATE
+               SET order_number = EXCLUDED.order_number,
+                   honey_type   = EXCLUDED.honey_type,
+                   updated_at   = EXCLUDED.updated_at
+            """;
+
+    private final NamedParameterJdbcTemplate tpl;
+    private final TransactionTemplate tx;
+
+    public CheckpointStoreJdbc(@Qualifier("ordersTpl") NamedParameterJdbcTemplate tpl,
+                               @Qualifier("ordersTT") TransactionTemplate tx) {
+        this.tpl = requireNonNull(tpl, "tpl");
+        this.tx = requireNonNull(tx, "tx");
+    }
+
+    @Override
+    public Optional<Watermark> load(String name) {
+        List<Watermark> rows = tpl.query(
+                "SELECT order_number, honey_type FROM public.run_checkpoint WHERE name = :name",
+                Map.of("name", name),
+                (rs, i) -> new Watermark(rs.getInt("order_number"), HoneyType.valueOf(rs.getString("honey_type").trim())));
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public void commit(String name, Watermark watermark, List<ProcessingLogRow> log) {
+        tx.executeWithoutResult(status -> {
+            if (!log.isEmpty()) {
+                tpl.batchUpdate(OrderRepoJdbc.INSERT_PROCESSING_LOG,
+                        OrderRepoJdbc.processingLogBatch(watermark.orderNumber(), log));
+            }
+            tpl.update(UPSERT, new MapSqlParameterSource()
+                    .addValue("name", name)
+                    .addValue("o", watermark.orderNumber())
+                    .addValue("h", watermark.honeyType().name()));
+        });
+    }
+
+    @Override
+    public void reset(String name) {
+        tpl.update("DELETE FROM public.run_checkpoint WHERE name = :name", Map.of("name", name));
+    }
+}
@@ -0,0 +1,148 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.domain.model.StockRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Packaging delivery conditional on the {@code row_version} the caller planned against, shared by
+ * the jar, label and crate repositories. A row that moved on is re-read and replanned on its own;
+ * after {@code attempts} lost races it goes through the locking CTE.
+ */
+final class ConditionalDelivery<E extends Enum<E>> {
+
+    record Delivered(int delivered, StockRow remaining, int conflicts) {
+    }
+
+    private static final RowMapper<StockRow> REMAINING =
+            (rs, i) -> new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("remaining"), 0));
+
+    private final NamedParameterJdbcTemplate tpl;
+    private final String deliverIfVersion;
+    private final String rowFor;
+    private final String incOrdered;
+    private final String deliverLocked;
+    private final Timer conditionalTimer;
+    private final Timer lockedTimer;
+
+    ConditionalDelivery(NamedParameterJdbcTemplate tpl, String kind, String table, String typeColumn,
+                        MeterRegistry registry) {
+        this.tpl = requireNonNull(tpl, "tpl");
+        this.deliverIfVersion = """
+                UPDATE public.%1$s
+                   SET ordered     = ordered + :req,
+                       delivered   = delivered + :deliver,
+                       last_updated= now(),
+                       row_version = row_version + 1
+                 WHERE %2$s = :type
+                   AND row_version = :version
+                   AND initial_stock - delivered >= :deliver
+             RETURNING (initial_stock - delivered) AS remaining, row_version
+                """.formatted(table, typeColumn);
+        this.rowFor = """
+                SELECT (initial_stock - delivered) AS remaining, row_version
+                  FROM public.%1$s
+                 WHERE %2$s = :type
+                """.formatted(table, typeColumn);
+        this.incOrdered = """
+                UPDATE public.%1$s
+                   SET ordered     = ordered + :req,
+                       last_updated= now(),
+                       row_version = row_version + 1
+                 WHERE %2$s = :type
+                """.formatted(table, typeColumn);
+        this.deliverLocked = """
+                WITH s AS (
+                    SELECT %2$s, initial_stock, delivered,
+                           (initial_stock - delivered) AS available
+                      FROM public.%1$s
+                     WHERE %2$s = :type
+                     FOR UPDATE
+                ),
+                d AS (
+                    SELECT :req::int AS requested,
+                           GREATEST(0, LEAST(:req::int, s.available)) AS will_deliver
+                      FROM s
+                )
+                UPDATE public.%1$s p
+                   SET delivered   = p.delivered + d.will_deliver,
+                       last_updated= now(),
+                       row_version = p.row_version + 1
+                  FROM d
+                 WHERE p.%2$s = :type
+             RETURNING d.requested, d.will_deliver, (p.initial_stock - p.delivered) AS remaining, p.row_version
+                """.formatted(table, typeColumn);
+        this.conditionalTimer = timer(registry, kind, "conditional");
+        this.lockedTimer = timer(registry, kind, "locked");
+    }
+
+    private static Timer timer(MeterRegistry registry, String kind, String mode) {
+        return Timer.builder("packaging.delivery")
+                .description("Time to deliver one packaging row")
+                .tag("packaging", kind)
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    /**
+     * Delivers up to {@code requested} of {@code type}, conditionally on {@code expected} for up
+     * to {@code attempts} tries; without an expected row it goes straight to the locking path.
+     */
+    Delivered deliver(E type, int requested, StockRow expected, int attempts) {
+        long t0 = System.nanoTime();
+        StockRow row = expected;
+        int conflicts = 0;
+        for (int attempt = 0; attempt < attempts && row != null; attempt++) {
+            int willDeliver = Math.max(0, Math.min(requested, row.finalStock()));
+            StockRow left = deliverIfVersion(type, requested, willDeliver, row.version());
+            if (left != null) {
+                conditionalTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                return new Delivered(willDeliver, left, conflicts);
+            }
+            conflicts++;
+            row = primaryRow(type);
+        }
+        Delivered d = deliverLocked(type, requested);
+        lockedTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return new Delivered(d.delivered(), d.remaining(), conflicts);
+    }
+
+    /**
+     * @return the row left behind, or {@code null} when the row is no longer at {@code version}
+     */
+    private StockRow deliverIfVersion(E type, int requested, int willDeliver, long version) {
+        List<StockRow> rows = tpl.query(deliverIfVersion, new MapSqlParameterSource()
+                .addValue("type", type.name())
+                .addValue("req", requested)
+                .addValue("deliver", willDeliver)
+                .addValue("version", version), REMAINING);
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+
+    private StockRow primaryRow(E type) {
+        List<StockRow> rows = tpl.query(rowFor, Map.of("type", type.name()), REMAINING);
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+
+    private Delivered deliverLocked(E type, int requested) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("type", type.name())
+                .addValue("req", requested);
+        if (tpl.update(incOrdered, params) == 0) {
+            throw new IllegalStateException(type.getDeclaringClass().getSimpleName() + " not found: " + type);
+        }
+        Map<String, Object> res = tpl.queryForMap(deliverLocked, params);
+        return new Delivered(((Number) res.get("will_deliver")).intValue(),
+                new StockRow(((Number) res.get("row_version")).longValue(),
+                        Math.max(((Number) res.get("remaining")).intValue(), 0)), 0);
+    }
+}
@@ -1,99 +1,95 @@
 package com.marianbastiurea.infrastructure.jdbc;
 
 import com.marianbastiurea.domain.enums.CrateType;
-import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
 import com.marianbastiurea.domain.repo.CrateRepo;
+import com.marianbastiurea.infrastructure.jfr.PackagingDeliveryEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Repository
+@Profile("!simulation")
 public class CrateRepoJdbc implements CrateRepo {
 
     private static final Logger log = LoggerFactory.getLogger(CrateRepoJdbc.class);
     private final NamedParameterJdbcTemplate tpl;
+    private final int conditionalAttempts;
+    private final ConditionalDelivery<CrateType> delivery;
 
-    public CrateRepoJdbc(@Qualifier("cratesTpl") NamedParameterJdbcTemplate tpl) {
+    public CrateRepoJdbc(@Qualifier("cratesTpl") NamedParameterJdbcTemplate tpl,
+                         @Value("${packaging.conditional.attempts:3}") int conditionalAttempts,
+                         MeterRegistry registry) {
         this.tpl = tpl;
+        this.conditionalAttempts = conditionalAttempts;
+        this.delivery = new ConditionalDelivery<>(tpl, "crates", "crate_stock", "crate_type", registry);
     }
 
-
-    private static final String INC_ORDERED = """
-                UPDATE public.crate_stock
-                   SET ordered     = ordered + :req,
-                       last_updated= now(),
-                       row_version = row_version + 1
-                 WHERE crate_type  = :ct
-            """;
-
-
-    private static final String DELIVER_CTE = """
-                WITH s AS (
-                    SELECT crate_type, initial_stock, delivered,
-                           (initial_stock - delivered) AS available
-                      FROM public.crate_stock
-                     WHERE crate_type = :ct
-                     FOR UPDATE
-                ),
-                d AS (
-                    SELECT :req::int AS requested,
-                           GREATEST(0, LEAST(:req::int, s.available)) AS will_deliver
-                      FROM s
-                )
-                UPDATE public.crate_stock cs
-                   SET delivered   = cs.delivered + d.will_deliver,
-                       last_updated= now(),
-                       row_version = cs.row_version + 1
-                  FROM d
-                 WHERE cs.crate_type = :ct
-             RETURNING d.requested, d.will_deliver
+    private static final String STOCK_FOR = """
+                SELECT crate_type, COALESCE(final_stock,0) AS final_stock, row_version
+                FROM public.crate_stock
+                WHERE crate_type IN (:types)
             """;
 
+    @Override
+    public Map<CrateType, StockRow> stockFor(Set<CrateType> types) {
+        if (types.isEmpty()) return Map.of();
+        List<String> names = types.stream().map(Enum::name).toList();
+        return tpl.query(STOCK_FOR, Map.of("types", names), rs -> {
+            EnumMap<CrateType, StockRow> m = new EnumMap<>(CrateType.class);
+            while (rs.next()) {
+                CrateType ct = CrateType.valueOf(rs.getString("crate_type"));
+                m.put(ct, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+            }
+            return m;
+        });
+    }
 
     private static final String INSERT_LOG = """
                 INSERT INTO public.processing_log(order_number, crate_type, requested_qty, delivered_qty, reason)
                 VALUES (:orderNumber, :ct, :requested, :delivered, :reason)
             """;
 
+    public PackagingDelivery<CrateType> deliveredCrates(int orderNumber, JarQuantities requestedJarsPlan) {
+        return deliver(orderNumber, requestedJarsPlan, Map.of(), 0);
+    }
+
+    @Override
+    public PackagingDelivery<CrateType> deliveredCrates(JarQuantities plan, Map<CrateType, StockRow> expected) {
+        return deliver(1, plan, expected, conditionalAttempts);
+    }
 
-    public void deliveredCrates(int orderNumber, Map<JarType, Integer> requestedJarsPlan) {
+    private PackagingDelivery<CrateType> deliver(int orderNumber, JarQuantities requestedJarsPlan, Map<CrateType, StockRow> expected, int attempts) {
         if (requestedJarsPlan == null || requestedJarsPlan.isEmpty()) {
             log.info("[crates.delivered] empty jars plan → no-op");
-            return;
+            return PackagingDelivery.none();
         }
 
-        EnumMap<CrateType, Integer> cratesReq = new EnumMap<>(CrateType.class);
-        for (var e : requestedJarsPlan.entrySet()) {
-            Integer jars = e.getValue();
-            if (jars == null || jars <= 0) continue;
-
-            CrateType ct = CrateType.forJarType(e.getKey());
-            int neededCrates = ct.cratesNeededForJars(jars); // ceil(jars / jarsPerCrate)
-            if (neededCrates > 0) {
-                cratesReq.merge(ct, neededCrates, Integer::sum);
-            }
-        }
-
-        for (var e : cratesReq.entrySet()) {
-            String ct = e.getKey().name();
-            int requested = e.getValue();
-            int upd = tpl.update(INC_ORDERED, new MapSqlParameterSource()
-                    .addValue("ct", ct)
-                    .addValue("req", requested));
-            if (upd == 0) {
-                throw new IllegalStateException("Crate type not found: " + ct);
-            }
-
-            Map<String, Object> res = tpl.queryForMap(DELIVER_CTE, new MapSqlParameterSource()
-                    .addValue("ct", ct)
-                    .addValue("req", requested));
-            int delivered = ((Number) res.get("will_deliver")).intValue();
+        EnumMap<CrateType, Integer> deliveredByType = new EnumMap<>(CrateType.class);
+        EnumMap<CrateType, StockRow> remaining = new EnumMap<>(CrateType.class);
+        for (CrateType type : CrateType.values()) {
+            int requested = requestedJarsPlan.crates(type); // ceil(jars / jarsPerCrate)
+            if (requested <= 0) continue;
+            String ct = type.name();
+            PackagingDeliveryEvent event = new PackagingDeliveryEvent();
+            event.begin();
+            ConditionalDelivery.Delivered d = delivery.deliver(type, requested, expected.get(type), attempts);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
 
             String reason = (delivered == requested) ? "FULL_DELIVERY" : "PARTIAL_DELIVERY";
             tpl.update(INSERT_LOG, new MapSqlParameterSource()
@@ -103,15 +99,26 @@ public class CrateRepoJdbc implements CrateRepo {
                     .addValue("delivered", delivered)
                     .addValue("reason", reason));
 
-            log.info("[crates.delivered] order={} type={} requested={} delivered={} reason={}",
-                    orderNumber, ct, requested, delivered, reason);
+            log.info("[crates.delivered] order={} type={} requested={} delivered={} reason={} conflicts={}",
+                    orderNumber, ct, requested, delivered, reason, d.conflicts());
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.packaging = "crates";
+                event.itemType = ct;
+                event.orderNumber = orderNumber;
+                event.requested = requested;
+                event.delivered = delivered;
+                event.conflicts = d.conflicts();
+                event.commit();
+            }
         }
+        return new PackagingDelivery<>(deliveredByType, remaining);
     }
 
-
     @Override
-    public void deliveredCrates(Map<JarType, Integer> plan) {
-        deliveredCrates(1, plan);
+    public PackagingDelivery<CrateType> deliveredCrates(JarQuantities plan) {
+        return deliveredCrates(1, plan);
     }
 
 }
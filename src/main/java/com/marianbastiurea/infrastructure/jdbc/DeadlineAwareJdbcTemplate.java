@@ -0,0 +1,35 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+
+public class DeadlineAwareJdbcTemplate extends JdbcTemplate {
+
+    public DeadlineAwareJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+
+        Optional<Duration> remaining = QueryDeadline.remaining();
+        if (remaining.isEmpty()) return;
+
+        long remainingMs = remaining.get().toMillis();
+        if (remainingMs <= 0) {
+            throw new SQLTimeoutException("Deadline already exceeded before executing statement");
+        }
+        int seconds = (int) Math.max(1, (remainingMs + 999) / 1000);
+        int current = stmt.getQueryTimeout();
+        if (current == 0 || current > seconds) {
+            stmt.setQueryTimeout(seconds);
+        }
+    }
+}
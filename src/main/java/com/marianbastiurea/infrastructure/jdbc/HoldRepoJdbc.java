@@ -0,0 +1,160 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.Hold.Status;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.repo.HoldRepo;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HoldRepo} over {@code public.stock_hold} in the orders database (see
+ * {@code db/holds.sql}). Settling only ever moves a row out of ACTIVE, so a confirm racing an
+ * expiry settles the hold once. {@code public.stock_hold_owner} is the one-row lease naming the
+ * instance that serves holds.
+ */
+@Repository
+@Profile("!simulation")
+@ConditionalOnProperty(name = "holds.enabled", havingValue = "true")
+public class HoldRepoJdbc implements HoldRepo {
+
+    private static final String INSERT = """
+            INSERT INTO public.stock_hold(id, owner, order_number, honey_type, jars, kg, created_at, expires_at)
+            VALUES (:id, :owner, :ord, :honey, CAST(:jars AS jsonb), :kg, :createdAt, :expiresAt)
+            """;
+
+    private static final String SELECT = """
+            SELECT id, order_number, honey_type, jars::text AS jars, kg, created_at, expires_at, status
+              FROM public.stock_hold
+            """;
+
+    private static final String SETTLE = """
+            UPDATE public.stock_hold
+               SET status = :status, settled_at = now()
+             WHERE id IN (:ids) AND status = 'ACTIVE'
+            """;
+
+    private static final String EXPIRE_OVERDUE = """
+            UPDATE public.stock_hold
+               SET status = 'EXPIRED', settled_at = now()
+             WHERE status = 'ACTIVE' AND expires_at < now()
+            """;
+
+    private static final String ADOPT = """
+            UPDATE public.stock_hold
+               SET owner = :owner
+             WHERE status = 'ACTIVE'
+            RETURNING id, order_number, honey_type, jars::text AS jars, kg, created_at, expires_at, status
+            """;
+
+    private static final String LEASE = """
+            INSERT INTO public.stock_hold_owner AS o (id, owner, expires_at)
+            VALUES (1, :owner, now() + make_interval(secs => :ttlSec))
+            ON CONFLICT (id) DO UPDATE
+               SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at
+             WHERE o.owner = EXCLUDED.owner OR o.expires_at < now()
+            """;
+
+    private static final String UNLEASE = """
+            UPDATE public.stock_hold_owner SET expires_at = '-infinity' WHERE owner = :owner
+            """;
+
+    private final NamedParameterJdbcTemplate tpl;
+    private final ObjectMapper mapper;
+    private final RowMapper<Hold> rows;
+
+    public HoldRepoJdbc(@Qualifier("ordersTpl") NamedParameterJdbcTemplate tpl, ObjectMapper mapper) {
+        this.tpl = requireNonNull(tpl, "tpl");
+        this.mapper = requireNonNull(mapper, "mapper");
+        this.rows = (rs, i) -> new Hold(
+                rs.getString("id"),
+                rs.getInt("order_number"),
+                HoneyType.valueOf(rs.getString("honey_type").trim()),
+                readJars(rs.getString("jars")),
+                rs.getBigDecimal("kg"),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getTimestamp("expires_at").toInstant(),
+                Status.valueOf(rs.getString("status").trim()));
+    }
+
+    @Override
+    public void insert(Hold hold, String owner) {
+        tpl.update(INSERT, new MapSqlParameterSource()
+                .addValue("id", hold.id())
+                .addValue("owner", owner)
+                .addValue("ord", hold.orderNumber())
+                .addValue("honey", hold.honeyType().name())
+                .addValue("jars", writeJars(hold.jarQuantities()))
+                .addValue("kg", hold.kg())
+                .addValue("createdAt", Timestamp.from(hold.createdAt()))
+                .addValue("expiresAt", Timestamp.from(hold.expiresAt())));
+    }
+
+    @Override
+    public Optional<Hold> find(String id) {
+        return tpl.query(SELECT + " WHERE id = :id", Map.of("id", id), rows).stream().findFirst();
+    }
+
+    @Override
+    public int settle(Collection<String> ids, Status status) {
+        if (ids.isEmpty()) return 0;
+        return tpl.update(SETTLE, new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("status", status.name()));
+    }
+
+    @Override
+    public int expireOverdue() {
+        return tpl.update(EXPIRE_OVERDUE, Map.of());
+    }
+
+    @Override
+    public List<Hold> adopt(String owner) {
+        return tpl.query(ADOPT, Map.of("owner", owner), rows);
+    }
+
+    @Override
+    public boolean lease(String owner, Duration ttl) {
+        return tpl.update(LEASE, new MapSqlParameterSource()
+                .addValue("owner", owner)
+                .addValue("ttlSec", ttl.toMillis() / 1000.0)) == 1;
+    }
+
+    @Override
+    public void unlease(String owner) {
+        tpl.update(UNLEASE, Map.of("owner", owner));
+    }
+
+    private String writeJars(JarQuantities jars) {
+        try {
+            return mapper.writeValueAsString(jars);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise jars " + jars, e);
+        }
+    }
+
+    private JarQuantities readJars(String json) {
+        try {
+            return mapper.readValue(json, JarQuantities.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read jars " + json, e);
+        }
+    }
+}
@@ -3,10 +3,15 @@ package com.marianbastiurea.infrastructure.jdbc;
 import com.marianbastiurea.api.dto.DeliveryResult;
 import com.marianbastiurea.domain.enums.HoneyType;
 import com.marianbastiurea.domain.repo.HoneyRepo;
+import com.marianbastiurea.infrastructure.jfr.StockUpdateRetryEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
@@ -23,12 +28,15 @@ import java.util.Objects;
 import static java.util.Objects.requireNonNull;
 
 @Repository
+@Profile("!simulation")
 public class HoneyJdbcRepository implements HoneyRepo {
 
     private static final Logger log = LoggerFactory.getLogger(HoneyJdbcRepository.class);
 
     private final Map<HoneyType, NamedParameterJdbcTemplate> tplByType = new EnumMap<>(HoneyType.class);
     private final Map<HoneyType, TransactionTemplate> txByType = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, Counter> retriesByType = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, DistributionSummary> attemptsByType = new EnumMap<>(HoneyType.class);
     private final int retryLimit;
 
     public HoneyJdbcRepository(
@@ -38,7 +46,8 @@ public class HoneyJdbcRepository implements HoneyRepo {
             @Qualifier("lindenTpl") NamedParameterJdbcTemplate lindenTpl,
             @Qualifier("sunflowerTpl") NamedParameterJdbcTemplate sunFlowerTpl,
             @Qualifier("falseindigoTpl") NamedParameterJdbcTemplate falseIndigoTpl,
-            @Value("${honey.repo.retries:5}") int retryLimit
+            @Value("${honey.repo.retries:5}") int retryLimit,
+            MeterRegistry registry
     ) {
         this.retryLimit = retryLimit;
 
@@ -53,6 +62,14 @@ public class HoneyJdbcRepository implements HoneyRepo {
             DataSource ds = requireNonNull(tpl.getJdbcTemplate().getDataSource(), "Missing DataSource for " + type);
             var tm = new DataSourceTransactionManager(ds);
             txByType.put(type, new TransactionTemplate(tm));
+            retriesByType.put(type, Counter.builder("reservation.honey.retries")
+                    .description("Optimistic-lock conflicts in HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
+            attemptsByType.put(type, DistributionSummary.builder("reservation.honey.attempts")
+                    .description("Attempts needed by HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
 
             String dsInfo = ds.getClass().getSimpleName();
             String poolName = tryReflect(ds, "getPoolName");
@@ -79,11 +96,11 @@ public class HoneyJdbcRepository implements HoneyRepo {
     @Override
     public BigDecimal availableKg(HoneyType type) {
         Objects.requireNonNull(type, "type");
-        BigDecimal v = tpl(type).getJdbcTemplate()
+        BigDecimal v = ReadRouting.readOnly(() -> tpl(type).getJdbcTemplate()
                 .queryForObject(
                         "SELECT COALESCE(final_stock, 0) FROM public.stock WHERE id = 1",
                         BigDecimal.class
-                );
+                ));
         if (v == null) v = BigDecimal.ZERO;
         return v.max(BigDecimal.ZERO);
     }
@@ -97,8 +114,8 @@ public class HoneyJdbcRepository implements HoneyRepo {
         log.info("[deliver] Start {} order#{} request={} kg (retryLimit={})", type, orderNumber, requestedKg, retryLimit);
 
         for (int attempt = 1; attempt <= retryLimit; attempt++) {
-            final long t0 = System.nanoTime();
-
+            StockUpdateRetryEvent retry = new StockUpdateRetryEvent();
+            retry.begin();
             DeliveryResult out = tx(type).execute(status -> {
                 SqlRowSet rs = tpl(type).getJdbcTemplate().queryForRowSet(
                         "SELECT COALESCE(final_stock,0) AS final_stock, row_version " +
@@ -147,9 +164,21 @@ public class HoneyJdbcRepository implements HoneyRepo {
                 return new DeliveryResult(deliverNow, newFinal, version + 1);
             });
             if (out != null) {
+                attemptsByType.get(type).record(attempt);
                 return out;
             }
+            retriesByType.get(type).increment();
+            retry.end();
+            if (retry.shouldCommit()) {
+                retry.orderNumber = orderNumber;
+                retry.honeyType = type.name();
+                retry.attempt = attempt;
+                retry.retryLimit = retryLimit;
+                retry.requestedKg = requestedKg.doubleValue();
+                retry.commit();
+            }
         }
+        attemptsByType.get(type).record(retryLimit);
         log.info("[deliver] FAILED {} order#{}: concurrent stock update, retry limit ({}) reached.",
                 type, orderNumber, retryLimit);
         throw new IllegalStateException("Concurrent stock update, retry limit reached for " + type);
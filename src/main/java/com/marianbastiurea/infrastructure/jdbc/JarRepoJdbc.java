@@ -1,94 +1,96 @@
 package com.marianbastiurea.infrastructure.jdbc;
 
 import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
 import com.marianbastiurea.domain.repo.JarRepo;
+import com.marianbastiurea.infrastructure.jfr.PackagingDeliveryEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Repository
+@Profile("!simulation")
 public class JarRepoJdbc implements JarRepo {
     private static final Logger log = LoggerFactory.getLogger(JarRepoJdbc.class);
 
     private final NamedParameterJdbcTemplate tpl;
+    private final int conditionalAttempts;
+    private final ConditionalDelivery<JarType> delivery;
 
-    public JarRepoJdbc(@Qualifier("jarsTpl") NamedParameterJdbcTemplate tpl) {
+    public JarRepoJdbc(@Qualifier("jarsTpl") NamedParameterJdbcTemplate tpl,
+                       @Value("${packaging.conditional.attempts:3}") int conditionalAttempts,
+                       MeterRegistry registry) {
         this.tpl = tpl;
+        this.conditionalAttempts = conditionalAttempts;
+        this.delivery = new ConditionalDelivery<>(tpl, "jars", "jar_stock", "jar_type", registry);
     }
 
-    private static final String INC_ORDERED = """
-                UPDATE public.jar_stock
-                   SET ordered     = ordered + :req,
-                       last_updated= now(),
-                       row_version = row_version + 1
-                 WHERE jar_type    = :jt
-            """;
-
-
-    private static final String DELIVER_CTE = """
-                WITH s AS (
-                    SELECT jar_type, initial_stock, delivered,
-                           (initial_stock - delivered) AS available
-                      FROM public.jar_stock
-                     WHERE jar_type = :jt
-                     FOR UPDATE
-                ),
-                d AS (
-                    SELECT :req::int AS requested,
-                           GREATEST(0, LEAST(:req::int, s.available)) AS will_deliver
-                      FROM s
-                )
-                UPDATE public.jar_stock js
-                   SET delivered   = js.delivered + d.will_deliver,
-                       last_updated= now(),
-                       row_version = js.row_version + 1
-                  FROM d
-                 WHERE js.jar_type = :jt
-             RETURNING d.requested, d.will_deliver
+    private static final String STOCK_FOR = """
+                SELECT jar_type, COALESCE(final_stock,0) AS final_stock, row_version
+                FROM public.jar_stock
+                WHERE jar_type IN (:types)
             """;
 
+    @Override
+    public Map<JarType, StockRow> stockFor(Set<JarType> types) {
+        if (types.isEmpty()) return Map.of();
+        List<String> names = types.stream().map(Enum::name).toList();
+        return tpl.query(STOCK_FOR, Map.of("types", names), rs -> {
+            EnumMap<JarType, StockRow> m = new EnumMap<>(JarType.class);
+            while (rs.next()) {
+                JarType jt = JarType.valueOf(rs.getString("jar_type"));
+                m.put(jt, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+            }
+            return m;
+        });
+    }
 
     private static final String INSERT_LOG = """
                 INSERT INTO public.processing_log(order_number, jar_type, requested_qty, delivered_qty, reason)
                 VALUES (:orderNumber, :jt, :requested, :delivered, :reason)
             """;
 
-    public void deliveredJars(int orderNumber, Map<JarType, Integer> requestedPlan) {
-        if (requestedPlan == null || requestedPlan.isEmpty()) {
-            log.info("[jars.delivered] empty plan → no-op");
-            return;
-        }
+    public PackagingDelivery<JarType> deliveredJars(int orderNumber, JarQuantities plan) {
+        return deliver(orderNumber, plan, Map.of(), 0);
+    }
 
+    @Override
+    public PackagingDelivery<JarType> deliveredJars(JarQuantities plan, Map<JarType, StockRow> expected) {
+        return deliver(1, plan, expected, conditionalAttempts);
+    }
 
-        EnumMap<JarType, Integer> plan = new EnumMap<>(JarType.class);
-        for (var e : requestedPlan.entrySet()) {
-            Integer qty = e.getValue();
-            if (qty == null || qty <= 0) continue;
-            plan.merge(e.getKey(), qty, Integer::sum);
+    private PackagingDelivery<JarType> deliver(int orderNumber, JarQuantities plan, Map<JarType, StockRow> expected, int attempts) {
+        if (plan == null || plan.isEmpty()) {
+            log.info("[jars.delivered] empty plan → no-op");
+            return PackagingDelivery.none();
         }
-        for (var e : plan.entrySet()) {
-            String jt = e.getKey().name();
-            int requested = e.getValue();
 
-            int upd = tpl.update(INC_ORDERED, new MapSqlParameterSource()
-                    .addValue("jt", jt)
-                    .addValue("req", requested));
-            if (upd == 0) {
-                throw new IllegalStateException("Jar type not found: " + jt);
-            }
-
-
-            Map<String, Object> res = tpl.queryForMap(DELIVER_CTE, new MapSqlParameterSource()
-                    .addValue("jt", jt)
-                    .addValue("req", requested));
-            int delivered = ((Number) res.get("will_deliver")).intValue();
+        EnumMap<JarType, Integer> deliveredByType = new EnumMap<>(JarType.class);
+        EnumMap<JarType, StockRow> remaining = new EnumMap<>(JarType.class);
+        for (JarType type : JarType.values()) {
+            int requested = plan.get(type);
+            if (requested <= 0) continue;
+            String jt = type.name();
+            PackagingDeliveryEvent event = new PackagingDeliveryEvent();
+            event.begin();
 
+            ConditionalDelivery.Delivered d = delivery.deliver(type, requested, expected.get(type), attempts);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
 
             String reason = (delivered == requested) ? "FULL_DELIVERY" : "PARTIAL_DELIVERY";
             tpl.update(INSERT_LOG, new MapSqlParameterSource()
@@ -98,14 +100,25 @@ public class JarRepoJdbc implements JarRepo {
                     .addValue("delivered", delivered)
                     .addValue("reason", reason));
 
-            log.info("[jars.delivered] order={} type={} requested={} delivered={} reason={}",
-                    orderNumber, jt, requested, delivered, reason);
+            log.info("[jars.delivered] order={} type={} requested={} delivered={} reason={} conflicts={}",
+                    orderNumber, jt, requested, delivered, reason, d.conflicts());
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.packaging = "jars";
+                event.itemType = jt;
+                event.orderNumber = orderNumber;
+                event.requested = requested;
+                event.delivered = delivered;
+                event.conflicts = d.conflicts();
+                event.commit();
+            }
         }
+        return new PackagingDelivery<>(deliveredByType, remaining);
     }
 
-
     @Override
-    public void deliveredJars(Map<JarType, Integer> plan) {
-        deliveredJars(1, plan);
+    public PackagingDelivery<JarType> deliveredJars(JarQuantities plan) {
+        return deliveredJars(1, plan);
     }
 }
@@ -1,92 +1,91 @@
 package com.marianbastiurea.infrastructure.jdbc;
 
-import com.marianbastiurea.domain.enums.JarType;
 import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
 import com.marianbastiurea.domain.repo.LabelRepo;
+import com.marianbastiurea.infrastructure.jfr.PackagingDeliveryEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Repository
+@Profile("!simulation")
 public class LabelRepoJdbc implements LabelRepo {
 
     private static final Logger log = LoggerFactory.getLogger(LabelRepoJdbc.class);
     private final NamedParameterJdbcTemplate tpl;
+    private final int conditionalAttempts;
+    private final ConditionalDelivery<LabelType> delivery;
 
-    public LabelRepoJdbc(@Qualifier("labelsTpl") NamedParameterJdbcTemplate tpl) {
+    public LabelRepoJdbc(@Qualifier("labelsTpl") NamedParameterJdbcTemplate tpl,
+                         @Value("${packaging.conditional.attempts:3}") int conditionalAttempts,
+                         MeterRegistry registry) {
         this.tpl = tpl;
+        this.conditionalAttempts = conditionalAttempts;
+        this.delivery = new ConditionalDelivery<>(tpl, "labels", "label_stock", "label_type", registry);
     }
 
-    private static final String INC_ORDERED = """
-        UPDATE public.label_stock
-           SET ordered     = ordered + :req,
-               last_updated= now(),
-               row_version = row_version + 1
-         WHERE label_type  = :lt
-    """;
-
-    private static final String DELIVER_CTE = """
-        WITH s AS (
-            SELECT label_type, initial_stock, delivered,
-                   (initial_stock - delivered) AS available
-              FROM public.label_stock
-             WHERE label_type = :lt
-             FOR UPDATE
-        ),
-        d AS (
-            SELECT :req::int AS requested,
-                   GREATEST(0, LEAST(:req::int, s.available)) AS will_deliver
-              FROM s
-        )
-        UPDATE public.label_stock ls
-           SET delivered   = ls.delivered + d.will_deliver,
-               last_updated= now(),
-               row_version = ls.row_version + 1
-          FROM d
-         WHERE ls.label_type = :lt
-     RETURNING d.requested, d.will_deliver
-    """;
+    private static final String STOCK_FOR = """
+                SELECT label_type, COALESCE(final_stock,0) AS final_stock, row_version
+                FROM public.label_stock
+                WHERE label_type IN (:types)
+            """;
 
+    @Override
+    public Map<LabelType, StockRow> stockFor(Set<LabelType> types) {
+        if (types.isEmpty()) return Map.of();
+        List<String> names = types.stream().map(Enum::name).toList();
+        return tpl.query(STOCK_FOR, Map.of("types", names), rs -> {
+            EnumMap<LabelType, StockRow> m = new EnumMap<>(LabelType.class);
+            while (rs.next()) {
+                LabelType lt = LabelType.valueOf(rs.getString("label_type"));
+                m.put(lt, new StockRow(rs.getLong("row_version"), Math.max(rs.getInt("final_stock"), 0)));
+            }
+            return m;
+        });
+    }
 
     private static final String INSERT_LOG = """
         INSERT INTO public.processing_log(order_number, label_type, requested_qty, delivered_qty, reason)
         VALUES (:orderNumber, :lt, :requested, :delivered, :reason)
     """;
 
+    public PackagingDelivery<LabelType> deliveredLabels(int orderNumber, JarQuantities requestedJarsPlan) {
+        return deliver(orderNumber, requestedJarsPlan, Map.of(), 0);
+    }
 
-    public void deliveredLabels(int orderNumber, Map<JarType, Integer> requestedJarsPlan) {
-
-        EnumMap<LabelType, Integer> labelsReq = new EnumMap<>(LabelType.class);
-        for (var e : requestedJarsPlan.entrySet()) {
-            Integer qty = e.getValue();
-            if (qty == null || qty <= 0) continue;
-            LabelType lt = labelTypeFor(e.getKey());
-            labelsReq.merge(lt, qty, Integer::sum);
-        }
-
-        for (var e : labelsReq.entrySet()) {
-            String lt = e.getKey().name();
-            int requested = e.getValue();
-
-            int upd = tpl.update(INC_ORDERED, new MapSqlParameterSource()
-                    .addValue("lt", lt)
-                    .addValue("req", requested));
-            if (upd == 0) {
-                throw new IllegalStateException("Label type not found: " + lt);
-            }
-
-            Map<String, Object> res = tpl.queryForMap(DELIVER_CTE, new MapSqlParameterSource()
-                    .addValue("lt", lt)
-                    .addValue("req", requested));
-            int delivered = ((Number) res.get("will_deliver")).intValue();
+    @Override
+    public PackagingDelivery<LabelType> deliveredLabels(JarQuantities plan, Map<LabelType, StockRow> expected) {
+        return deliver(1, plan, expected, conditionalAttempts);
+    }
 
+    private PackagingDelivery<LabelType> deliver(int orderNumber, JarQuantities requestedJarsPlan, Map<LabelType, StockRow> expected, int attempts) {
+        EnumMap<LabelType, Integer> deliveredByType = new EnumMap<>(LabelType.class);
+        EnumMap<LabelType, StockRow> remaining = new EnumMap<>(LabelType.class);
+        for (LabelType type : LabelType.values()) {
+            int requested = requestedJarsPlan.labels(type);
+            if (requested <= 0) continue;
+            String lt = type.name();
+            PackagingDeliveryEvent event = new PackagingDeliveryEvent();
+            event.begin();
+
+            ConditionalDelivery.Delivered d = delivery.deliver(type, requested, expected.get(type), attempts);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
 
             String reason = (delivered == requested) ? "FULL_DELIVERY" : "PARTIAL_DELIVERY";
             tpl.update(INSERT_LOG, new MapSqlParameterSource()
@@ -96,22 +95,25 @@ public class LabelRepoJdbc implements LabelRepo {
                     .addValue("delivered", delivered)
                     .addValue("reason", reason));
 
-            log.info("[labels.delivered] order={} type={} requested={} delivered={} reason={}",
-                    orderNumber, lt, requested, delivered, reason);
+            log.info("[labels.delivered] order={} type={} requested={} delivered={} reason={} conflicts={}",
+                    orderNumber, lt, requested, delivered, reason, d.conflicts());
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.packaging = "labels";
+                event.itemType = lt;
+                event.orderNumber = orderNumber;
+                event.requested = requested;
+                event.delivered = delivered;
+                event.conflicts = d.conflicts();
+                event.commit();
+            }
         }
+        return new PackagingDelivery<>(deliveredByType, remaining);
     }
 
     @Override
-    public void deliveredLabels(Map<JarType, Integer> plan) {
-        deliveredLabels(1, plan); // fallback (order necunoscut)
-    }
-
-
-    private static LabelType labelTypeFor(JarType jt) {
-        return switch (jt) {
-            case JAR200 -> LabelType.LABEL200;
-            case JAR400 -> LabelType.LABEL400;
-            case JAR800 -> LabelType.LABEL800;
-        };
+    public PackagingDelivery<LabelType> deliveredLabels(JarQuantities plan) {
+        return deliveredLabels(1, plan); // fallback (order necunoscut)
     }
 }
@@ -0,0 +1,153 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.repo.OrderQueue;
+import com.marianbastiurea.domain.services.OrderGrouping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link OrderQueue} over {@code public.orders}. A group is claimed by locking its head row with
+ * {@code FOR UPDATE SKIP LOCKED}; the {@code attempts} the claim set is its token, and renewing or
+ * settling only touches rows still carrying it (and, with partitions, the same {@code claim_epoch}).
+ */
+@Repository
+@Profile("!simulation")
+public class OrderQueueJdbc implements OrderQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderQueueJdbc.class);
+
+    private static final String CLAIM = """
+            WITH heads AS (
+                SELECT o.order_number, o.honey_type
+                  FROM public.orders o
+                 WHERE o.honey_type IN (:honeys)
+                   AND (o.status = 'PENDING'
+                        OR (o.status = 'CLAIMED' AND o.claimed_at < now() - make_interval(secs => :leaseSec)))
+                   AND o.id = (SELECT min(x.id) FROM public.orders x
+                                WHERE x.order_number = o.order_number AND x.honey_type = o.honey_type)
+                 ORDER BY o.order_number, o.honey_type
+                 LIMIT :maxGroups
+                 FOR UPDATE OF o SKIP LOCKED
+            )
+            UPDATE public.orders o
+               SET status = 'CLAIMED', claimed_by = :worker, claimed_at = now(), attempts = o.attempts + 1,
+                   claim_epoch = 0
+              FROM heads h
+             WHERE o.order_number = h.order_number AND o.honey_type = h.honey_type
+            RETURNING o.order_number, o.honey_type, o.jar_type, o.quantity, o.attempts
+            """;
+
+    private static final String RENEW = """
+            UPDATE public.orders o
+               SET claimed_at = now(), claim_epoch = :epoch
+             WHERE o.order_number = :ord AND o.honey_type = :honey
+               AND o.status = 'CLAIMED' AND o.claimed_by = :worker AND o.attempts = :attempt
+               AND (:epoch = 0 OR EXISTS (SELECT 1 FROM public.partition_lease l
+                                           WHERE l.partition = o.honey_type AND l.epoch = :epoch
+                                             AND l.expires_at > now()))
+            """;
+
+    private static final String COMPLETE = """
+            UPDATE public.orders
+               SET status = :status, result = :result, processed_at = now(),
+                   claimed_by = CASE WHEN :status = 'PENDING' THEN NULL ELSE claimed_by END
+             WHERE order_number = :ord AND honey_type = :honey
+               AND status = 'CLAIMED' AND claimed_by = :worker AND attempts = :attempt
+               AND claim_epoch = :epoch
+            """;
+
+    private final NamedParameterJdbcTemplate tpl;
+
+    public OrderQueueJdbc(@Qualifier("ordersTpl") NamedParameterJdbcTemplate tpl) {
+        this.tpl = requireNonNull(tpl, "tpl");
+    }
+
+    @Override
+    public List<Claimed> claim(String worker, Set<HoneyType> honeys, int maxGroups, Duration lease) {
+        if (honeys.isEmpty()) return List.of();
+        List<Map<String, Object>> rows = tpl.queryForList(CLAIM, new MapSqlParameterSource()
+                .addValue("worker", worker)
+                .addValue("honeys", honeys.stream().map(HoneyType::name).toList())
+                .addValue("maxGroups", maxGroups)
+                .addValue("leaseSec", lease.toMillis() / 1000.0));
+        if (rows.isEmpty()) return List.of();
+
+        Map<String, Integer> attempts = new HashMap<>();
+        for (Map<String, Object> r : rows) {
+            attempts.merge(key(r.get("order_number"), r.get("honey_type")),
+                    ((Number) r.get("attempts")).intValue(), Math::max);
+        }
+
+        OrderGrouping.Grouped grouped = OrderGrouping.group(rows);
+        List<Claimed> out = new ArrayList<>(attempts.size());
+        grouped.orders().forEach((orderNo, perHoney) -> perHoney.forEach((honey, jars) -> {
+            Integer n = attempts.remove(key(orderNo, honey.name()));
+            out.add(new Claimed(new Order(honey, jars, orderNo), n == null ? 1 : n, 0));
+        }));
+
+        // groups with nothing reservable (unknown types, zero quantities) would otherwise sit CLAIMED forever
+        attempts.forEach((k, n) -> {
+            int sep = k.indexOf('|');
+            settle(worker, Integer.parseInt(k.substring(0, sep)), k.substring(sep + 1), n, 0, "FAILED", "no reservable rows");
+        });
+        if (!attempts.isEmpty()) {
+            log.warn("[queue] {} claimed {} group(s) without reservable rows, marked FAILED", worker, attempts.size());
+        }
+        return out;
+    }
+
+    @Override
+    public boolean renew(String worker, Claimed claimed) {
+        return tpl.update(RENEW, token(worker, claimed.order().orderNumber(), claimed.order().honeyType().name(),
+                claimed.attempts(), claimed.epoch())) > 0;
+    }
+
+    @Override
+    public boolean complete(String worker, Claimed claimed, Outcome outcome, String result) {
+        Order order = claimed.order();
+        String status = switch (outcome) {
+            case DONE -> "DONE";
+            case FAILED -> "FAILED";
+            case RETRY -> "PENDING";
+        };
+        boolean settled = settle(worker, order.orderNumber(), order.honeyType().name(), claimed.attempts(), claimed.epoch(),
+                status, result);
+        if (!settled) {
+            log.warn("[queue] {} lost its claim on order#{} [{}] (attempt {}) before settling it as {}",
+                    worker, order.orderNumber(), order.honeyType(), claimed.attempts(), status);
+        }
+        return settled;
+    }
+
+    private boolean settle(String worker, int orderNumber, String honey, int attempt, long epoch,
+                           String status, String result) {
+        return tpl.update(COMPLETE, token(worker, orderNumber, honey, attempt, epoch)
+                .addValue("status", status)
+                .addValue("result", result)) > 0;
+    }
+
+    private static MapSqlParameterSource token(String worker, int orderNumber, String honey, int attempt, long epoch) {
+        return new MapSqlParameterSource()
+                .addValue("ord", orderNumber)
+                .addValue("honey", honey)
+                .addValue("worker", worker)
+                .addValue("attempt", attempt)
+                .addValue("epoch", epoch);
+    }
+
+    private static String key(Object orderNumber, Object honey) {
+        return ((Number) orderNumber).intValue() + "|" + honey.toString().trim();
+    }
+}
@@ -2,11 +2,13 @@ package com.marianbastiurea.infrastructure.jdbc;
 
 import com.marianbastiurea.domain.enums.HoneyType;
 import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
 import com.marianbastiurea.domain.model.Order;
 import com.marianbastiurea.domain.repo.OrderRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -14,9 +16,16 @@ import org.springframework.stereotype.Repository;
 import java.util.*;
 
 @Repository
+@Profile("!simulation")
 public class OrderRepoJdbc implements OrderRepo {
 
     private static final Logger log = LoggerFactory.getLogger(OrderRepoJdbc.class);
+
+    static final String INSERT_PROCESSING_LOG = """
+            INSERT INTO processing_log(order_number, honey_type, jar_type, requested_qty, delivered_qty, reason)
+            VALUES (:o, :h, :j, :rq, :dq, :r)
+            """;
+
     private final NamedParameterJdbcTemplate tpl;
 
     public OrderRepoJdbc(@Qualifier("ordersTpl") NamedParameterJdbcTemplate tpl) {
@@ -25,25 +34,24 @@ public class OrderRepoJdbc implements OrderRepo {
 
     @Override
     public List<Order> findByOrderNumber(Integer orderNumber) {
-        List<Map<String, Object>> rows = tpl.queryForList("""
+        List<Map<String, Object>> rows = ReadRouting.readOnly(() -> tpl.queryForList("""
             SELECT honey_type, jar_type, quantity
               FROM orders
              WHERE order_number = :ord
              ORDER BY honey_type, jar_type
-            """, Map.of("ord", orderNumber));
+            """, Map.of("ord", orderNumber)));
 
-        LinkedHashMap<HoneyType, EnumMap<JarType, Integer>> grouped = new LinkedHashMap<>();
+        LinkedHashMap<HoneyType, JarQuantities> grouped = new LinkedHashMap<>();
         for (var r : rows) {
             HoneyType honey = HoneyType.valueOf(r.get("honey_type").toString().trim().toUpperCase(Locale.ROOT));
             JarType   jar   = JarType.valueOf(r.get("jar_type").toString().trim().toUpperCase(Locale.ROOT));
             int       qty   = ((Number) r.get("quantity")).intValue();
-            grouped.computeIfAbsent(honey, k -> new EnumMap<>(JarType.class))
-                    .merge(jar, qty, Integer::sum);
+            grouped.merge(honey, JarQuantities.of(jar, qty), JarQuantities::plus);
         }
 
         List<Order> out = new ArrayList<>(grouped.size());
         grouped.forEach((honey, jars) ->
-                out.add(new Order(honey, Collections.unmodifiableMap(jars), orderNumber))
+                out.add(new Order(honey, jars, orderNumber))
         );
         log.info("[findByOrderNumber] order#{} -> {} tip(uri) de miere", orderNumber, out.size());
         return Collections.unmodifiableList(out);
@@ -53,22 +61,7 @@ public class OrderRepoJdbc implements OrderRepo {
     public void logProcessingBatch(int orderNumber, List<ProcessingLogRow> lines) {
         if (lines == null || lines.isEmpty()) return;
 
-        final String sql = """
-            INSERT INTO processing_log(order_number, honey_type, jar_type, requested_qty, delivered_qty, reason)
-            VALUES (:o, :h, :j, :rq, :dq, :r)
-            """;
-
-        MapSqlParameterSource[] batch = lines.stream()
-                .map(l -> new MapSqlParameterSource()
-                        .addValue("o", orderNumber)
-                        .addValue("h", l.honeyType().name())
-                        .addValue("j", l.jarType().name())
-                        .addValue("rq", l.requestedQty())
-                        .addValue("dq", l.deliveredQty())
-                        .addValue("r", l.reason() == null ? "" : l.reason()))
-                .toArray(MapSqlParameterSource[]::new);
-
-        tpl.batchUpdate(sql, batch);
+        tpl.batchUpdate(INSERT_PROCESSING_LOG, processingLogBatch(orderNumber, lines));
         log.info("[logProcessingBatch] order#{} -> {} rând(uri) inserate în processing_log", orderNumber, lines.size());
     }
 
@@ -82,10 +75,7 @@ public class OrderRepoJdbc implements OrderRepo {
             """, Map.of("o", orderNumber, "j", jt.name()), String.class);
 
         String honeyType = types.get(0);
-        tpl.update("""
-            INSERT INTO processing_log(order_number, honey_type, jar_type, requested_qty, delivered_qty, reason)
-            VALUES (:o, :h, :j, :rq, :dq, :r)
-            """,
+        tpl.update(INSERT_PROCESSING_LOG,
                 new MapSqlParameterSource()
                         .addValue("o", orderNumber)
                         .addValue("h", honeyType)
@@ -97,4 +87,19 @@ public class OrderRepoJdbc implements OrderRepo {
         log.info("[insertProcessingLog] order#{} -> 1 rând inserat (ht={} jt={} rq={} dq={})",
                 orderNumber, honeyType, jt, req, del);
     }
+
+    /**
+     * Parameters for {@link #INSERT_PROCESSING_LOG}, one set per row of {@code orderNumber}.
+     */
+    static MapSqlParameterSource[] processingLogBatch(int orderNumber, List<ProcessingLogRow> lines) {
+        return lines.stream()
+                .map(l -> new MapSqlParameterSource()
+                        .addValue("o", orderNumber)
+                        .addValue("h", l.honeyType().name())
+                        .addValue("j", l.jarType().name())
+                        .addValue("rq", l.requestedQty())
+                        .addValue("dq", l.deliveredQty())
+                        .addValue("r", l.reason() == null ? "" : l.reason()))
+                .toArray(MapSqlParameterSource[]::new);
+    }
 }
@@ -0,0 +1,14 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+
+/**
+ * A honey write turned away because a newer owner of the partition has written since; nothing
+ * was written.
+ */
+public class PartitionFencedException extends RuntimeException {
+
+    public PartitionFencedException(HoneyType type, long epoch, long fencedAt) {
+        super(type + " is fenced at epoch " + fencedAt + ", this write ran at " + epoch);
+    }
+}
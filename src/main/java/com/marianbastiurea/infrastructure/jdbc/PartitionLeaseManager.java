@@ -0,0 +1,200 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.repo.PartitionLeases;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hands out {@link HoneyType} partitions to the live instances through lease tables in the orders
+ * database: partition {@code i} goes to member {@code i % members} in node-id order. A lease is
+ * only trusted locally until it runs out, and its epoch goes with the work done for it.
+ */
+@Component
+@Profile("!simulation")
+@ConditionalOnProperty(name = "partitions.enabled", havingValue = "true")
+public class PartitionLeaseManager implements PartitionLeases, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionLeaseManager.class);
+
+    private static final String HEARTBEAT = """
+            INSERT INTO public.lease_member(node, expires_at)
+            VALUES (:node, now() + make_interval(secs => :ttlSec))
+            ON CONFLICT (node) DO UPDATE SET expires_at = EXCLUDED.expires_at
+            """;
+
+    private static final String MEMBERS = """
+            SELECT node FROM public.lease_member WHERE expires_at > now() ORDER BY node
+            """;
+
+    private static final String ACQUIRE = """
+            INSERT INTO public.partition_lease AS l (partition, owner, expires_at)
+            VALUES (:partition, :node, now() + make_interval(secs => :ttlSec))
+            ON CONFLICT (partition) DO UPDATE
+               SET owner      = EXCLUDED.owner,
+                   expires_at = EXCLUDED.expires_at,
+                   epoch      = l.epoch + CASE WHEN l.owner = EXCLUDED.owner THEN 0 ELSE 1 END
+             WHERE l.owner = EXCLUDED.owner OR l.expires_at < now()
+            RETURNING l.epoch
+            """;
+
+    private static final String RELEASE = """
+            UPDATE public.partition_lease SET expires_at = '-infinity'
+             WHERE partition = :partition AND owner = :node
+            """;
+
+    private final NamedParameterJdbcTemplate tpl;
+    private final ThreadFactory vtFactory;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Duration tick;
+
+    private volatile Owned owned = new Owned(Map.of(), 0);
+    private volatile boolean running;
+    private Thread ticker;
+
+    private record Owned(Map<HoneyType, Long> epochs, long validUntilNanos) {
+
+        Set<HoneyType> partitions() {
+            return epochs.keySet();
+        }
+    }
+
+    public PartitionLeaseManager(@Qualifier("ordersTpl") NamedParameterJdbcTemplate tpl,
+                                 @Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                                 MeterRegistry registry,
+                                 @Value("${partitions.node-id:}") String nodeId,
+                                 @Value("${partitions.ttl-ms:15000}") long ttlMs) {
+        this.tpl = requireNonNull(tpl, "tpl");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.tick = ttl.dividedBy(3);
+
+        Gauge.builder("partitions.owned", this, m -> m.owned().size())
+                .description("Honey partitions leased by this instance")
+                .tag("node", this.nodeId)
+                .register(registry);
+    }
+
+    @Override
+    public Set<HoneyType> owned() {
+        Owned o = owned;
+        return valid(o) ? o.partitions() : Set.of();
+    }
+
+    @Override
+    public long epoch(HoneyType honey) {
+        Owned o = owned;
+        return valid(o) ? o.epochs().getOrDefault(honey, NOT_OWNED) : NOT_OWNED;
+    }
+
+    private static boolean valid(Owned o) {
+        return System.nanoTime() - o.validUntilNanos() < 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        renew();
+        ticker = vtFactory.newThread(() -> {
+            while (running) {
+                LockSupport.parkNanos(tick.toNanos());
+                if (running) renew();
+            }
+        });
+        ticker.start();
+        log.info("[lease] {} joined (ttl={} ms, tick={} ms)", nodeId, ttl.toMillis(), tick.toMillis());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(ticker);
+        Set<HoneyType> held = owned.partitions();
+        owned = new Owned(Map.of(), 0);
+        try {
+            held.forEach(this::release);
+            tpl.update("DELETE FROM public.lease_member WHERE node = :node", Map.of("node", nodeId));
+            log.info("[lease] {} left, released {}", nodeId, held);
+        } catch (Exception ex) {
+            log.warn("[lease] {} could not leave cleanly, leases expire in {} ms: {}", nodeId, ttl.toMillis(), ex.toString());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // up before the workers that read owned(), down after them
+        return DEFAULT_PHASE - 1;
+    }
+
+    private void renew() {
+        long started = System.nanoTime();
+        try {
+            MapSqlParameterSource me = params(null);
+            tpl.update(HEARTBEAT, me);
+            List<String> members = tpl.queryForList(MEMBERS, Map.of(), String.class);
+            int index = members.indexOf(nodeId);
+
+            Map<HoneyType, Long> next = new EnumMap<>(HoneyType.class);
+            for (HoneyType h : HoneyType.values()) {
+                boolean assigned = index >= 0 && h.ordinal() % members.size() == index;
+                List<Long> epoch = assigned ? tpl.queryForList(ACQUIRE, params(h), Long.class) : List.of();
+                if (!epoch.isEmpty()) {
+                    next.put(h, epoch.getFirst());
+                } else if (!assigned && owned.partitions().contains(h)) {
+                    release(h);
+                }
+            }
+
+            Map<HoneyType, Long> previous = owned.epochs();
+            owned = new Owned(Collections.unmodifiableMap(next), started + ttl.toNanos());
+            if (!previous.equals(next)) {
+                log.info("[lease] {} owns {} ({} live member(s))", nodeId, next, members.size());
+            }
+        } catch (Exception ex) {
+            // keep what we had until the local lease deadline passes, owned() then reports nothing
+            log.warn("[lease] {} renewal failed: {}", nodeId, ex.toString());
+        }
+    }
+
+    private void release(HoneyType h) {
+        tpl.update(RELEASE, params(h));
+    }
+
+    private MapSqlParameterSource params(HoneyType partition) {
+        return new MapSqlParameterSource()
+                .addValue("node", nodeId)
+                .addValue("partition", partition == null ? null : partition.name())
+                .addValue("ttlSec", ttl.toMillis() / 1000.0);
+    }
+}
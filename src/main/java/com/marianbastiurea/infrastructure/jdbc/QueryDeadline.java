@@ -0,0 +1,35 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Per-call deadline carried in a {@link ScopedValue}, so it follows the caller into every
+ * {@code StructuredTaskScope} fork opened inside {@link #callWithin}. JDBC statements and
+ * connection admission read it to bound their own waits.
+ */
+public final class QueryDeadline {
+
+    private static final ScopedValue<Instant> DEADLINE = ScopedValue.newInstance();
+
+    private QueryDeadline() {
+    }
+
+    public static <T> T callWithin(Instant deadline, DeadlineCall<T> call) throws Exception {
+        return ScopedValue.where(DEADLINE, deadline).call(call::call);
+    }
+
+    public static Optional<Instant> current() {
+        return DEADLINE.isBound() ? Optional.of(DEADLINE.get()) : Optional.empty();
+    }
+
+    public static Optional<Duration> remaining() {
+        return current().map(d -> Duration.between(Instant.now(), d));
+    }
+
+    @FunctionalInterface
+    public interface DeadlineCall<T> {
+        T call() throws Exception;
+    }
+}
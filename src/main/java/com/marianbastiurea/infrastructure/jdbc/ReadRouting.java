@@ -0,0 +1,23 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks work that may be served by a read replica. Only code running inside
+ * {@link #readOnly} and outside a transaction is routed away from the primary.
+ */
+public final class ReadRouting {
+
+    private static final ScopedValue<Boolean> READ_ONLY = ScopedValue.newInstance();
+
+    private ReadRouting() {
+    }
+
+    public static <T> T readOnly(Supplier<T> read) {
+        return ScopedValue.where(READ_ONLY, Boolean.TRUE).call(read::get);
+    }
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.isBound() && READ_ONLY.get();
+    }
+}
@@ -0,0 +1,88 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // the last replayed commit only dates the lag while WAL is waiting to be replayed: on an idle
+    // primary it keeps ageing, so a replica that has replayed everything it received is caught up
+    private static final String LAG_SQL = """
+                SELECT CASE
+                         WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                         ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0)
+                       END
+            """;
+
+    private final String name;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private final Duration checkEvery;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile long lagMs = -1;
+    private volatile long lastCheckNanos;
+    private volatile boolean healthy;
+    private volatile Thread worker;
+
+    public ReplicaLagMonitor(String name, DataSource replica, Duration maxLag, Duration checkEvery) {
+        this.name = name;
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout((int) Math.max(1, checkEvery.toSeconds()));
+        this.maxLagMs = maxLag.toMillis();
+        this.checkEvery = checkEvery;
+    }
+
+    public boolean isHealthy() {
+        if (started.compareAndSet(false, true)) {
+            worker = Thread.ofVirtual().name("replica-lag-" + name).start(this::loop);
+        }
+        return healthy && System.nanoTime() - lastCheckNanos < checkEvery.toNanos() * 3;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    private void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            check();
+            try {
+                Thread.sleep(checkEvery);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void check() {
+        boolean wasHealthy = healthy;
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagMs = lag == null ? 0 : lag.longValue();
+            healthy = lagMs <= maxLagMs;
+        } catch (RuntimeException ex) {
+            lagMs = -1;
+            healthy = false;
+            log.debug("[replica] {} lag check failed: {}", name, ex.toString());
+        }
+        lastCheckNanos = System.nanoTime();
+        if (wasHealthy != healthy) {
+            log.info("[replica] {} {} (lag={} ms, maxLag={} ms)",
+                    name, healthy ? "serving reads" : "bypassed, reads go to primary", lagMs, maxLagMs);
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+}
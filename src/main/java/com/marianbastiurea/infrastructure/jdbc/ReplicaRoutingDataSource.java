@@ -0,0 +1,59 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sends work marked with {@link ReadRouting#readOnly} to the replica while its lag stays
+ * within bounds. Anything inside a transaction, and therefore every write and every
+ * {@code row_version}-checked update, always uses the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    enum Target {PRIMARY, REPLICA}
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lag;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lag) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lag = lag;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!ReadRouting.isReadOnly() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        return lag.isHealthy() ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public ReplicaLagMonitor getLagMonitor() {
+        return lag;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lag.close();
+        if (replica instanceof Closeable c) c.close();
+        if (primary instanceof Closeable c) c.close();
+    }
+}
@@ -3,10 +3,15 @@ package com.marianbastiurea.infrastructure.jdbc;
 import com.marianbastiurea.api.dto.DeliveryResult;
 import com.marianbastiurea.domain.enums.HoneyType;
 import com.marianbastiurea.domain.repo.HoneyRepo;
+import com.marianbastiurea.infrastructure.jfr.StockUpdateRetryEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
@@ -19,14 +24,18 @@ import java.math.BigDecimal;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 
 @Repository
+@Profile("!simulation")
 public class RouterHoneyRepo implements HoneyRepo {
 
     private static final Logger log = LoggerFactory.getLogger(RouterHoneyRepo.class);
 
     private final Map<HoneyType, NamedParameterJdbcTemplate> tplByType = new EnumMap<>(HoneyType.class);
     private final Map<HoneyType, TransactionTemplate> txByType = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, Counter> retriesByType = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, DistributionSummary> attemptsByType = new EnumMap<>(HoneyType.class);
     private final int retryLimit;
 
     public RouterHoneyRepo(
@@ -36,7 +45,8 @@ public class RouterHoneyRepo implements HoneyRepo {
             @Qualifier("lindenTpl") NamedParameterJdbcTemplate lindenTpl,
             @Qualifier("sunflowerTpl") NamedParameterJdbcTemplate sunFlowerTpl,
             @Qualifier("falseindigoTpl") NamedParameterJdbcTemplate falseIndigoTpl,
-            @Value("${honey.repo.retries:5}") int retryLimit
+            @Value("${honey.repo.retries:5}") int retryLimit,
+            MeterRegistry registry
     ) {
         this.retryLimit = retryLimit;
 
@@ -52,6 +62,14 @@ public class RouterHoneyRepo implements HoneyRepo {
                     tpl.getJdbcTemplate().getDataSource(), "Missing DataSource for " + type);
             var tm = new DataSourceTransactionManager(ds);
             txByType.put(type, new TransactionTemplate(tm));
+            retriesByType.put(type, Counter.builder("reservation.honey.retries")
+                    .description("Optimistic-lock conflicts in HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
+            attemptsByType.put(type, DistributionSummary.builder("reservation.honey.attempts")
+                    .description("Attempts needed by HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
         });
 
         log.info("RouterHoneyRepo initialized. retryLimit={}", this.retryLimit);
@@ -68,8 +86,8 @@ public class RouterHoneyRepo implements HoneyRepo {
     @Override
     public BigDecimal availableKg(HoneyType type) {
         long t0 = System.nanoTime();
-        BigDecimal v = tpl(type).getJdbcTemplate().queryForObject(
-                "SELECT COALESCE(final_stock,0) FROM public.stock WHERE id = 1", BigDecimal.class);
+        BigDecimal v = ReadRouting.readOnly(() -> tpl(type).getJdbcTemplate().queryForObject(
+                "SELECT COALESCE(final_stock,0) FROM public.stock WHERE id = 1", BigDecimal.class));
 
         return v == null ? BigDecimal.ZERO : v;
     }
@@ -80,16 +98,24 @@ public class RouterHoneyRepo implements HoneyRepo {
         Objects.requireNonNull(requestedKg, "requestedKg");
         if (requestedKg.signum() < 0) throw new IllegalArgumentException("requestedKg must be >= 0");
 
+        OptionalLong fence = WriteFence.current();
+        String fenceColumn = fence.isPresent() ? ", fence_epoch" : "";
         for (int attempt = 1; attempt <= retryLimit; attempt++) {
+            StockUpdateRetryEvent retry = new StockUpdateRetryEvent();
+            retry.begin();
             DeliveryResult result = tx(type).execute(status -> {
                 SqlRowSet rs = tpl(type).getJdbcTemplate().queryForRowSet(
                         "SELECT initial_stock, COALESCE(final_stock,0) AS final_stock, " +
-                                "       COALESCE(delivered,0) AS delivered, row_version " +
+                                "       COALESCE(delivered,0) AS delivered, row_version" + fenceColumn + " " +
                                 "FROM public.stock WHERE id = 1"
                 );
                 if (!rs.next()) {
                     throw new IllegalStateException("Stock row missing (id=1)");
                 }
+                // the version check below keeps the fence from moving between this read and the write
+                if (fence.isPresent() && rs.getLong("fence_epoch") > fence.getAsLong()) {
+                    throw new PartitionFencedException(type, fence.getAsLong(), rs.getLong("fence_epoch"));
+                }
 
                 BigDecimal initial = rs.getBigDecimal("initial_stock");
                 BigDecimal freeNow = rs.getBigDecimal("final_stock");
@@ -106,12 +132,14 @@ public class RouterHoneyRepo implements HoneyRepo {
                 MapSqlParameterSource params = new MapSqlParameterSource()
                         .addValue("orderedNow", requestedKg)
                         .addValue("newDelivered", newDelivered)
-                        .addValue("oldVersion", version);
+                        .addValue("oldVersion", version)
+                        .addValue("epoch", fence.orElse(0));
 
                 int updated = tpl(type).update(
                         "UPDATE public.stock " +
                                 "SET ordered      = :orderedNow, " +
                                 "    delivered    = :newDelivered, " +
+                                (fence.isPresent() ? "    fence_epoch  = :epoch, " : "") +
                                 "    row_version  = row_version + 1, " +
                                 "    last_updated = NOW() " +
                                 "WHERE id = 1 AND row_version = :oldVersion " +
@@ -139,8 +167,22 @@ public class RouterHoneyRepo implements HoneyRepo {
                 return new DeliveryResult(deliverNow, newFree, version + 1);
             });
 
-            if (result != null) return result;
+            if (result != null) {
+                attemptsByType.get(type).record(attempt);
+                return result;
+            }
+            retriesByType.get(type).increment();
+            retry.end();
+            if (retry.shouldCommit()) {
+                retry.orderNumber = orderNumber;
+                retry.honeyType = type.name();
+                retry.attempt = attempt;
+                retry.retryLimit = retryLimit;
+                retry.requestedKg = requestedKg.doubleValue();
+                retry.commit();
+            }
         }
+        attemptsByType.get(type).record(retryLimit);
 
         throw new IllegalStateException("Concurrent stock update, retry limit reached for " + type);
     }
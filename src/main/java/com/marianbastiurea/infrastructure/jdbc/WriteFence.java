@@ -0,0 +1,27 @@
+package com.marianbastiurea.infrastructure.jdbc;
+
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+/**
+ * The partition lease epoch a reservation runs under, carried in a {@link ScopedValue} down to
+ * the honey write. A honey database keeps the highest epoch that wrote to it and turns away
+ * writes from a lower one (see {@code db/honey-fence.sql}), so an instance that lost a partition
+ * without noticing cannot take honey once the new owner has written. Writes outside
+ * {@link #callAt} are not fenced.
+ */
+public final class WriteFence {
+
+    private static final ScopedValue<Long> EPOCH = ScopedValue.newInstance();
+
+    private WriteFence() {
+    }
+
+    public static <T> T callAt(long epoch, Supplier<T> call) {
+        return ScopedValue.where(EPOCH, epoch).call(call::get);
+    }
+
+    public static OptionalLong current() {
+        return EPOCH.isBound() ? OptionalLong.of(EPOCH.get()) : OptionalLong.empty();
+    }
+}
@@ -0,0 +1,48 @@
+package com.marianbastiurea.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("honeyfactory.OrderReservation")
+@Label("Order Reservation")
+@Category({"Honey Factory", "Reservation"})
+@Description("One ReservationOrchestrator.reserveFor call, from validation to the last packaging transaction")
+@StackTrace(false)
+public class OrderReservationEvent extends Event {
+
+    @Label("Order Number")
+    public int orderNumber;
+
+    @Label("Honey Type")
+    public String honeyType;
+
+    @Label("Outcome")
+    @Description("reserved, deferred or failed")
+    public String outcome;
+
+    @Label("Requested kg")
+    public double requestedKg;
+
+    @Label("Delivered kg")
+    public double deliveredKg;
+
+    @Label("Jars Delivered")
+    public int jars;
+
+    @Label("Load Inputs")
+    @Timespan(Timespan.NANOSECONDS)
+    public long loadInputs;
+
+    @Label("Honey Process")
+    @Timespan(Timespan.NANOSECONDS)
+    public long honeyProcess;
+
+    @Label("Packaging")
+    @Timespan(Timespan.NANOSECONDS)
+    public long packaging;
+}
@@ -0,0 +1,36 @@
+package com.marianbastiurea.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("honeyfactory.PackagingDelivery")
+@Label("Packaging Delivery")
+@Category({"Honey Factory", "Stock"})
+@Description("Version-conditional (or, after lost races, FOR UPDATE) delivery and processing_log insert for one jar, label or crate type")
+@StackTrace(false)
+public class PackagingDeliveryEvent extends Event {
+
+    @Label("Packaging")
+    @Description("jars, labels or crates")
+    public String packaging;
+
+    @Label("Item Type")
+    public String itemType;
+
+    @Label("Order Number")
+    public int orderNumber;
+
+    @Label("Requested")
+    public int requested;
+
+    @Label("Delivered")
+    public int delivered;
+
+    @Label("Conflicts")
+    @Description("Conditional writes that found the row at a newer version and were replanned")
+    public int conflicts;
+}
@@ -0,0 +1,102 @@
+package com.marianbastiurea.infrastructure.jfr;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.Configuration;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Continuous flight recording based on the JDK {@code default} settings (designed to stay
+ * under 1% overhead) plus the honeyfactory events and {@code jdk.VirtualThreadPinned} with a
+ * stack trace. Pinned virtual threads whose stack passes through the reservation path are
+ * logged and counted as they happen; the rolling buffer is dumped on shutdown when a dump
+ * file is configured.
+ */
+public class PinnedThreadRecorder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadRecorder.class);
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.marianbastiurea.";
+    private static final String RESERVATION_PATH = "com.marianbastiurea.domain.services.ReservationOrchestrator";
+
+    private final RecordingStream stream;
+    private final Path dumpFile;
+    private final MeterRegistry registry;
+
+    public PinnedThreadRecorder(Duration pinnedThreshold,
+                                Duration maxAge,
+                                long maxSizeBytes,
+                                Path dumpFile,
+                                MeterRegistry registry) throws IOException, ParseException {
+        this.registry = requireNonNull(registry, "registry");
+        this.dumpFile = dumpFile;
+        this.stream = new RecordingStream(Configuration.getConfiguration("default"));
+        stream.setMaxAge(maxAge);
+        stream.setMaxSize(maxSizeBytes);
+        stream.enable(PINNED).withThreshold(pinnedThreshold).withStackTrace();
+        stream.enable(OrderReservationEvent.class);
+        stream.enable(StockUpdateRetryEvent.class);
+        stream.enable(PackagingDeliveryEvent.class);
+        stream.onEvent(PINNED, this::onPinned);
+        stream.startAsync();
+
+        log.info("[jfr] Recording started: pinnedThreshold={} ms, maxAge={}, maxSize={} MB, dump={}",
+                pinnedThreshold.toMillis(), maxAge, maxSizeBytes / (1024 * 1024), dumpFile != null ? dumpFile : "off");
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String appFrame = null;
+        boolean reservation = false;
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith(APP_PACKAGE)) continue;
+                if (appFrame == null) {
+                    appFrame = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                }
+                if (type.startsWith(RESERVATION_PATH)) {
+                    reservation = true;
+                    break;
+                }
+            }
+        }
+
+        registry.counter("jfr.virtual_thread.pinned", "path", reservation ? "reservation" : "other").increment();
+        if (reservation) {
+            log.warn("[jfr] Virtual thread pinned for {} ms on the reservation path at {} (thread={})",
+                    event.getDuration().toMillis(), appFrame, threadName(event));
+        } else if (log.isDebugEnabled()) {
+            log.debug("[jfr] Virtual thread pinned for {} ms at {} (thread={})",
+                    event.getDuration().toMillis(), appFrame != null ? appFrame : "<jdk>", threadName(event));
+        }
+    }
+
+    private static String threadName(RecordedEvent event) {
+        return event.getThread() != null ? event.getThread().getJavaName() : "?";
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (dumpFile != null) {
+                stream.dump(dumpFile);
+                log.info("[jfr] Recording dumped to {}", dumpFile);
+            }
+        } catch (IOException ex) {
+            log.warn("[jfr] Could not dump recording to {}: {}", dumpFile, ex.toString());
+        } finally {
+            stream.close();
+        }
+    }
+}
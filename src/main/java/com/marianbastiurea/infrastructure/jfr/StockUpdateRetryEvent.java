@@ -0,0 +1,31 @@
+package com.marianbastiurea.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("honeyfactory.StockUpdateRetry")
+@Label("Stock Update Retry")
+@Category({"Honey Factory", "Stock"})
+@Description("An optimistic-lock attempt in HoneyRepo.processOrder that lost the row_version race and was rolled back")
+@StackTrace(false)
+public class StockUpdateRetryEvent extends Event {
+
+    @Label("Order Number")
+    public int orderNumber;
+
+    @Label("Honey Type")
+    public String honeyType;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Retry Limit")
+    public int retryLimit;
+
+    @Label("Requested kg")
+    public double requestedKg;
+}
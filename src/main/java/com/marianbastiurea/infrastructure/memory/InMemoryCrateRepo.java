@@ -0,0 +1,67 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.repo.CrateRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@Profile("simulation")
+public class InMemoryCrateRepo implements CrateRepo {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCrateRepo.class);
+
+    private final PackagingStock<CrateType> stock;
+    private final SimulatedLatency latency;
+
+    public InMemoryCrateRepo(@Value("${simulation.stock.crates:500000}") int initialPerType, SimulatedLatency latency) {
+        this.stock = new PackagingStock<>(CrateType.class, initialPerType);
+        this.latency = latency;
+    }
+
+    public void reset(int initialPerType) {
+        stock.reset(initialPerType);
+    }
+
+    @Override
+    public Map<CrateType, StockRow> stockFor(Set<CrateType> types) {
+        if (types.isEmpty()) return Map.of();
+        latency.read();
+        return stock.stockFor(types);
+    }
+
+    @Override
+    public PackagingDelivery<CrateType> deliveredCrates(JarQuantities plan, Map<CrateType, StockRow> expected) {
+        // every delivery here is already a compare-and-set on the row, versions or not
+        return deliveredCrates(plan);
+    }
+
+    @Override
+    public PackagingDelivery<CrateType> deliveredCrates(JarQuantities requestedJarsPlan) {
+        if (requestedJarsPlan == null || requestedJarsPlan.isEmpty()) return PackagingDelivery.none();
+
+        EnumMap<CrateType, Integer> deliveredByType = new EnumMap<>(CrateType.class);
+        EnumMap<CrateType, StockRow> remaining = new EnumMap<>(CrateType.class);
+        for (CrateType type : CrateType.values()) {
+            int requested = requestedJarsPlan.crates(type);
+            if (requested <= 0) continue;
+            latency.write();
+            PackagingStock.Delivery d = stock.deliver(type, requested);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
+            log.debug("[crates.delivered] type={} requested={} delivered={}", type, requested, delivered);
+        }
+        return new PackagingDelivery<>(deliveredByType, remaining);
+    }
+}
@@ -0,0 +1,76 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.model.Hold;
+import com.marianbastiurea.domain.model.Hold.Status;
+import com.marianbastiurea.domain.repo.HoldRepo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active holds keyed by id with their owner. Settled holds are dropped rather than kept with
+ * their final status, so millions of simulated holds do not accumulate in memory.
+ */
+@Repository
+@Profile("simulation")
+@ConditionalOnProperty(name = "holds.enabled", havingValue = "true")
+public class InMemoryHoldRepo implements HoldRepo {
+
+    private record Row(Hold hold, String owner) {
+    }
+
+    private final Map<String, Row> holds = new ConcurrentHashMap<>();
+
+    @Override
+    public void insert(Hold hold, String owner) {
+        holds.put(hold.id(), new Row(hold, owner));
+    }
+
+    @Override
+    public Optional<Hold> find(String id) {
+        return Optional.ofNullable(holds.get(id)).map(Row::hold);
+    }
+
+    @Override
+    public int settle(Collection<String> ids, Status status) {
+        int moved = 0;
+        for (String id : ids) {
+            Row before = holds.get(id);
+            if (before != null && holds.remove(id, before)) moved++;
+        }
+        return moved;
+    }
+
+    @Override
+    public int expireOverdue() {
+        Instant now = Instant.now();
+        return settle(holds.values().stream()
+                .filter(r -> r.hold().expiresAt().isBefore(now))
+                .map(r -> r.hold().id())
+                .toList(), Status.EXPIRED);
+    }
+
+    @Override
+    public List<Hold> adopt(String owner) {
+        holds.replaceAll((id, r) -> new Row(r.hold(), owner));
+        return holds.values().stream().map(Row::hold).toList();
+    }
+
+    @Override
+    public boolean lease(String owner, Duration ttl) {
+        // one JVM, one instance
+        return true;
+    }
+
+    @Override
+    public void unlease(String owner) {
+    }
+}
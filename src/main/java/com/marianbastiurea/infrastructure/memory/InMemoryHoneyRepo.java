@@ -0,0 +1,103 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.api.dto.DeliveryResult;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.repo.HoneyRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Honey stock held as grams in one immutable row per type. {@code processOrder} follows the
+ * optimistic row_version protocol of the JDBC repositories: read, compute, then swap only if
+ * nobody else moved the row, retrying up to {@code honey.repo.retries} times.
+ */
+@Repository
+@Qualifier("routerHoneyRepo")
+@Profile("simulation")
+public class InMemoryHoneyRepo implements HoneyRepo {
+
+    private record Row(long initialGrams, long deliveredGrams, long version) {
+        long freeGrams() {
+            return Math.max(0, initialGrams - deliveredGrams);
+        }
+    }
+
+    private final Map<HoneyType, AtomicReference<Row>> rows = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, Counter> retriesByType = new EnumMap<>(HoneyType.class);
+    private final Map<HoneyType, DistributionSummary> attemptsByType = new EnumMap<>(HoneyType.class);
+    private final SimulatedLatency latency;
+    private final int retryLimit;
+
+    public InMemoryHoneyRepo(@Value("${simulation.stock.honey-kg:1000000}") BigDecimal initialKg,
+                             @Value("${honey.repo.retries:5}") int retryLimit,
+                             SimulatedLatency latency,
+                             MeterRegistry registry) {
+        this.latency = requireNonNull(latency, "latency");
+        this.retryLimit = retryLimit;
+        for (HoneyType type : HoneyType.values()) {
+            rows.put(type, new AtomicReference<>(new Row(grams(initialKg), 0, 0)));
+            retriesByType.put(type, Counter.builder("reservation.honey.retries")
+                    .description("Optimistic-lock conflicts in HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
+            attemptsByType.put(type, DistributionSummary.builder("reservation.honey.attempts")
+                    .description("Attempts needed by HoneyRepo.processOrder")
+                    .tag("honey", type.name())
+                    .register(registry));
+        }
+    }
+
+    public void reset(BigDecimal initialKg) {
+        rows.values().forEach(r -> r.set(new Row(grams(initialKg), 0, 0)));
+    }
+
+    @Override
+    public BigDecimal availableKg(HoneyType type) {
+        latency.read();
+        return kg(rows.get(type).get().freeGrams());
+    }
+
+    @Override
+    public DeliveryResult processOrder(HoneyType type, int orderNumber, BigDecimal requestedKg) {
+        requireNonNull(type, "type");
+        requireNonNull(requestedKg, "requestedKg");
+        if (requestedKg.signum() < 0) throw new IllegalArgumentException("requestedKg must be >= 0");
+
+        AtomicReference<Row> ref = rows.get(type);
+        long requested = grams(requestedKg);
+        for (int attempt = 1; attempt <= retryLimit; attempt++) {
+            Row cur = ref.get();
+            latency.write();
+            long deliverNow = Math.min(requested, cur.freeGrams());
+            Row next = new Row(cur.initialGrams(), cur.deliveredGrams() + deliverNow, cur.version() + 1);
+            if (ref.compareAndSet(cur, next)) {
+                attemptsByType.get(type).record(attempt);
+                return new DeliveryResult(kg(deliverNow), kg(next.freeGrams()), next.version());
+            }
+            retriesByType.get(type).increment();
+        }
+        attemptsByType.get(type).record(retryLimit);
+        throw new IllegalStateException("Concurrent stock update, retry limit reached for " + type);
+    }
+
+    private static long grams(BigDecimal kg) {
+        return kg.movePointRight(3).setScale(0, RoundingMode.DOWN).longValueExact();
+    }
+
+    private static BigDecimal kg(long grams) {
+        return BigDecimal.valueOf(grams, 3);
+    }
+}
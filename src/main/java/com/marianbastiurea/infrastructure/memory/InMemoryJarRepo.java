@@ -0,0 +1,65 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.repo.JarRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@Profile("simulation")
+public class InMemoryJarRepo implements JarRepo {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryJarRepo.class);
+
+    private final PackagingStock<JarType> stock;
+    private final SimulatedLatency latency;
+
+    public InMemoryJarRepo(@Value("${simulation.stock.jars:5000000}") int initialPerType, SimulatedLatency latency) {
+        this.stock = new PackagingStock<>(JarType.class, initialPerType);
+        this.latency = latency;
+    }
+
+    public void reset(int initialPerType) {
+        stock.reset(initialPerType);
+    }
+
+    @Override
+    public Map<JarType, StockRow> stockFor(Set<JarType> types) {
+        if (types.isEmpty()) return Map.of();
+        latency.read();
+        return stock.stockFor(types);
+    }
+
+    @Override
+    public PackagingDelivery<JarType> deliveredJars(JarQuantities plan, Map<JarType, StockRow> expected) {
+        // every delivery here is already a compare-and-set on the row, versions or not
+        return deliveredJars(plan);
+    }
+
+    @Override
+    public PackagingDelivery<JarType> deliveredJars(JarQuantities plan) {
+        if (plan == null || plan.isEmpty()) return PackagingDelivery.none();
+
+        EnumMap<JarType, Integer> deliveredByType = new EnumMap<>(JarType.class);
+        EnumMap<JarType, StockRow> remaining = new EnumMap<>(JarType.class);
+        plan.forEach((type, requested) -> {
+            latency.write();
+            PackagingStock.Delivery d = stock.deliver(type, requested);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
+            log.debug("[jars.delivered] type={} requested={} delivered={}", type, requested, delivered);
+        });
+        return new PackagingDelivery<>(deliveredByType, remaining);
+    }
+}
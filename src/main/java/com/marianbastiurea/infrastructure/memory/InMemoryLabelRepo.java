@@ -0,0 +1,67 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.PackagingDelivery;
+import com.marianbastiurea.domain.model.StockRow;
+import com.marianbastiurea.domain.repo.LabelRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@Profile("simulation")
+public class InMemoryLabelRepo implements LabelRepo {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryLabelRepo.class);
+
+    private final PackagingStock<LabelType> stock;
+    private final SimulatedLatency latency;
+
+    public InMemoryLabelRepo(@Value("${simulation.stock.labels:5000000}") int initialPerType, SimulatedLatency latency) {
+        this.stock = new PackagingStock<>(LabelType.class, initialPerType);
+        this.latency = latency;
+    }
+
+    public void reset(int initialPerType) {
+        stock.reset(initialPerType);
+    }
+
+    @Override
+    public Map<LabelType, StockRow> stockFor(Set<LabelType> types) {
+        if (types.isEmpty()) return Map.of();
+        latency.read();
+        return stock.stockFor(types);
+    }
+
+    @Override
+    public PackagingDelivery<LabelType> deliveredLabels(JarQuantities plan, Map<LabelType, StockRow> expected) {
+        // every delivery here is already a compare-and-set on the row, versions or not
+        return deliveredLabels(plan);
+    }
+
+    @Override
+    public PackagingDelivery<LabelType> deliveredLabels(JarQuantities requestedJarsPlan) {
+        if (requestedJarsPlan == null || requestedJarsPlan.isEmpty()) return PackagingDelivery.none();
+
+        EnumMap<LabelType, Integer> deliveredByType = new EnumMap<>(LabelType.class);
+        EnumMap<LabelType, StockRow> remaining = new EnumMap<>(LabelType.class);
+        for (LabelType type : LabelType.values()) {
+            int requested = requestedJarsPlan.labels(type);
+            if (requested <= 0) continue;
+            latency.write();
+            PackagingStock.Delivery d = stock.deliver(type, requested);
+            int delivered = d.delivered();
+            deliveredByType.put(type, delivered);
+            remaining.put(type, d.remaining());
+            log.debug("[labels.delivered] type={} requested={} delivered={}", type, requested, delivered);
+        }
+        return new PackagingDelivery<>(deliveredByType, remaining);
+    }
+}
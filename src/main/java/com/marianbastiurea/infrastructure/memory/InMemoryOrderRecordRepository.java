@@ -0,0 +1,36 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest record per order number, mirroring the DynamoDB table's
+ * {@code ORDER#<n>} partition without retaining the full event history.
+ */
+@Repository
+@Profile("simulation")
+public class InMemoryOrderRecordRepository implements OrderRecordRepository {
+
+    private final Map<Integer, Order> latest = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+
+    public void clear() {
+        latest.clear();
+    }
+
+    public int size() {
+        return latest.size();
+    }
+
+    @Override
+    public String save(Order order) {
+        latest.put(order.orderNumber(), order);
+        return "EVENT#" + seq.incrementAndGet();
+    }
+}
@@ -0,0 +1,57 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.repo.OrderRepo;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orders keyed by number; processing-log rows are only counted so that millions of simulated
+ * orders do not accumulate in memory.
+ */
+@Repository
+@Profile("simulation")
+public class InMemoryOrderRepo implements OrderRepo {
+
+    private final Map<Integer, List<Order>> orders = new ConcurrentHashMap<>();
+    private final LongAdder logRows = new LongAdder();
+
+    public void replaceAll(Collection<Order> seed) {
+        orders.clear();
+        logRows.reset();
+        for (Order o : seed) {
+            orders.merge(o.orderNumber(), List.of(o), (a, b) -> {
+                List<Order> merged = new ArrayList<>(a);
+                merged.addAll(b);
+                return List.copyOf(merged);
+            });
+        }
+    }
+
+    public long processingLogRows() {
+        return logRows.sum();
+    }
+
+    @Override
+    public List<Order> findByOrderNumber(Integer orderNumber) {
+        return orders.getOrDefault(orderNumber, List.of());
+    }
+
+    @Override
+    public void logProcessingBatch(int orderNumber, List<ProcessingLogRow> rows) {
+        if (rows != null) logRows.add(rows.size());
+    }
+
+    @Override
+    public void insertProcessingLog(int orderNumber, JarType jt, int req, int del, String reason) {
+        logRows.increment();
+    }
+}
@@ -0,0 +1,64 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import com.marianbastiurea.domain.model.StockRow;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free stock table for one packaging kind. Each row is an immutable value swapped with
+ * compare-and-set, so a delivery is atomic in the same way the {@code FOR UPDATE} CTE is:
+ * {@code will_deliver = GREATEST(0, LEAST(requested, initial - delivered))}.
+ */
+class PackagingStock<E extends Enum<E>> {
+
+    private record Row(int initial, int ordered, int delivered, long version) {
+        int available() {
+            return Math.max(0, initial - delivered);
+        }
+    }
+
+    private final Class<E> type;
+    private final Map<E, AtomicReference<Row>> rows;
+
+    PackagingStock(Class<E> type, int initialPerType) {
+        this.type = type;
+        this.rows = new EnumMap<>(type);
+        for (E e : type.getEnumConstants()) {
+            rows.put(e, new AtomicReference<>(new Row(initialPerType, 0, 0, 0)));
+        }
+    }
+
+    void reset(int initialPerType) {
+        rows.values().forEach(r -> r.set(new Row(initialPerType, 0, 0, 0)));
+    }
+
+    Map<E, StockRow> stockFor(Set<E> types) {
+        EnumMap<E, StockRow> m = new EnumMap<>(type);
+        for (E e : types) {
+            Row r = rows.get(e).get();
+            m.put(e, new StockRow(r.version(), r.available()));
+        }
+        return m;
+    }
+
+    record Delivery(int delivered, StockRow remaining) {
+    }
+
+    /**
+     * Records {@code requested} as ordered and delivers as much of it as is available.
+     *
+     * @return the quantity actually delivered and the row it left behind
+     */
+    Delivery deliver(E item, int requested) {
+        AtomicReference<Row> ref = rows.get(item);
+        for (; ; ) {
+            Row cur = ref.get();
+            int willDeliver = Math.max(0, Math.min(requested, cur.available()));
+            Row next = new Row(cur.initial(), cur.ordered() + requested, cur.delivered() + willDeliver, cur.version() + 1);
+            if (ref.compareAndSet(cur, next)) return new Delivery(willDeliver, new StockRow(next.version(), next.available()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.marianbastiurea.infrastructure.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for database round trips in the simulation profile. Zero (the default) costs
+ * nothing, so pure CPU runs stay CPU-bound; non-zero values park the calling virtual thread.
+ */
+@Component
+@Profile("simulation")
+public class SimulatedLatency {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedLatency.class);
+
+    private final long readNanos;
+    private final long writeNanos;
+    private final long jitterNanos;
+
+    public SimulatedLatency(@Value("${simulation.latency.read-ms:0}") double readMs,
+                            @Value("${simulation.latency.write-ms:0}") double writeMs,
+                            @Value("${simulation.latency.jitter-ms:0}") double jitterMs) {
+        this.readNanos = (long) (readMs * 1_000_000);
+        this.writeNanos = (long) (writeMs * 1_000_000);
+        this.jitterNanos = (long) (jitterMs * 1_000_000);
+        log.info("[simulation] Injected latency: read={} ms, write={} ms, jitter=±{} ms", readMs, writeMs, jitterMs);
+    }
+
+    public void read() {
+        pause(readNanos);
+    }
+
+    public void write() {
+        pause(writeNanos);
+    }
+
+    private void pause(long baseNanos) {
+        long nanos = jitterNanos == 0 ? baseNanos
+                : baseNanos + ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1);
+        if (nanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during simulated latency", ie);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit driven by latency: it shrinks when the short-term round trip drifts above
+ * {@code tolerance} times the long-term one, or a call is dropped, and grows while it is in use.
+ * The long-term latency averages over {@code baseline} of wall time, not a number of calls.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+
+    private static final double SHORT_ALPHA = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final double baselineNanos;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+
+    private volatile double limit;
+    private volatile double shortRttNanos;
+    private volatile double longRttNanos;
+    private long samples;
+    private long lastSampleAt;
+    private long nextBackoffAt;
+
+    public AdaptiveConcurrencyLimit(String name, int initialLimit, int minLimit, int maxLimit,
+                                    double tolerance, double backoff, Duration baseline) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (tolerance < 1.0) throw new IllegalArgumentException("tolerance must be >= 1.0");
+        if (backoff <= 0.0 || backoff >= 1.0) throw new IllegalArgumentException("backoff must be in (0, 1)");
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.baselineNanos = Math.max(1, baseline.toNanos());
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.nextBackoffAt = System.nanoTime();
+    }
+
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inflight.get();
+            if (current >= (int) limit) return false;
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutNanos} for room under the limit, in arrival order: nobody gets in
+     * ahead of a caller already waiting.
+     */
+    public boolean acquire(long timeoutNanos) throws InterruptedException {
+        if (waiting.get() == 0 && tryAcquire()) return true;
+        long deadline = System.nanoTime() + timeoutNanos;
+        lock.lock();
+        waiting.incrementAndGet();
+        try {
+            while (!tryAcquire()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                released.awaitNanos(left);
+            }
+            return true;
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long rttNanos) {
+        release(rttNanos, false);
+    }
+
+    public void onDropped(long rttNanos) {
+        release(rttNanos, true);
+    }
+
+    private void release(long rttNanos, boolean dropped) {
+        int inflightAtRelease = inflight.getAndDecrement();
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (rttNanos >= 0) {
+                double rtt = Math.max(1, rttNanos);
+                shortRttNanos = shortRttNanos == 0 ? rtt : shortRttNanos + SHORT_ALPHA * (rtt - shortRttNanos);
+                // a plain mean until there is a baseline's worth of samples, so the first calls do not linger
+                double weight = Math.max(1.0 / ++samples, 1 - Math.exp(-(now - lastSampleAt) / baselineNanos));
+                longRttNanos = longRttNanos + weight * (rtt - longRttNanos);
+                lastSampleAt = now;
+            }
+
+            double previous = limit;
+            double next = previous;
+            if (dropped || shortRttNanos > longRttNanos * tolerance) {
+                if (now - nextBackoffAt >= 0) {
+                    next = Math.max(minLimit, previous * backoff);
+                    nextBackoffAt = now + (long) shortRttNanos;
+                }
+            } else if (inflightAtRelease * 2 >= previous) {
+                next = Math.min(maxLimit, previous + 1 / previous);
+            }
+            limit = next;
+            released.signalAll();
+
+            if ((int) next != (int) previous && log.isDebugEnabled()) {
+                log.debug("[limit] {} {} -> {} (shortRtt={} ms, longRtt={} ms, dropped={})",
+                        name, (int) previous, (int) next,
+                        String.format("%.2f", shortRttNanos / 1_000_000d),
+                        String.format("%.2f", longRttNanos / 1_000_000d),
+                        dropped);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public double getShortRtt(TimeUnit unit) {
+        return shortRttNanos / unit.toNanos(1);
+    }
+
+    public double getLongRtt(TimeUnit unit) {
+        return longRttNanos / unit.toNanos(1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be > 0");
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new DependencyUnavailableException(name, "interrupted while waiting for bulkhead");
+        }
+        if (!acquired) {
+            throw new DependencyUnavailableException(name, "bulkhead full (maxConcurrent=" + maxConcurrent + ")");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
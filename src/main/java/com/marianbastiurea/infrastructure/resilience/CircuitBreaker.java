@@ -0,0 +1,138 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consecutive-failure circuit breaker. Calls slower than {@code slowCallThreshold} count as
+ * failures, so a database that stops answering in time is cut off just like one that errors.
+ * After {@code openDuration} a limited number of probes is let through; enough successful
+ * probes close the breaker again, any failing probe reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+    private final int halfOpenProbes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+    // written under the lock, read without it by the success fast path in onResult
+    private volatile int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration,
+                          Duration slowCallThreshold, int halfOpenProbes) {
+        if (failureThreshold <= 0) throw new IllegalArgumentException("failureThreshold must be > 0");
+        if (halfOpenProbes <= 0) throw new IllegalArgumentException("halfOpenProbes must be > 0");
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public void acquirePermission() {
+        if (state == State.CLOSED) return;
+
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    throw new DependencyUnavailableException(name, "circuit open");
+                }
+                transition(State.HALF_OPEN);
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= halfOpenProbes) {
+                    throw new DependencyUnavailableException(name, "circuit half-open, probe in progress");
+                }
+                probesInFlight++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onResult(long durationNanos, Throwable error) {
+        boolean failed = error != null || durationNanos > slowCallNanos;
+        if (!failed && state == State.CLOSED && consecutiveFailures == 0) return;
+
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED -> {
+                    if (!failed) {
+                        consecutiveFailures = 0;
+                    } else if (++consecutiveFailures >= failureThreshold) {
+                        open(error, durationNanos);
+                    }
+                }
+                case HALF_OPEN -> {
+                    probesInFlight = Math.max(0, probesInFlight - 1);
+                    if (failed) {
+                        open(error, durationNanos);
+                    } else if (++probeSuccesses >= halfOpenProbes) {
+                        consecutiveFailures = 0;
+                        transition(State.CLOSED);
+                    }
+                }
+                case OPEN -> {
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void releasePermission() {
+        if (state != State.HALF_OPEN) return;
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) probesInFlight = Math.max(0, probesInFlight - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCallPermitted() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= openNanos;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void open(Throwable error, long durationNanos) {
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+        log.warn("[breaker] {} OPEN for {} ms (lastCall={} ms, error={})",
+                name, openNanos / 1_000_000, durationNanos / 1_000_000,
+                error == null ? "slow call" : error.toString());
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        if (previous != next && next != State.OPEN) {
+            log.info("[breaker] {} {} -> {}", name, previous, next);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+
+public class DependencyGuard {
+
+    private final String name;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker breaker;
+
+    public DependencyGuard(String name, Bulkhead bulkhead, CircuitBreaker breaker) {
+        this.name = name;
+        this.bulkhead = bulkhead;
+        this.breaker = breaker;
+    }
+
+    public <T> T call(Callable<T> work) throws Exception {
+        try (Permit permit = acquire()) {
+            return permit.call(work);
+        }
+    }
+
+    /**
+     * Takes the breaker's permission and a bulkhead slot now, for a call that has to be sure of
+     * them before committing something elsewhere; a breaker that opens afterwards does not stop it.
+     * Closing the permit gives the slot back.
+     */
+    public Permit acquire() {
+        breaker.acquirePermission();
+        try {
+            bulkhead.acquire();
+        } catch (DependencyUnavailableException ex) {
+            breaker.releasePermission();
+            throw ex;
+        }
+        return new Permit();
+    }
+
+    public void ensureAvailable() {
+        if (!breaker.isCallPermitted()) {
+            throw new DependencyUnavailableException(name, "circuit open");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private boolean reported;
+        private boolean closed;
+
+        private Permit() {
+        }
+
+        public <T> T call(Callable<T> work) throws Exception {
+            if (closed) throw new IllegalStateException(name + ": permit already closed");
+            long t0 = System.nanoTime();
+            try {
+                T out = work.call();
+                report(System.nanoTime() - t0, null);
+                return out;
+            } catch (Exception | Error ex) {
+                // a call its caller gave up on, e.g. the losing half of a hedged read, says nothing
+                // about the dependency
+                if (!cancelled(ex)) report(System.nanoTime() - t0, ex);
+                throw ex;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (!reported) breaker.releasePermission();
+            bulkhead.release();
+        }
+
+        private void report(long nanos, Throwable error) {
+            reported = true;
+            breaker.onResult(nanos, error);
+        }
+    }
+
+    private static boolean cancelled(Throwable ex) {
+        if (Thread.currentThread().isInterrupted()) return true;
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+@Component
+public class DependencyGuards {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyGuards.class);
+
+    public static final String JARS = "jars";
+    public static final String LABELS = "labels";
+    public static final String CRATES = "crates";
+
+    private final Map<String, DependencyGuard> guards = new ConcurrentHashMap<>();
+    private final Map<HoneyType, DependencyGuard> honeyGuards = new EnumMap<>(HoneyType.class);
+
+    private final MeterRegistry registry;
+    private final int maxConcurrent;
+    private final Duration bulkheadWait;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Duration slowCall;
+    private final int halfOpenProbes;
+
+    public DependencyGuards(MeterRegistry registry,
+                            @Value("${resilience.bulkhead.max-concurrent:8}") int maxConcurrent,
+                            @Value("${resilience.bulkhead.max-wait-ms:50}") long bulkheadWaitMs,
+                            @Value("${resilience.breaker.failure-threshold:5}") int failureThreshold,
+                            @Value("${resilience.breaker.open-ms:10000}") long openMs,
+                            @Value("${resilience.breaker.slow-call-ms:2000}") long slowCallMs,
+                            @Value("${resilience.breaker.half-open-probes:2}") int halfOpenProbes) {
+        this.registry = requireNonNull(registry, "registry");
+        this.maxConcurrent = maxConcurrent;
+        this.bulkheadWait = Duration.ofMillis(bulkheadWaitMs);
+        this.failureThreshold = failureThreshold;
+        this.openDuration = Duration.ofMillis(openMs);
+        this.slowCall = Duration.ofMillis(slowCallMs);
+        this.halfOpenProbes = halfOpenProbes;
+
+        for (HoneyType type : HoneyType.values()) {
+            honeyGuards.put(type, guard(dependencyName(type)));
+        }
+        guard(JARS);
+        guard(LABELS);
+        guard(CRATES);
+
+        log.info("DependencyGuards initialized: bulkhead={} (wait {} ms), breaker threshold={} open={} ms slowCall={} ms probes={}",
+                maxConcurrent, bulkheadWaitMs, failureThreshold, openMs, slowCallMs, halfOpenProbes);
+    }
+
+    public static String dependencyName(HoneyType type) {
+        return type.name().toLowerCase(Locale.ROOT).replace("_", "");
+    }
+
+    public DependencyGuard honey(HoneyType type) {
+        return requireNonNull(honeyGuards.get(type), "No guard for " + type);
+    }
+
+    public DependencyGuard jars() {
+        return guards.get(JARS);
+    }
+
+    public DependencyGuard labels() {
+        return guards.get(LABELS);
+    }
+
+    public DependencyGuard crates() {
+        return guards.get(CRATES);
+    }
+
+    public DependencyGuard guard(String name) {
+        return guards.computeIfAbsent(name, this::create);
+    }
+
+    private DependencyGuard create(String name) {
+        var bulkhead = new Bulkhead(name, maxConcurrent, bulkheadWait);
+        var breaker = new CircuitBreaker(name, failureThreshold, openDuration, slowCall, halfOpenProbes);
+        Gauge.builder("resilience.bulkhead.active", bulkhead, Bulkhead::getActive)
+                .tag("dependency", name)
+                .register(registry);
+        Gauge.builder("resilience.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("0=closed, 1=open, 2=half-open")
+                .tag("dependency", name)
+                .register(registry);
+        return new DependencyGuard(name, bulkhead, breaker);
+    }
+}
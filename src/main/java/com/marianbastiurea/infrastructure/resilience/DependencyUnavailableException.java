@@ -0,0 +1,15 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String message) {
+        super(dependency + ": " + message);
+        this.dependency = dependency;
+    }
+
+    public String dependency() {
+        return dependency;
+    }
+}
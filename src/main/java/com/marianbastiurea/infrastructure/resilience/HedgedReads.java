@@ -0,0 +1,97 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import com.marianbastiurea.infrastructure.jdbc.QueryDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Re-issues a read running longer than its recent percentile latency; the first answer wins and
+ * the other attempt is cancelled. Each attempt goes through the {@link DependencyGuard} on its own.
+ */
+@Component
+public class HedgedReads {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedReads.class);
+
+    private static final int WINDOW_SIZE = 512;
+    private static final int MIN_SAMPLES = 50;
+
+    private final ThreadFactory vtFactory;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public HedgedReads(@Qualifier("vtThreadFactory") ThreadFactory vtFactory,
+                       MeterRegistry registry,
+                       @Value("${reservation.hedge.enabled:false}") boolean enabled,
+                       @Value("${reservation.hedge.percentile:0.95}") double percentile,
+                       @Value("${reservation.hedge.min-delay-ms:20}") long minDelayMs) {
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.registry = requireNonNull(registry, "registry");
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = Duration.ofMillis(minDelayMs).toNanos();
+        log.info("HedgedReads initialized: enabled={}, percentile={}, minDelay={} ms", enabled, percentile, minDelayMs);
+    }
+
+    public <T> T read(String name, DependencyGuard guard, Callable<T> read) throws Exception {
+        LatencyWindow window = windows.computeIfAbsent(name, n -> new LatencyWindow(WINDOW_SIZE, percentile));
+        if (!enabled || window.count() < MIN_SAMPLES) {
+            return guard.call(() -> timed(window, read, null));
+        }
+
+        Duration delay = Duration.ofNanos(Math.max(minDelayNanos, window.percentileNanos()));
+        AtomicBoolean firstAnswered = new AtomicBoolean();
+        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<T>("hedge-" + name, vtFactory)) {
+            scope.fork(() -> guard.call(() -> {
+                T out = timed(window, read, null);
+                firstAnswered.set(true);
+                return out;
+            }));
+            scope.fork(() -> {
+                Thread.sleep(delay);
+                registry.counter("reservation.hedge.sent", "read", name).increment();
+                log.debug("[hedge] {} still running after {} ms, sending hedged read", name, delay.toMillis());
+                return guard.call(() -> timed(window, read, firstAnswered));
+            });
+
+            Optional<Instant> deadline = QueryDeadline.current();
+            if (deadline.isPresent()) {
+                scope.joinUntil(deadline.get());
+            } else {
+                scope.join();
+            }
+            return scope.result(e -> e instanceof Exception ex ? ex : new IllegalStateException(e));
+        }
+    }
+
+    /**
+     * @param lostTo set once the attempt this one hedges has answered, {@code null} for a first attempt
+     */
+    private static <T> T timed(LatencyWindow window, Callable<T> read, AtomicBoolean lostTo) throws Exception {
+        long t0 = System.nanoTime();
+        try {
+            return read.call();
+        } finally {
+            if (lostTo == null || !lostTo.get()) window.record(System.nanoTime() - t0);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.marianbastiurea.infrastructure.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of the most recent latency samples with a lazily refreshed percentile.
+ */
+public class LatencyWindow {
+
+    private static final int REFRESH_EVERY = 32;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private volatile long cachedNanos = -1;
+
+    public LatencyWindow(int size, double percentile) {
+        if (size <= 0) throw new IllegalArgumentException("size must be > 0");
+        if (percentile <= 0 || percentile > 1) throw new IllegalArgumentException("percentile must be in (0, 1]");
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+    }
+
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+        if (n % REFRESH_EVERY == 0) {
+            cachedNanos = compute();
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long percentileNanos() {
+        long cached = cachedNanos;
+        return cached >= 0 ? cached : compute();
+    }
+
+    private long compute() {
+        int filled = (int) Math.min(count.get(), samples.length());
+        if (filled == 0) return 0;
+        long[] copy = new long[filled];
+        for (int i = 0; i < filled; i++) copy[i] = samples.get(i);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(percentile * filled) - 1;
+        return copy[Math.clamp(idx, 0, filled - 1)];
+    }
+}
@@ -0,0 +1,193 @@
+package com.marianbastiurea.infrastructure.timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hierarchical timing wheel of {@value #LEVELS} levels of {@value #SLOTS} slots: scheduling and
+ * cancelling are O(1), and {@link #advance} cascades a higher slot down when a lower level wraps.
+ * Deadlines past the top level's range park in its last slot. Every operation runs under one lock.
+ */
+public final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 6;
+    private static final int MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final Slot<T>[][] wheels;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentTick;
+    private int size;
+
+    /**
+     * A scheduled value; pass it to {@link #cancel} to take it out again.
+     */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Slot<T> slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadlineMillis, long deadlineTick) {
+            this.value = value;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public long deadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+
+    private static final class Slot<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> t) {
+            t.slot = this;
+            t.prev = null;
+            t.next = head;
+            if (head != null) head.prev = t;
+            head = t;
+        }
+
+        void remove(Timeout<T> t) {
+            if (t.prev != null) t.prev.next = t.next;
+            else head = t.next;
+            if (t.next != null) t.next.prev = t.prev;
+            t.slot = null;
+            t.prev = null;
+            t.next = null;
+        }
+
+        Timeout<T> takeAll() {
+            Timeout<T> all = head;
+            head = null;
+            return all;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Duration tick, long startMillis) {
+        requireNonNull(tick, "tick");
+        if (tick.toMillis() <= 0) throw new IllegalArgumentException("tick must be at least 1 ms");
+        this.tickMillis = tick.toMillis();
+        this.originMillis = startMillis;
+        this.wheels = new Slot[LEVELS][SLOTS];
+        for (Slot<T>[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) wheel[i] = new Slot<>();
+        }
+    }
+
+    /**
+     * Schedules {@code value} to come out of {@link #advance} once the clock reaches
+     * {@code deadlineMillis}, rounded up to the next tick; a deadline already passed comes out
+     * on the next tick.
+     */
+    public Timeout<T> schedule(T value, long deadlineMillis) {
+        requireNonNull(value, "value");
+        long tick = Math.ceilDiv(deadlineMillis - originMillis, tickMillis);
+        lock.lock();
+        try {
+            Timeout<T> t = new Timeout<>(value, deadlineMillis, Math.max(tick, currentTick + 1));
+            place(t);
+            size++;
+            return t;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the timeout was still pending; {@code false} once it has come out of
+     * {@link #advance} or was cancelled before
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        lock.lock();
+        try {
+            if (timeout.slot == null) return false;
+            timeout.slot.remove(timeout);
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis} and returns every value whose deadline it passed, tick
+     * by tick. The clock never moves backwards.
+     */
+    public List<T> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (currentTick < target) {
+                currentTick++;
+                for (int level = 1; level < LEVELS; level++) {
+                    if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) break;
+                    cascade(wheels[level][(int) ((currentTick >>> (BITS * level)) & MASK)], due);
+                }
+                expire(wheels[0][(int) (currentTick & MASK)], due);
+            }
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void place(Timeout<T> t) {
+        long delta = Math.min(t.deadlineTick - currentTick, MAX_DELTA);
+        long at = currentTick + delta;
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) level++;
+        wheels[level][(int) ((at >>> (BITS * level)) & MASK)].add(t);
+    }
+
+    private void cascade(Slot<T> slot, List<T> due) {
+        for (Timeout<T> t = slot.takeAll(), next; t != null; t = next) {
+            next = t.next;
+            t.slot = null;
+            if (t.deadlineTick <= currentTick) {
+                due.add(t.value);
+                size--;
+            } else {
+                place(t);
+            }
+        }
+    }
+
+    private void expire(Slot<T> slot, List<T> due) {
+        for (Timeout<T> t = slot.takeAll(), next; t != null; t = next) {
+            next = t.next;
+            t.slot = null;
+            t.prev = null;
+            t.next = null;
+            due.add(t.value);
+            size--;
+        }
+    }
+}
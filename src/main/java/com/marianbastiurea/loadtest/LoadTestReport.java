@@ -0,0 +1,61 @@
+package com.marianbastiurea.loadtest;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One load-test run. {@code settings.concurrency} is how many orders the runner keeps in flight;
+ * {@code effectiveConcurrency} is how many of them the scheduler lets into the orchestrator at
+ * once, which is what the latency and throughput figures were measured at.
+ */
+public record LoadTestReport(
+        String runId,
+        Instant startedAt,
+        LoadTestSettings settings,
+        int effectiveConcurrency,
+        int orders,
+        int reserved,
+        int deferred,
+        int failed,
+        int errors,
+        long durationMs,
+        double throughputPerSec,
+        Latency latencyMs,
+        double retriesPerOrder,
+        double meanAttempts,
+        Map<String, PoolWait> admissionWait,
+        Map<String, PoolWait> hikariAcquire
+) {
+    public record Latency(double mean, double p50, double p90, double p99, double p999, double max) {
+    }
+
+    public record PoolWait(long acquires, double meanMs, double maxMs, long rejected) {
+    }
+
+    static String csvHeader() {
+        return "run_id,orders,concurrency,effective_concurrency,reserved,deferred,failed,errors,duration_ms,throughput_per_s,"
+                + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,retries_per_order,mean_attempts,"
+                + "admission_wait_mean_ms,admission_rejected,hikari_acquire_mean_ms";
+    }
+
+    String csvLine() {
+        long admitted = admissionWait.values().stream().mapToLong(PoolWait::acquires).sum();
+        double admissionMean = admitted == 0 ? 0 : admissionWait.values().stream()
+                .mapToDouble(p -> p.meanMs() * p.acquires()).sum() / admitted;
+        long rejected = admissionWait.values().stream().mapToLong(PoolWait::rejected).sum();
+        long acquired = hikariAcquire.values().stream().mapToLong(PoolWait::acquires).sum();
+        double hikariMean = acquired == 0 ? 0 : hikariAcquire.values().stream()
+                .mapToDouble(p -> p.meanMs() * p.acquires()).sum() / acquired;
+        return String.join(",",
+                runId, String.valueOf(orders), String.valueOf(settings.concurrency()), String.valueOf(effectiveConcurrency),
+                String.valueOf(reserved), String.valueOf(deferred), String.valueOf(failed), String.valueOf(errors),
+                String.valueOf(durationMs), fmt(throughputPerSec),
+                fmt(latencyMs.p50()), fmt(latencyMs.p90()), fmt(latencyMs.p99()), fmt(latencyMs.p999()), fmt(latencyMs.max()),
+                fmt(retriesPerOrder), fmt(meanAttempts),
+                fmt(admissionMean), String.valueOf(rejected), fmt(hikariMean));
+    }
+
+    private static String fmt(double v) {
+        return String.format(java.util.Locale.ROOT, "%.3f", v);
+    }
+}
@@ -0,0 +1,249 @@
+package com.marianbastiurea.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.marianbastiurea.domain.model.Order;
+import com.marianbastiurea.domain.model.OrderRecord;
+import com.marianbastiurea.domain.repository.OrderRecordRepository;
+import com.marianbastiurea.domain.services.ReservationScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Drives the real reservation path, {@link ReservationScheduler} included, with a seeded order
+ * stream at a fixed concurrency, then writes a JSON report and appends one line to
+ * {@code runs.csv} in the report directory so consecutive runs can be compared side by side.
+ */
+public class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final ReservationScheduler scheduler;
+    private final OrderRecordRepository orderRecords;
+    private final StockSeeder seeder;
+    private final MeterRegistry registry;
+    private final ThreadFactory vtFactory;
+    private final ObjectMapper mapper;
+
+    public LoadTestRunner(ReservationScheduler scheduler,
+                          OrderRecordRepository orderRecords,
+                          StockSeeder seeder,
+                          MeterRegistry registry,
+                          ThreadFactory vtFactory,
+                          ObjectMapper mapper) {
+        this.scheduler = requireNonNull(scheduler, "scheduler");
+        this.orderRecords = requireNonNull(orderRecords, "orderRecords");
+        this.seeder = requireNonNull(seeder, "seeder");
+        this.registry = requireNonNull(registry, "registry");
+        this.vtFactory = requireNonNull(vtFactory, "vtFactory");
+        this.mapper = requireNonNull(mapper, "mapper").copy().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    public LoadTestReport run(LoadTestSettings settings,
+                              BigDecimal honeyKg, int jars, int labels, int crates,
+                              Path reportDir) throws Exception {
+        List<Order> orders = OrderStream.generate(settings);
+        seeder.seed(honeyKg, jars, labels, crates, orders);
+
+        MeterTotals before = MeterTotals.capture(registry);
+        long[] latencies = new long[orders.size()];
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger deferred = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(settings.concurrency());
+
+        int effective = scheduler.effectiveConcurrency(settings.concurrency());
+        if (effective < settings.concurrency()) {
+            log.warn("[loadtest] loadtest.concurrency={} is capped at {} by orders.scheduler.concurrency; "
+                    + "the rest wait in the scheduler's lanes", settings.concurrency(), effective);
+        }
+
+        Instant startedAt = Instant.now();
+        log.info("[loadtest] Starting: {} order(s), concurrency={} (effective {})",
+                orders.size(), settings.concurrency(), effective);
+        long t0 = System.nanoTime();
+        try (ExecutorService exec = Executors.newThreadPerTaskExecutor(vtFactory)) {
+            for (int i = 0; i < orders.size(); i++) {
+                inFlight.acquire();
+                int slot = i;
+                Order order = orders.get(i);
+                exec.submit(() -> {
+                    long s0 = System.nanoTime();
+                    try {
+                        var result = scheduler.reserveFor(order);
+                        if (result.success()) reserved.incrementAndGet();
+                        else if (result.deferred()) deferred.incrementAndGet();
+                        else failed.incrementAndGet();
+                        orderRecords.save(new OrderRecord(null, order.orderNumber(), order.honeyType(),
+                                order.jarQuantities(), Instant.now(),
+                                result.success() ? OrderRecord.Status.RESERVED : OrderRecord.Status.FAILED,
+                                result.message()));
+                    } catch (Exception ex) {
+                        errors.incrementAndGet();
+                        log.warn("[loadtest] order#{} threw: {}", order.orderNumber(), ex.toString());
+                    } finally {
+                        latencies[slot] = System.nanoTime() - s0;
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsedNanos = System.nanoTime() - t0;
+        MeterTotals after = MeterTotals.capture(registry);
+
+        LoadTestReport report = new LoadTestReport(
+                RUN_ID.format(startedAt), startedAt, settings, effective, orders.size(),
+                reserved.get(), deferred.get(), failed.get(), errors.get(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                orders.size() / (elapsedNanos / 1e9),
+                latency(latencies),
+                (after.retries - before.retries) / orders.size(),
+                after.attemptCount == before.attemptCount ? 0
+                        : (after.attemptTotal - before.attemptTotal) / (after.attemptCount - before.attemptCount),
+                after.diffAdmission(before),
+                after.diffHikari(before));
+        write(report, reportDir);
+        return report;
+    }
+
+    private static LoadTestReport.Latency latency(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        return new LoadTestReport.Latency(ms(mean), ms(percentile(sorted, 0.50)), ms(percentile(sorted, 0.90)),
+                ms(percentile(sorted, 0.99)), ms(percentile(sorted, 0.999)), ms(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.clamp(idx, 0, sorted.length - 1)];
+    }
+
+    private static double ms(double nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    private void write(LoadTestReport report, Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+        Path json = reportDir.resolve("loadtest-" + report.runId() + ".json");
+        mapper.writeValue(json.toFile(), report);
+
+        Path csv = reportDir.resolve("runs.csv");
+        if (Files.notExists(csv)) {
+            Files.writeString(csv, LoadTestReport.csvHeader() + System.lineSeparator());
+        }
+        Files.writeString(csv, report.csvLine() + System.lineSeparator(), StandardOpenOption.APPEND);
+
+        log.info("[loadtest] Done in {} ms: {} ops/s, reserved={}, deferred={}, failed={}, errors={}",
+                report.durationMs(), String.format("%.1f", report.throughputPerSec()),
+                report.reserved(), report.deferred(), report.failed(), report.errors());
+        log.info("[loadtest] Latency ms: p50={} p90={} p99={} p99.9={} max={}; retries/order={}, meanAttempts={}",
+                fmt(report.latencyMs().p50()), fmt(report.latencyMs().p90()), fmt(report.latencyMs().p99()),
+                fmt(report.latencyMs().p999()), fmt(report.latencyMs().max()),
+                fmt(report.retriesPerOrder()), fmt(report.meanAttempts()));
+        report.admissionWait().forEach((pool, w) ->
+                log.info("[loadtest] admission {}: acquires={} meanWait={} ms maxWait={} ms rejected={}",
+                        pool, w.acquires(), fmt(w.meanMs()), fmt(w.maxMs()), w.rejected()));
+        log.info("[loadtest] Report written to {} (summary appended to {})", json, csv);
+    }
+
+    private static String fmt(double v) {
+        return String.format("%.2f", v);
+    }
+
+    /**
+     * Cumulative meter values at one instant; a run's figures are the difference of two captures.
+     */
+    private record MeterTotals(double retries,
+                               double attemptTotal,
+                               long attemptCount,
+                               Map<String, TimerTotal> admission,
+                               Map<String, Double> admissionRejected,
+                               Map<String, TimerTotal> hikari) {
+
+        static MeterTotals capture(MeterRegistry registry) {
+            double retries = registry.find("reservation.honey.retries").counters().stream()
+                    .mapToDouble(Counter::count).sum();
+            double attemptTotal = 0;
+            long attemptCount = 0;
+            for (DistributionSummary s : registry.find("reservation.honey.attempts").summaries()) {
+                attemptTotal += s.totalAmount();
+                attemptCount += s.count();
+            }
+            Map<String, TimerTotal> admission = new TreeMap<>();
+            for (Timer t : registry.find("db.admission.wait").timers()) {
+                admission.merge(t.getId().getTag("pool"), TimerTotal.of(t), TimerTotal::plus);
+            }
+            Map<String, Double> rejected = new TreeMap<>();
+            for (Counter c : registry.find("db.admission.rejected").counters()) {
+                rejected.merge(c.getId().getTag("pool"), c.count(), Double::sum);
+            }
+            Map<String, TimerTotal> hikari = new TreeMap<>();
+            for (Timer t : registry.find("hikaricp.connections.acquire").timers()) {
+                hikari.merge(t.getId().getTag("pool"), TimerTotal.of(t), TimerTotal::plus);
+            }
+            return new MeterTotals(retries, attemptTotal, attemptCount, admission, rejected, hikari);
+        }
+
+        Map<String, LoadTestReport.PoolWait> diffAdmission(MeterTotals before) {
+            Map<String, LoadTestReport.PoolWait> out = new TreeMap<>();
+            admission.forEach((pool, now) -> {
+                long rejectedDelta = (long) (admissionRejected.getOrDefault(pool, 0d)
+                        - before.admissionRejected.getOrDefault(pool, 0d));
+                out.put(pool, now.minus(before.admission.get(pool), rejectedDelta));
+            });
+            return out;
+        }
+
+        Map<String, LoadTestReport.PoolWait> diffHikari(MeterTotals before) {
+            Map<String, LoadTestReport.PoolWait> out = new TreeMap<>();
+            hikari.forEach((pool, now) -> out.put(pool, now.minus(before.hikari.get(pool), 0)));
+            return out;
+        }
+    }
+
+    private record TimerTotal(long count, double totalMs, double maxMs) {
+
+        static TimerTotal of(Timer t) {
+            return new TimerTotal(t.count(), t.totalTime(TimeUnit.MILLISECONDS), t.max(TimeUnit.MILLISECONDS));
+        }
+
+        TimerTotal plus(TimerTotal o) {
+            return new TimerTotal(count + o.count, totalMs + o.totalMs, Math.max(maxMs, o.maxMs));
+        }
+
+        LoadTestReport.PoolWait minus(TimerTotal before, long rejected) {
+            long c = count - (before == null ? 0 : before.count);
+            double total = totalMs - (before == null ? 0 : before.totalMs);
+            return new LoadTestReport.PoolWait(c, c == 0 ? 0 : total / c, maxMs, rejected);
+        }
+    }
+}
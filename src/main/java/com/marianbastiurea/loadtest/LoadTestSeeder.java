@@ -0,0 +1,146 @@
+package com.marianbastiurea.loadtest;
+
+import com.marianbastiurea.domain.enums.CrateType;
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.enums.LabelType;
+import com.marianbastiurea.domain.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resets every stand-in database to a known state before a run: stock back to the configured
+ * levels with row_version 0, processing logs emptied, the generated orders written to
+ * {@code public.orders} and the DynamoDB Local table created when missing.
+ */
+public class LoadTestSeeder implements StockSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestSeeder.class);
+
+    private static final String SEED_HONEY = """
+                INSERT INTO public.stock(id, initial_stock, ordered, delivered, final_stock, row_version, last_updated)
+                VALUES (1, :kg, 0, 0, :kg, 0, now())
+                ON CONFLICT (id) DO UPDATE
+                   SET initial_stock = EXCLUDED.initial_stock,
+                       ordered       = 0,
+                       delivered     = 0,
+                       final_stock   = EXCLUDED.final_stock,
+                       row_version   = 0,
+                       last_updated  = now()
+            """;
+
+    private static final String SEED_PACKAGING = """
+                INSERT INTO public.%1$s_stock(%1$s_type, initial_stock, ordered, delivered, final_stock, row_version, last_updated)
+                VALUES (:type, :qty, 0, 0, :qty, 0, now())
+                ON CONFLICT (%1$s_type) DO UPDATE
+                   SET initial_stock = EXCLUDED.initial_stock,
+                       ordered       = 0,
+                       delivered     = 0,
+                       final_stock   = EXCLUDED.final_stock,
+                       row_version   = 0,
+                       last_updated  = now()
+            """;
+
+    private static final String INSERT_ORDER_LINE = """
+                INSERT INTO public.orders(order_number, honey_type, jar_type, quantity)
+                VALUES (:orderNumber, :honey, :jar, :qty)
+            """;
+
+    private final Map<HoneyType, NamedParameterJdbcTemplate> honeyTpls;
+    private final NamedParameterJdbcTemplate jarsTpl;
+    private final NamedParameterJdbcTemplate labelsTpl;
+    private final NamedParameterJdbcTemplate cratesTpl;
+    private final NamedParameterJdbcTemplate ordersTpl;
+    private final DynamoDbClient dynamo;
+    private final String orderRecordsTable;
+    private final Runnable onOrdersReplaced;
+
+    public LoadTestSeeder(Map<HoneyType, NamedParameterJdbcTemplate> honeyTpls,
+                          NamedParameterJdbcTemplate jarsTpl,
+                          NamedParameterJdbcTemplate labelsTpl,
+                          NamedParameterJdbcTemplate cratesTpl,
+                          NamedParameterJdbcTemplate ordersTpl,
+                          DynamoDbClient dynamo,
+                          String orderRecordsTable,
+                          Runnable onOrdersReplaced) {
+        this.honeyTpls = requireNonNull(honeyTpls, "honeyTpls");
+        this.jarsTpl = requireNonNull(jarsTpl, "jarsTpl");
+        this.labelsTpl = requireNonNull(labelsTpl, "labelsTpl");
+        this.cratesTpl = requireNonNull(cratesTpl, "cratesTpl");
+        this.ordersTpl = requireNonNull(ordersTpl, "ordersTpl");
+        this.dynamo = requireNonNull(dynamo, "dynamo");
+        this.orderRecordsTable = requireNonNull(orderRecordsTable, "orderRecordsTable");
+        this.onOrdersReplaced = requireNonNull(onOrdersReplaced, "onOrdersReplaced");
+    }
+
+    @Override
+    public void seed(BigDecimal honeyKg, int jars, int labels, int crates, List<Order> orders) {
+        honeyTpls.forEach((honey, tpl) -> {
+            tpl.getJdbcTemplate().execute("TRUNCATE public.processing_log");
+            tpl.update(SEED_HONEY, new MapSqlParameterSource("kg", honeyKg));
+        });
+        seedPackaging(jarsTpl, "jar", JarType.values(), jars);
+        seedPackaging(labelsTpl, "label", LabelType.values(), labels);
+        seedPackaging(cratesTpl, "crate", CrateType.values(), crates);
+
+        ordersTpl.getJdbcTemplate().execute("TRUNCATE public.orders, public.processing_log");
+        List<SqlParameterSource> lines = new ArrayList<>();
+        for (Order o : orders) {
+            o.jarQuantities().forEach((jar, qty) -> lines.add(new MapSqlParameterSource()
+                    .addValue("orderNumber", o.orderNumber())
+                    .addValue("honey", o.honeyType().name())
+                    .addValue("jar", jar.name())
+                    .addValue("qty", qty)));
+        }
+        ordersTpl.batchUpdate(INSERT_ORDER_LINE, lines.toArray(SqlParameterSource[]::new));
+        onOrdersReplaced.run();
+
+        ensureOrderRecordsTable();
+        log.info("[loadtest] Seeded honey={} kg, jars={}, labels={}, crates={} per type; {} order(s) / {} line(s)",
+                honeyKg, jars, labels, crates, orders.size(), lines.size());
+    }
+
+    private static void seedPackaging(NamedParameterJdbcTemplate tpl, String kind, Enum<?>[] types, int qty) {
+        tpl.getJdbcTemplate().execute("TRUNCATE public.processing_log");
+        String sql = SEED_PACKAGING.formatted(kind);
+        for (Enum<?> type : types) {
+            tpl.update(sql, new MapSqlParameterSource()
+                    .addValue("type", type.name())
+                    .addValue("qty", qty));
+        }
+    }
+
+    private void ensureOrderRecordsTable() {
+        try {
+            dynamo.describeTable(b -> b.tableName(orderRecordsTable));
+        } catch (ResourceNotFoundException e) {
+            dynamo.createTable(b -> b
+                    .tableName(orderRecordsTable)
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("pk").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("sk").keyType(KeyType.RANGE).build())
+                    .attributeDefinitions(
+                            AttributeDefinition.builder().attributeName("pk").attributeType(ScalarAttributeType.S).build(),
+                            AttributeDefinition.builder().attributeName("sk").attributeType(ScalarAttributeType.S).build())
+                    .billingMode(BillingMode.PAY_PER_REQUEST));
+            log.info("[loadtest] Created DynamoDB table '{}'", orderRecordsTable);
+        }
+    }
+}
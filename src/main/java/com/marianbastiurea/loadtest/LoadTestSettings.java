@@ -0,0 +1,58 @@
+package com.marianbastiurea.loadtest;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public record LoadTestSettings(
+        int orders,
+        int concurrency,
+        long seed,
+        Map<HoneyType, Integer> honeyMix,
+        Map<JarType, Integer> jarMix,
+        int minLinesPerOrder,
+        int maxLinesPerOrder,
+        int minJarsPerLine,
+        int maxJarsPerLine
+) {
+    public LoadTestSettings {
+        if (orders <= 0) throw new IllegalArgumentException("loadtest.orders must be > 0");
+        if (concurrency <= 0) throw new IllegalArgumentException("loadtest.concurrency must be > 0");
+        if (honeyMix.isEmpty()) throw new IllegalArgumentException("loadtest.honey-mix is empty");
+        if (jarMix.isEmpty()) throw new IllegalArgumentException("loadtest.jar-mix is empty");
+        if (minLinesPerOrder <= 0 || maxLinesPerOrder < minLinesPerOrder || maxLinesPerOrder > jarMix.size()) {
+            throw new IllegalArgumentException("loadtest.lines-per-order must be within 1-" + jarMix.size());
+        }
+        if (minJarsPerLine <= 0 || maxJarsPerLine < minJarsPerLine) {
+            throw new IllegalArgumentException("Invalid loadtest.jars-per-line range");
+        }
+    }
+
+    /**
+     * Parses {@code ACACIA:3,LINDEN:1} into relative weights; entries with weight 0 are dropped.
+     */
+    public static <E extends Enum<E>> Map<E, Integer> parseMix(String spec, Class<E> type) {
+        EnumMap<E, Integer> mix = new EnumMap<>(type);
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("Invalid mix entry '" + part + "' in '" + spec + "'");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Negative weight in '" + spec + "'");
+            if (weight > 0) mix.put(Enum.valueOf(type, kv[0].trim()), weight);
+        }
+        return mix;
+    }
+
+    /**
+     * Parses {@code 1-60} (or a single number) into {@code [min, max]}.
+     */
+    public static int[] parseRange(String spec) {
+        String[] parts = spec.trim().split("-");
+        int min = Integer.parseInt(parts[0].trim());
+        int max = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : min;
+        return new int[]{min, max};
+    }
+}
@@ -0,0 +1,52 @@
+package com.marianbastiurea.loadtest;
+
+import com.marianbastiurea.domain.enums.HoneyType;
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import com.marianbastiurea.domain.model.Order;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic order stream for a load-test run: the same settings and seed always produce
+ * the same orders, so two runs differ only in the code or tuning under test.
+ */
+public final class OrderStream {
+
+    private OrderStream() {
+    }
+
+    public static List<Order> generate(LoadTestSettings settings) {
+        SplittableRandom rnd = new SplittableRandom(settings.seed());
+        List<Order> orders = new ArrayList<>(settings.orders());
+        for (int n = 1; n <= settings.orders(); n++) {
+            HoneyType honey = pick(settings.honeyMix(), rnd);
+            int lines = between(rnd, settings.minLinesPerOrder(), settings.maxLinesPerOrder());
+            EnumMap<JarType, Integer> jars = new EnumMap<>(JarType.class);
+            while (jars.size() < lines) {
+                jars.putIfAbsent(pick(settings.jarMix(), rnd),
+                        between(rnd, settings.minJarsPerLine(), settings.maxJarsPerLine()));
+            }
+            orders.add(new Order(honey, JarQuantities.from(jars), n));
+        }
+        return orders;
+    }
+
+    private static <E extends Enum<E>> E pick(Map<E, Integer> weights, SplittableRandom rnd) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int r = rnd.nextInt(total);
+        for (var e : weights.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    private static int between(SplittableRandom rnd, int min, int max) {
+        return min == max ? min : rnd.nextInt(min, max + 1);
+    }
+}
@@ -0,0 +1,15 @@
+package com.marianbastiurea.loadtest;
+
+import com.marianbastiurea.domain.model.Order;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Puts the stores behind the repositories into a known state before a run.
+ */
+@FunctionalInterface
+public interface StockSeeder {
+
+    void seed(BigDecimal honeyKg, int jars, int labels, int crates, List<Order> orders);
+}
@@ -0,0 +1,44 @@
+package com.marianbastiurea.persistence.nosql;
+
+import com.marianbastiurea.domain.enums.JarType;
+import com.marianbastiurea.domain.model.JarQuantities;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores {@link JarQuantities} as a map of jar type name to count, the shape the {@code jars}
+ * attribute had as a {@code Map<String, Integer>}, so existing items read back unchanged.
+ */
+public class JarQuantitiesAttributeConverter implements AttributeConverter<JarQuantities> {
+
+    @Override
+    public AttributeValue transformFrom(JarQuantities input) {
+        Map<String, AttributeValue> m = new HashMap<>();
+        input.forEach((jt, q) -> m.put(jt.name(), AttributeValue.fromN(Integer.toString(q))));
+        return AttributeValue.fromM(m);
+    }
+
+    @Override
+    public JarQuantities transformTo(AttributeValue input) {
+        if (!input.hasM()) return JarQuantities.NONE;
+        Map<JarType, Integer> m = new EnumMap<>(JarType.class);
+        input.m().forEach((k, v) -> m.put(JarType.valueOf(k), Integer.valueOf(v.n())));
+        return JarQuantities.from(m);
+    }
+
+    @Override
+    public EnhancedType<JarQuantities> type() {
+        return EnhancedType.of(JarQuantities.class);
+    }
+
+    @Override
+    public AttributeValueType attributeValueType() {
+        return AttributeValueType.M;
+    }
+}
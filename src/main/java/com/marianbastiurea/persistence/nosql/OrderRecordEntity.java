@@ -1,10 +1,10 @@
 package com.marianbastiurea.persistence.nosql;
 
+import com.marianbastiurea.domain.model.JarQuantities;
 import org.springframework.util.Assert;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.*;
 
 import java.time.Instant;
-import java.util.Map;
 
 @DynamoDbBean
 public class OrderRecordEntity {
@@ -13,7 +13,7 @@ public class OrderRecordEntity {
     private String sk;
     private Integer orderNumber;
     private String honeyType;
-    private Map<String, Integer> jars;
+    private JarQuantities jars;
     private String status;
     private Instant ts;
     private String reason;
@@ -37,8 +37,9 @@ public class OrderRecordEntity {
     public void setHoneyType(String honeyType) { this.honeyType = honeyType; }
 
     @DynamoDbAttribute("jars")
-    public Map<String, Integer> getJars() { return jars; }
-    public void setJars(Map<String, Integer> jars) { this.jars = jars; }
+    @DynamoDbConvertedBy(JarQuantitiesAttributeConverter.class)
+    public JarQuantities getJars() { return jars; }
+    public void setJars(JarQuantities jars) { this.jars = jars; }
 
     @DynamoDbAttribute("status")
     public String getStatus() { return status; }
@@ -55,7 +56,7 @@ public class OrderRecordEntity {
 
     public static OrderRecordEntity received(Integer orderNumber,
                                              String honeyType,
-                                             Map<String, Integer> jars,
+                                             JarQuantities jars,
                                              Instant ts) {
         Assert.notNull(orderNumber, "orderNumber");
         OrderRecordEntity e = new OrderRecordEntity();
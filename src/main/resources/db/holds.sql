@@ -0,0 +1,21 @@
+-- Stock holds (holds.enabled=true). Idempotent.
+CREATE TABLE IF NOT EXISTS public.stock_hold (
+    id             text          PRIMARY KEY,
+    owner          text          NOT NULL,
+    order_number   int           NOT NULL,
+    honey_type     text          NOT NULL,
+    jars           jsonb         NOT NULL,
+    kg             numeric(12,3) NOT NULL,
+    status         text          NOT NULL DEFAULT 'ACTIVE',
+    created_at     timestamptz   NOT NULL DEFAULT now(),
+    expires_at     timestamptz   NOT NULL,
+    settled_at     timestamptz
+);
+CREATE INDEX IF NOT EXISTS stock_hold_active_idx
+    ON public.stock_hold (owner, expires_at) WHERE status = 'ACTIVE';
+-- Holds are kept in one instance's memory; this row says which instance is live.
+CREATE TABLE IF NOT EXISTS public.stock_hold_owner (
+    id         smallint      PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    owner      text          NOT NULL,
+    expires_at timestamptz   NOT NULL
+);
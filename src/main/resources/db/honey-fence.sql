@@ -0,0 +1,4 @@
+-- Fencing for partitioned runs (partitions.enabled=true). Idempotent; run once against every
+-- honey database. Holds the highest partition lease epoch that wrote the stock row: a worker
+-- still writing at an older epoch is turned away instead of taking honey a second time.
+ALTER TABLE public.stock ADD COLUMN IF NOT EXISTS fence_epoch bigint NOT NULL DEFAULT 0;
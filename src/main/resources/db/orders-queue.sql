@@ -0,0 +1,19 @@
+-- Turns public.orders into a work queue for OrderWorkers (order.workers.enabled=true).
+-- Idempotent; run once against the orders database before enabling workers.
+-- A group is all rows of one (order_number, honey_type); its lowest id is the head row that
+-- workers lock with FOR UPDATE SKIP LOCKED, so a group is only ever claimed as a whole.
+
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS id           bigserial;
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS status       text NOT NULL DEFAULT 'PENDING';
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS claimed_by   text;
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS claimed_at   timestamptz;
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS attempts     int  NOT NULL DEFAULT 0;
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS processed_at timestamptz;
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS result       text;
+-- partition lease epoch the claim was renewed under, 0 when partitions are off
+ALTER TABLE public.orders ADD COLUMN IF NOT EXISTS claim_epoch  bigint NOT NULL DEFAULT 0;
+
+CREATE UNIQUE INDEX IF NOT EXISTS orders_id_uidx ON public.orders(id);
+CREATE INDEX IF NOT EXISTS orders_group_idx ON public.orders(order_number, honey_type, id);
+CREATE INDEX IF NOT EXISTS orders_open_idx ON public.orders(order_number, honey_type)
+    WHERE status IN ('PENDING', 'CLAIMED');
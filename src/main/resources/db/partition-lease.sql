@@ -0,0 +1,11 @@
+-- Membership and HoneyType partition leases for multi-instance runs (partitions.enabled=true). Idempotent.
+CREATE TABLE IF NOT EXISTS public.lease_member (
+    node       text        PRIMARY KEY,
+    expires_at timestamptz NOT NULL
+);
+CREATE TABLE IF NOT EXISTS public.partition_lease (
+    partition  text        PRIMARY KEY,
+    owner      text        NOT NULL,
+    expires_at timestamptz NOT NULL,
+    epoch      bigint      NOT NULL DEFAULT 1
+);
@@ -0,0 +1,7 @@
+-- Watermark table for the startup runner (app.process-orders-on-startup). Idempotent.
+CREATE TABLE IF NOT EXISTS public.run_checkpoint (
+    name         text        PRIMARY KEY,
+    order_number int         NOT NULL,
+    honey_type   text        NOT NULL,
+    updated_at   timestamptz NOT NULL DEFAULT now()
+);